@@ -0,0 +1,58 @@
+package commands;
+import models.BorrowResult;
+import models.Library;
+
+/**
+ * A borrow or return request submitted to a {@link LibraryCommandLoop}.
+ * <p>
+ * Commands only carry names, as a caller would type them, and are applied later by the
+ * loop's owner thread through the result-returning API of {@link Library}, so a refused
+ * request is reported as a {@link BorrowResult} rather than an exception.
+ * </p>
+ */
+public sealed interface LibraryCommand {
+
+    /**
+     * Applies this command to the library.
+     *
+     * @param library the library the command is applied to
+     * @return the outcome of the command
+     */
+    BorrowResult apply(Library library);
+
+    /**
+     * Lend a copy of a title to a user, as {@link Library#tryBorrowBook(String, String)} does.
+     *
+     * @param bookTitle the title to borrow
+     * @param userName  the name of the borrower
+     */
+    record BorrowCommand(String bookTitle, String userName) implements LibraryCommand {
+        @Override
+        public BorrowResult apply(Library library) {
+            return library.tryBorrowBook(bookTitle, userName);
+        }
+    }
+
+    /**
+     * Take a book back from a user, as {@link Library#tryReturnBook(String, String)} does.
+     *
+     * @param userName  the name of the user returning the book
+     * @param bookTitle the title to return, or {@code null} for the user's first book
+     */
+    record ReturnCommand(String userName, String bookTitle) implements LibraryCommand {
+
+        /**
+         * Constructs a command returning the user's first book, as {@link Library#tryReturnBook(String)} does.
+         *
+         * @param userName the name of the user returning the book
+         */
+        public ReturnCommand(String userName) {
+            this(userName, null);
+        }
+
+        @Override
+        public BorrowResult apply(Library library) {
+            return bookTitle == null ? library.tryReturnBook(userName) : library.tryReturnBook(userName, bookTitle);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package commands;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import models.BorrowResult;
+import models.Library;
+
+/**
+ * Applies borrow and return commands to a {@link Library} from a single owner thread, in batches.
+ * <p>
+ * Any number of threads submit {@link LibraryCommand}s to a bounded queue and get a future
+ * for each. The owner thread takes commands out in batches of up to {@code maxBatchSize},
+ * applies them one after the other and then completes their futures, so the library only
+ * ever sees one writer: its user and title locks are taken without contention, and a hot
+ * title no longer makes request threads spin on the same copies.
+ * </p>
+ *
+ * <p>
+ * The queue gives backpressure: {@link #submit} waits for room when it is full, while
+ * {@link #offer} gives up at once. The futures are completed on the owner thread, so a
+ * dependent action attached with {@code thenApply} and the like runs there and holds up
+ * the next batch; slow continuations should use the {@code Async} variants. Closing the
+ * loop applies every command still queued before the owner thread stops; commands
+ * submitted while it is being closed may be rejected instead.
+ * </p>
+ */
+public class LibraryCommandLoop implements AutoCloseable {
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final Library library;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final Thread owner;
+    private volatile boolean closed;
+    private volatile long appliedCommands;
+    private volatile long batches;
+
+    /**
+     * Constructs a loop over the given library and starts its owner thread.
+     *
+     * @param library      the library the commands are applied to
+     * @param capacity     the maximum number of commands waiting to be applied
+     * @param maxBatchSize the maximum number of commands applied before their futures are completed
+     */
+    public LibraryCommandLoop(Library library, int capacity, int maxBatchSize) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("capacity and maxBatchSize must be positive");
+        }
+        this.library = library;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.owner = new Thread(this::applyLoop, "library-commands");
+        this.owner.setDaemon(true);
+        this.owner.start();
+    }
+
+    /**
+     * Queues a command, waiting for room if the queue is full.
+     *
+     * @param command the command to apply
+     * @return a future completed with the outcome of the command, or failed with a
+     * {@link RejectedExecutionException} if the loop is closed
+     * @throws InterruptedException if the thread is interrupted while waiting for room
+     */
+    public CompletableFuture<BorrowResult> submit(LibraryCommand command) throws InterruptedException {
+        if (closed) {
+            return rejected();
+        }
+        Pending pending = new Pending(command, new CompletableFuture<>());
+        queue.put(pending);
+        if (closed) {
+            rejectQueued();
+        }
+        return pending.future;
+    }
+
+    /**
+     * Queues a command unless the queue is full.
+     *
+     * @param command the command to apply
+     * @return a future completed with the outcome of the command, or failed with a
+     * {@link RejectedExecutionException} if the loop is closed; {@code null} if the queue is full
+     */
+    public CompletableFuture<BorrowResult> offer(LibraryCommand command) {
+        if (closed) {
+            return rejected();
+        }
+        Pending pending = new Pending(command, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return null;
+        }
+        if (closed) {
+            rejectQueued();
+        }
+        return pending.future;
+    }
+
+    /**
+     * Returns how many commands the owner thread has applied.
+     *
+     * @return the number of applied commands
+     */
+    public long getAppliedCommands() {
+        return appliedCommands;
+    }
+
+    /**
+     * Returns how many batches the owner thread has applied. Together with {@link #getAppliedCommands()}
+     * it gives the average batch size, which grows with the load.
+     *
+     * @return the number of applied batches
+     */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * Stops accepting commands, applies every command still queued and waits for the owner thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            owner.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectQueued();
+    }
+
+    /**
+     * Body of the owner thread: waits for commands, then drains, applies and completes them in
+     * batches until the loop is closed and the queue is empty.
+     */
+    private void applyLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        BorrowResult[] results = new BorrowResult[maxBatchSize];
+        RuntimeException[] failures = new RuntimeException[maxBatchSize];
+        while (true) {
+            Pending first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+                closed = true;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            int size = batch.size();
+            for (int i = 0; i < size; i++) {
+                try {
+                    results[i] = batch.get(i).command.apply(library);
+                } catch (RuntimeException e) {
+                    failures[i] = e;
+                }
+            }
+            appliedCommands += size;
+            batches++;
+            for (int i = 0; i < size; i++) {
+                CompletableFuture<BorrowResult> future = batch.get(i).future;
+                if (failures[i] != null) {
+                    future.completeExceptionally(failures[i]);
+                } else {
+                    future.complete(results[i]);
+                }
+                results[i] = null;
+                failures[i] = null;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Fails every command left in the queue once the loop is closed, so none waits forever.
+     */
+    private void rejectQueued() {
+        for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.future.completeExceptionally(new RejectedExecutionException("The command loop is closed"));
+        }
+    }
+
+    private static CompletableFuture<BorrowResult> rejected() {
+        return CompletableFuture.failedFuture(new RejectedExecutionException("The command loop is closed"));
+    }
+
+    /**
+     * A queued command and the future of its outcome.
+     */
+    private record Pending(LibraryCommand command, CompletableFuture<BorrowResult> future) {
+    }
+}
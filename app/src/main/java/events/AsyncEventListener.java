@@ -0,0 +1,178 @@
+package events;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints the messages of library events from a background thread, in batches.
+ * <p>
+ * Request threads only put the event in a bounded ring buffer and return. A single
+ * writer thread takes events out in batches, formats their messages and writes each
+ * batch to the output with one call, so neither the formatting nor the lock of the
+ * output stream is paid on the request thread.
+ * </p>
+ *
+ * <p>
+ * When the buffer is full the listener either makes the emitting thread wait for room
+ * ({@link OverflowPolicy#BLOCK}) or drops the event and counts it
+ * ({@link OverflowPolicy#DROP}). Closing the listener writes every event still buffered
+ * before the writer thread stops. An event that a thread was still putting in the buffer
+ * when the writer thread stopped is written by that thread instead.
+ * </p>
+ */
+public class AsyncEventListener implements LibraryEventListener, AutoCloseable {
+
+    /**
+     * What to do with an event when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until the writer thread makes room for the event. */
+        BLOCK,
+        /** Discard the event and count it in {@link #getDroppedEvents()}. */
+        DROP
+    }
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final BlockingQueue<LibraryEvent> buffer;
+    private final PrintStream out;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean writerStopped;
+
+    /**
+     * Constructs a listener that prints to the given stream and starts its writer thread.
+     *
+     * @param out            the stream the messages are printed to
+     * @param capacity       the maximum number of events waiting to be written
+     * @param maxBatchSize   the maximum number of events written with a single call
+     * @param overflowPolicy what to do with an event when the buffer is full
+     */
+    public AsyncEventListener(PrintStream out, int capacity, int maxBatchSize, OverflowPolicy overflowPolicy) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("capacity and maxBatchSize must be positive");
+        }
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.out = out;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::writeLoop, "library-events");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Buffers the event for the writer thread. Events emitted after {@link #close()} are dropped.
+     *
+     * @param event the event that happened
+     */
+    @Override
+    public void onEvent(LibraryEvent event) {
+        if (closed) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            if (!buffer.offer(event)) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+        } else {
+            try {
+                buffer.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                droppedEvents.incrementAndGet();
+                return;
+            }
+        }
+        if (writerStopped) {
+            writeRemaining();
+        }
+    }
+
+    /**
+     * Returns how many events were discarded because the buffer was full or the listener was closed.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Stops accepting events, writes every event still buffered and waits for the writer thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Body of the writer thread: waits for events, then drains and writes them in batches
+     * until the listener is closed and the buffer is empty.
+     */
+    private void writeLoop() {
+        List<LibraryEvent> batch = new ArrayList<>(maxBatchSize);
+        StringBuilder text = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+        while (true) {
+            LibraryEvent first;
+            try {
+                first = buffer.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+                closed = true;
+            }
+            if (first == null) {
+                if (closed && buffer.isEmpty()) {
+                    // An event put after the check above is written here, or by its emitting
+                    // thread if that thread sees the flag.
+                    writerStopped = true;
+                    writeRemaining();
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            buffer.drainTo(batch, maxBatchSize - 1);
+            for (LibraryEvent event : batch) {
+                text.append(event.message()).append(lineSeparator);
+            }
+            out.print(text);
+            out.flush();
+            batch.clear();
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Writes the events left in the buffer once the writer thread has stopped.
+     * Synchronized so that the writer thread and late emitting threads write whole batches.
+     */
+    private synchronized void writeRemaining() {
+        List<LibraryEvent> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (LibraryEvent event : remaining) {
+            text.append(event.message()).append(System.lineSeparator());
+        }
+        out.print(text);
+        out.flush();
+    }
+}
@@ -0,0 +1,39 @@
+package events;
+import java.io.PrintStream;
+
+/**
+ * Prints the message of every event on a {@link PrintStream}, one line per event,
+ * on the thread that emitted it.
+ * <p>
+ * This reproduces the console output of the library as the {@code Main} demo shows it.
+ * </p>
+ */
+public class ConsoleEventListener implements LibraryEventListener {
+    private final PrintStream out;
+
+    /**
+     * Constructs a listener that prints to standard output.
+     */
+    public ConsoleEventListener() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a listener that prints to the given stream.
+     *
+     * @param out the stream the messages are printed to
+     */
+    public ConsoleEventListener(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Prints the message of the event.
+     *
+     * @param event the event that happened
+     */
+    @Override
+    public void onEvent(LibraryEvent event) {
+        out.println(event.message());
+    }
+}
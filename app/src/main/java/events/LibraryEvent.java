@@ -0,0 +1,123 @@
+package events;
+import static utils.Messages.*;
+import java.util.List;
+import models.Author;
+import models.Book;
+import models.User;
+
+/**
+ * Represents something that happened in a {@link models.Library}, such as a book being
+ * registered, borrowed or returned.
+ * <p>
+ * Events are handed to the library's {@link LibraryEventListener}. They only reference
+ * the entities involved, whose names and titles never change, so an event can be
+ * formatted later, on another thread, and still describe the moment it was emitted.
+ * </p>
+ */
+public sealed interface LibraryEvent {
+
+    /**
+     * Returns the human-readable message describing this event, as built by {@link utils.Messages}.
+     *
+     * @return the message for this event
+     */
+    String message();
+
+    /**
+     * A book was registered in the library.
+     *
+     * @param book the registered book
+     */
+    record BookRegistered(Book book) implements LibraryEvent {
+        @Override
+        public String message() {
+            return bookRegistered(book);
+        }
+    }
+
+    /**
+     * Several books were registered at once through {@link models.Library#registerBooks}.
+     *
+     * @param books the registered books, in registration order
+     */
+    record BooksRegistered(List<Book> books) implements LibraryEvent {
+        @Override
+        public String message() {
+            return booksRegistered(books.size());
+        }
+    }
+
+    /**
+     * An author was registered in the library.
+     *
+     * @param author the registered author
+     */
+    record AuthorRegistered(Author author) implements LibraryEvent {
+        @Override
+        public String message() {
+            return authorRegistered(author);
+        }
+    }
+
+    /**
+     * Several authors were registered at once through {@link models.Library#registerAuthors}.
+     *
+     * @param authors the registered authors
+     */
+    record AuthorsRegistered(List<Author> authors) implements LibraryEvent {
+        @Override
+        public String message() {
+            return authorsRegistered(authors.size());
+        }
+    }
+
+    /**
+     * A user was registered in the library.
+     *
+     * @param user the registered user
+     */
+    record UserRegistered(User user) implements LibraryEvent {
+        @Override
+        public String message() {
+            return userRegistered(user);
+        }
+    }
+
+    /**
+     * Several users were registered at once through {@link models.Library#registerUsers}.
+     *
+     * @param users the registered users
+     */
+    record UsersRegistered(List<User> users) implements LibraryEvent {
+        @Override
+        public String message() {
+            return usersRegistered(users.size());
+        }
+    }
+
+    /**
+     * A copy of a book was lent to a user.
+     *
+     * @param book the borrowed copy
+     * @param user the user who borrowed it
+     */
+    record BookBorrowed(Book book, User user) implements LibraryEvent {
+        @Override
+        public String message() {
+            return bookSuccessfullyBorrowed(book, user);
+        }
+    }
+
+    /**
+     * A copy of a book was given back by a user.
+     *
+     * @param book the returned copy
+     * @param user the user who returned it
+     */
+    record BookReturned(Book book, User user) implements LibraryEvent {
+        @Override
+        public String message() {
+            return bookSuccessfullyReturned(book);
+        }
+    }
+}
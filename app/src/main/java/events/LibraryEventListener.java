@@ -0,0 +1,45 @@
+package events;
+
+/**
+ * Receives the events emitted by a {@link models.Library} as it is modified.
+ * <p>
+ * The library calls the listener on the thread performing the operation, while it still holds
+ * the locks of that operation, so implementations should return quickly. Use
+ * {@link AsyncEventListener} to move expensive work, such as formatting and writing messages,
+ * to a background thread. A listener may throw to reject a registration or a borrow, which the
+ * library then leaves out or undoes.
+ * </p>
+ */
+@FunctionalInterface
+public interface LibraryEventListener {
+
+    /**
+     * Called for every event emitted by the library.
+     *
+     * @param event the event that happened
+     */
+    void onEvent(LibraryEvent event);
+
+    /**
+     * Returns a listener that passes every event to this listener and then to the given one.
+     *
+     * @param next the listener notified after this one
+     * @return the combined listener
+     */
+    default LibraryEventListener andThen(LibraryEventListener next) {
+        return event -> {
+            onEvent(event);
+            next.onEvent(event);
+        };
+    }
+
+    /**
+     * Returns a listener that ignores every event. This is the listener of a library
+     * created without one.
+     *
+     * @return the no-op listener
+     */
+    static LibraryEventListener noOp() {
+        return event -> { };
+    }
+}
@@ -1,4 +1,5 @@
 package exceptions;
+import java.util.function.UnaryOperator;
 
 /**
  * Exception thrown to indicate that a requested book is not available for borrowing or reservation.
@@ -7,7 +8,9 @@ package exceptions;
  * cannot be completed because the specified book is currently unavailable.
  * </p>
  */
-public class BookNotAvailableException extends RuntimeException {
+public class BookNotAvailableException extends LibraryException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new BookNotAvailableException with the specified detail message.
      *
@@ -16,5 +19,14 @@ public class BookNotAvailableException extends RuntimeException {
     public BookNotAvailableException(String message) {
         super(message);
     }
-}
 
+    /**
+     * Constructs a new BookNotAvailableException whose message is built from its subject only when requested.
+     *
+     * @param subject the title of the book
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#bookNotAvailable(String)}
+     */
+    public BookNotAvailableException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
+}
@@ -1,4 +1,5 @@
 package exceptions;
+import java.util.function.UnaryOperator;
 
 /**
  * Exception thrown to indicate that a requested book could not be found.
@@ -8,7 +9,9 @@ package exceptions;
  * in the system or database.
  * </p>
  */
-public class BookNotFoundException extends RuntimeException {
+public class BookNotFoundException extends LibraryException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new BookNotFoundException with the specified detail message.
      *
@@ -17,4 +20,14 @@ public class BookNotFoundException extends RuntimeException {
     public BookNotFoundException(String message) {
         super(message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Constructs a new BookNotFoundException whose message is built from its subject only when requested.
+     *
+     * @param subject the title of the book
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#bookNotFound(String)}
+     */
+    public BookNotFoundException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
+}
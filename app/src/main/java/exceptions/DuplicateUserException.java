@@ -0,0 +1,34 @@
+package exceptions;
+import java.util.function.UnaryOperator;
+
+/**
+ * Exception thrown to indicate that a user cannot be registered because another user
+ * already has the same name.
+ * <p>
+ * Names are compared after normalization, so "José" and "jose" are the same name.
+ * Users are looked up by name when borrowing and returning books, so two users with
+ * the same name could not be told apart.
+ * </p>
+ */
+public class DuplicateUserException extends LibraryException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new DuplicateUserException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public DuplicateUserException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new DuplicateUserException whose message is built from its subject only when requested.
+     *
+     * @param subject the name of the user
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#userAlreadyRegistered(String)}
+     */
+    public DuplicateUserException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
+}
@@ -0,0 +1,80 @@
+package exceptions;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base class of the exceptions that report an expected outcome of a library operation,
+ * such as a book that is not available or a user that does not exist.
+ * <p>
+ * These outcomes are frequent and say nothing about where the code went wrong, so the
+ * exceptions are cheap to throw: they capture no stack trace, and their message can be
+ * given as the subject of the failure, a title or a user name, together with the function
+ * that formats it, usually a method of {@link utils.Messages}. The message is then built
+ * only if somebody asks for it. The formatting function is not serialized: the message is
+ * formatted before the exception is written.
+ * </p>
+ */
+public abstract class LibraryException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String subject;
+    private final transient UnaryOperator<String> format;
+    private volatile String message;
+
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    protected LibraryException(String message) {
+        this(message, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructs a new exception whose detail message is formatted from its subject when first requested.
+     *
+     * @param subject the title or name the exception is about
+     * @param format  the function building the detail message from the subject
+     */
+    protected LibraryException(String subject, UnaryOperator<String> format) {
+        super(null, null, false, false);
+        this.subject = subject;
+        this.format = format;
+    }
+
+    /**
+     * Returns the title or name this exception is about, as given when it was thrown.
+     *
+     * @return the subject of the exception
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Returns the detail message, formatting it on the first call.
+     *
+     * @return the detail message of this exception
+     */
+    @Override
+    public String getMessage() {
+        String current = message;
+        if (current == null) {
+            current = format == null ? subject : format.apply(subject);
+            message = current;
+        }
+        return current;
+    }
+
+    /**
+     * Formats the message before writing the exception, since the formatting function is not written.
+     *
+     * @param out the stream the exception is written to
+     * @throws IOException if the exception cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,23 @@
+package exceptions;
+
+/**
+ * Exception thrown when the library's state cannot be read from or written to storage.
+ * <p>
+ * It wraps the lower-level cause, such as an {@link java.sql.SQLException} or an
+ * {@link java.io.IOException}, so that storage failures can surface from the library's
+ * unchecked APIs and from event listeners.
+ * </p>
+ */
+public class PersistenceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new PersistenceException with the specified detail message and cause.
+     *
+     * @param message the detail message explaining the reason for the exception
+     * @param cause   the underlying storage error
+     */
+    public PersistenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,15 +1,18 @@
 package exceptions;
+import java.util.function.UnaryOperator;
 
 /**
- * Exception thrown to indicate that a user currently has a book,
- * which prevents the requested operation from being completed.
+ * Exception thrown to indicate that a user currently has a book, or as many books as
+ * their loan limit allows, which prevents the requested operation from being completed.
  * <p>
  * This exception is typically used in scenarios where an action
  * cannot proceed because the user already possesses a book,
  * such as borrowing another book or deleting the user account.
  * </p>
  */
-public class UserHasBookException extends RuntimeException {
+public class UserHasBookException extends LibraryException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new UserHasBookException with the specified detail message.
      * This exception is thrown to indicate that a user currently has a book,
@@ -20,4 +23,14 @@ public class UserHasBookException extends RuntimeException {
     public UserHasBookException(String message) {
         super(message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Constructs a new UserHasBookException whose message is built from its subject only when requested.
+     *
+     * @param subject the name of the user
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#userAlreadyHasBook(String)}
+     */
+    public UserHasBookException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
+}
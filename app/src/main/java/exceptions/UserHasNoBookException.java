@@ -1,10 +1,12 @@
 package exceptions;
+import java.util.function.UnaryOperator;
 
 /**
  * Exception thrown when a user tries to return a book,
  * but has no borrowed book.
  */
-public class UserHasNoBookException extends RuntimeException {
+public class UserHasNoBookException extends LibraryException {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Constructs a new exception with a custom message.
@@ -13,4 +15,14 @@ public class UserHasNoBookException extends RuntimeException {
     public UserHasNoBookException(String message) {
         super(message);
     }
+
+    /**
+     * Constructs a new UserHasNoBookException whose message is built from its subject only when requested.
+     *
+     * @param subject the name of the user
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#userHasNoBorrowedBook(String)}
+     */
+    public UserHasNoBookException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
 }
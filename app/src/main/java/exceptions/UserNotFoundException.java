@@ -1,4 +1,5 @@
 package exceptions;
+import java.util.function.UnaryOperator;
 
 /**
  * Exception thrown to indicate that a user was not found in the system.
@@ -8,7 +9,9 @@ package exceptions;
  * </p>
  *
  */
-public class UserNotFoundException extends RuntimeException {
+public class UserNotFoundException extends LibraryException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new UserNotFoundException with the specified detail message.
      *
@@ -17,4 +20,14 @@ public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String message) {
         super(message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Constructs a new UserNotFoundException whose message is built from its subject only when requested.
+     *
+     * @param subject the name of the user
+     * @param format  the function building the detail message from the subject, such as {@link utils.Messages#userNotFound(String)}
+     */
+    public UserNotFoundException(String subject, UnaryOperator<String> format) {
+        super(subject, format);
+    }
+}
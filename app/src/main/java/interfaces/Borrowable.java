@@ -7,4 +7,12 @@ import models.User;
  */
 public interface Borrowable {
     void borrow(User user);
+
+    /**
+     * Non-blocking variant of {@link #borrow(User)} that reports whether the item could be taken.
+     *
+     * @param user the user borrowing the item
+     * @return {@code true} if the item is now borrowed by the user, {@code false} if it was not available
+     */
+    boolean tryBorrow(User user);
 }
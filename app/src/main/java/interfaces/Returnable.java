@@ -6,4 +6,11 @@ package interfaces;
  */
 public interface Returnable {
     void returnBook();
+
+    /**
+     * Non-blocking variant of {@link #returnBook()} that reports whether there was anything to return.
+     *
+     * @return {@code true} if the item was borrowed and is now returned, {@code false} otherwise
+     */
+    boolean tryReturn();
 }
@@ -0,0 +1,78 @@
+package jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one call to {@code Library.borrowBook} or {@code Library.tryBorrowBook}.
+ * <p>
+ * Only borrows slower than the threshold are recorded by default, which keeps a continuous
+ * recording small while still catching the borrows that waited on a user's lock or lost many
+ * copies to other threads. Setting {@code library.Borrow#threshold=0 ms} records every borrow.
+ * </p>
+ */
+@Name("library.Borrow")
+@Label("Borrow")
+@Category({"Library", "Loans"})
+@Description("A user borrowing a copy of a title")
+@StackTrace(false)
+@Threshold("100 us")
+public final class BorrowEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(BorrowEvent.class);
+
+    @Label("Title")
+    String title;
+
+    @Label("User")
+    String user;
+
+    @Label("Copies Scanned")
+    @Description("Copies taken off the title's free-list, including those another thread reserved first")
+    int copiesScanned;
+
+    @Label("Outcome")
+    @Description("The status of the result, or the type of the exception thrown")
+    String outcome;
+
+    /**
+     * Begins a borrow event if the event is enabled, so that nothing is allocated while it is not recorded.
+     *
+     * @return the event, or {@code null} if it is disabled
+     */
+    public static BorrowEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Counts a copy taken off the title's free-list while looking for one to reserve.
+     */
+    public void copyScanned() {
+        copiesScanned++;
+    }
+
+    /**
+     * Ends the event and records it, if it is enabled and slower than its threshold.
+     *
+     * @param title   the title as requested
+     * @param user    the user name as requested
+     * @param outcome the status of the result, or the type of the exception thrown
+     */
+    public void commit(String title, String user, String outcome) {
+        if (shouldCommit()) {
+            this.title = title;
+            this.user = user;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
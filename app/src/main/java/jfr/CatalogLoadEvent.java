@@ -0,0 +1,64 @@
+package jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import models.Library;
+import models.LibraryStats;
+
+/**
+ * Flight Recorder event for loading a library from storage: a snapshot, a journal replay or the SQLite database.
+ */
+@Name("library.CatalogLoad")
+@Label("Catalog Load")
+@Category({"Library", "Storage"})
+@Description("A library loaded from a snapshot, journal or database")
+@StackTrace(false)
+public final class CatalogLoadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    @Description("snapshot, journal or sqlite")
+    String source;
+
+    @Label("Location")
+    String location;
+
+    @Label("Authors")
+    long authors;
+
+    @Label("Copies")
+    long copies;
+
+    @Label("Users")
+    long users;
+
+    @Label("Active Loans")
+    long loans;
+
+    @Label("Outcome")
+    @Description("loaded, or the type of the exception thrown; the counts are those reached when it was thrown")
+    String outcome;
+
+    /**
+     * Ends the event and records it with the library's counts, if it is enabled.
+     *
+     * @param source   {@code snapshot}, {@code journal} or {@code sqlite}
+     * @param location the file or database the library was loaded from
+     * @param library  the library, whose counts are read only if the event is recorded
+     * @param outcome  {@code loaded}, or the type of the exception thrown
+     */
+    public void commit(String source, Object location, Library library, String outcome) {
+        if (shouldCommit()) {
+            LibraryStats stats = library.getStats();
+            this.source = source;
+            this.location = String.valueOf(location);
+            this.authors = stats.getAuthorCount();
+            this.copies = stats.getCopyCount();
+            this.users = stats.getUserCount();
+            this.loans = stats.getActiveLoanCount();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a lookup of a user by name, of a title, or a search over the titles.
+ * <p>
+ * Exact lookups are hash-table reads that take well under a microsecond, so only those slower
+ * than the threshold are recorded by default, with their stack trace to show who made them.
+ * </p>
+ */
+@Name("library.Lookup")
+@Label("Lookup")
+@Category({"Library", "Lookups"})
+@Description("A user, title or search lookup")
+@StackTrace(true)
+@Threshold("20 us")
+public final class LookupEvent extends jdk.jfr.Event {
+
+    /** Kind of a lookup of a user by name. */
+    public static final String USER = "user";
+    /** Kind of a lookup of the copies of a title. */
+    public static final String TITLE = "title";
+    /** Kind of a completion of a title or author prefix. */
+    public static final String COMPLETE = "complete";
+    /** Kind of a typo-tolerant search over titles and authors. */
+    public static final String SEARCH = "search";
+
+    private static final EventType TYPE = EventType.getEventType(LookupEvent.class);
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Key")
+    @Description("The name, title, prefix or query looked up")
+    String key;
+
+    @Label("Matches")
+    @Description("Copies of the title, titles found by a search, or 1 for a user found")
+    int matches;
+
+    /**
+     * Begins a lookup event if the event is enabled, so that nothing is allocated while it is not recorded.
+     *
+     * @return the event, or {@code null} if it is disabled
+     */
+    public static LookupEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        LookupEvent event = new LookupEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it, if it is enabled and slower than its threshold.
+     *
+     * @param kind    one of {@link #USER}, {@link #TITLE}, {@link #COMPLETE} and {@link #SEARCH}
+     * @param key     the name, title, prefix or query looked up
+     * @param matches the number of copies or titles found, or {@code 1} for a user found
+     */
+    public void commit(String kind, String key, int matches) {
+        if (shouldCommit()) {
+            this.kind = kind;
+            this.key = key;
+            this.matches = matches;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one call to {@code Library.returnBook} or {@code Library.tryReturnBook}.
+ * <p>
+ * The duration includes serving the holds on the returned title. Like {@link BorrowEvent}, only
+ * returns slower than the threshold are recorded by default.
+ * </p>
+ */
+@Name("library.Return")
+@Label("Return")
+@Category({"Library", "Loans"})
+@Description("A user giving a book back")
+@StackTrace(false)
+@Threshold("100 us")
+public final class ReturnEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(ReturnEvent.class);
+
+    @Label("Title")
+    @Description("The title returned, or the one requested if the return failed")
+    String title;
+
+    @Label("User")
+    String user;
+
+    @Label("Loans Held")
+    @Description("Loans the user held, and searched for the requested title, when giving the book back")
+    int loansHeld;
+
+    @Label("Outcome")
+    @Description("The status of the result, or the type of the exception thrown")
+    String outcome;
+
+    /**
+     * Begins a return event if the event is enabled, so that nothing is allocated while it is not recorded.
+     *
+     * @return the event, or {@code null} if it is disabled
+     */
+    public static ReturnEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Sets how many loans the user held when giving the book back.
+     *
+     * @param loansHeld the number of loans of the user
+     */
+    public void setLoansHeld(int loansHeld) {
+        this.loansHeld = loansHeld;
+    }
+
+    /**
+     * Ends the event and records it, if it is enabled and slower than its threshold.
+     *
+     * @param title   the title returned, or the one requested if the return failed
+     * @param user    the user name as requested
+     * @param outcome the status of the result, or the type of the exception thrown
+     */
+    public void commit(String title, String user, String outcome) {
+        if (shouldCommit()) {
+            this.title = title;
+            this.user = user;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package metrics;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds, with buckets laid out like an HdrHistogram.
+ * <p>
+ * Values below {@code 64} get a bucket each; above that, every power of two is split into
+ * {@code 32} buckets of equal width, so a value is known to within about 3% whatever its
+ * magnitude, and {@code 1024} buckets cover everything up to about 68 seconds. Longer
+ * latencies fall into the last bucket but still count towards the maximum and the mean.
+ * </p>
+ *
+ * <p>
+ * Recording takes no lock and allocates nothing. To keep threads that time the same
+ * operation from contending on the same bucket, the counts are spread over a few stripes,
+ * one of which is picked at random for each value, and only added up when a {@link Snapshot} is taken.
+ * A snapshot taken while values are being recorded may miss the latest of them.
+ * </p>
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 30;
+    private static final long MAX_TRACKABLE = (2L * SUB_BUCKETS << MAX_SHIFT) - 1;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+    private static final int SUM = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+    private static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray[] stripes;
+
+    /**
+     * Constructs an empty histogram, with one stripe per processor up to a small limit.
+     */
+    public LatencyHistogram() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        stripes = new AtomicLongArray[Integer.highestOneBit(Math.max(1, processors) * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS + 2);
+        }
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as {@code 0}
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray stripe = stripes[stripeIndex()];
+        stripe.getAndIncrement(bucketIndex(Math.min(value, MAX_TRACKABLE)));
+        stripe.getAndAdd(SUM, value);
+        long max = stripe.get(MAX);
+        while (value > max && !stripe.compareAndSet(MAX, max, value)) {
+            max = stripe.get(MAX);
+        }
+    }
+
+    /**
+     * Adds up the stripes into an immutable view of the values recorded so far.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM);
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return new Snapshot(counts, sum, max);
+    }
+
+    private int stripeIndex() {
+        return stripes.length == 1 ? 0 : ThreadLocalRandom.current().nextInt() & (stripes.length - 1);
+    }
+
+    /**
+     * Returns the bucket of a value no greater than {@link #MAX_TRACKABLE}.
+     */
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value that falls into a bucket.
+     */
+    static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The values recorded in a {@link LatencyHistogram} up to some point.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.counts = counts;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the largest recorded value.
+         *
+         * @return the maximum in nanoseconds, or {@code 0} if nothing was recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the mean of the recorded values.
+         *
+         * @return the mean in nanoseconds, or {@code 0} if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the value below which the given percentage of the recorded values fall,
+         * to the precision of the buckets and never above the maximum.
+         *
+         * @param percentile the percentage of values, between {@code 0} and {@code 100}
+         * @return the value in nanoseconds, or {@code 0} if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
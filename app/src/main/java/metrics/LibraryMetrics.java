@@ -0,0 +1,330 @@
+package metrics;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the hot operations of a {@link models.Library}.
+ * <p>
+ * The library records every call to the instrumented operations with its latency, whether it
+ * failed, and if so the type of the exception the throwing variant of the operation reports,
+ * so the result-returning and the throwing APIs are counted alike. The sizes of the library's
+ * indexes are read when a {@link Snapshot} is taken. Recording takes no lock: the latencies go
+ * to striped {@link LatencyHistogram}s and the failures to {@link LongAdder}s.
+ * </p>
+ *
+ * <p>
+ * Metrics are off unless {@link models.Library#enableMetrics()} is called, and a library
+ * without metrics does not even read the clock. The values can be read through {@link #snapshot()}
+ * or, once {@link #registerMBeans(String)} has been called, as MXBeans in JConsole or any JMX client.
+ * </p>
+ */
+public final class LibraryMetrics {
+    private static final String DOMAIN = "library";
+
+    /**
+     * The instrumented operations of a library.
+     */
+    public enum Operation {
+        /** {@code borrowBook} and {@code tryBorrowBook}. */
+        BORROW_BOOK("borrowBook"),
+        /** {@code returnBook} and {@code tryReturnBook}, whichever book they return. */
+        RETURN_BOOK("returnBook"),
+        /** {@code findUserByName}. */
+        FIND_USER_BY_NAME("findUserByName"),
+        /** {@code registerBook}. */
+        REGISTER_BOOK("registerBook"),
+        /** {@code registerBooks}, counted once per call whatever the number of books. */
+        REGISTER_BOOKS("registerBooks");
+
+        private final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+
+        /**
+         * Returns the name of the library method this operation stands for.
+         *
+         * @return the method name
+         */
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private final Map<Class<?>, LongAdder> failuresByType = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> indexSizes;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Constructs empty metrics.
+     *
+     * @param indexSizes the functions reading the size of each index, by index name
+     */
+    public LibraryMetrics(Map<String, LongSupplier> indexSizes) {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            failures.put(operation, new LongAdder());
+        }
+        this.indexSizes = Collections.unmodifiableMap(new LinkedHashMap<>(indexSizes));
+    }
+
+    /**
+     * Records a call that succeeded.
+     *
+     * @param operation  the operation called
+     * @param startNanos the value of {@link System#nanoTime()} when the call started
+     */
+    public void recordSuccess(Operation operation, long startNanos) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a call that failed.
+     *
+     * @param operation     the operation called
+     * @param startNanos    the value of {@link System#nanoTime()} when the call started
+     * @param exceptionType the type of the exception that reports the failure
+     */
+    public void recordFailure(Operation operation, long startNanos, Class<?> exceptionType) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+        failures.get(operation).increment();
+        LongAdder count = failuresByType.get(exceptionType);
+        if (count == null) {
+            count = failuresByType.computeIfAbsent(exceptionType, type -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Reads every counter, histogram and index size.
+     *
+     * @return the current values
+     */
+    public Snapshot snapshot() {
+        Map<Operation, OperationSnapshot> operations = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot latency = latencies.get(operation).snapshot();
+            operations.put(operation, new OperationSnapshot(latency.getCount(), failures.get(operation).sum(), latency));
+        }
+        return new Snapshot(Collections.unmodifiableMap(operations), readFailuresByType(), readIndexSizes());
+    }
+
+    private Map<String, Long> readFailuresByType() {
+        Map<String, Long> types = new TreeMap<>();
+        failuresByType.forEach((type, count) -> types.put(type.getSimpleName(), count.sum()));
+        return Collections.unmodifiableMap(types);
+    }
+
+    private Map<String, Long> readIndexSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        indexSizes.forEach((index, size) -> sizes.put(index, size.getAsLong()));
+        return Collections.unmodifiableMap(sizes);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server: one {@link LibraryMetricsMXBean} named
+     * {@code library:type=LibraryMetrics,name=<name>} and one {@link OperationMetricsMXBean} per operation,
+     * with an additional {@code operation=<method name>} key.
+     *
+     * @param name the name telling this library apart from others in the same JVM
+     * @throws IllegalStateException if the MXBeans cannot be registered, for instance because the name is taken
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String quoted = ObjectName.quote(name);
+        List<ObjectName> names = new ArrayList<>();
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=LibraryMetrics,name=" + quoted), new LibraryBean(), names);
+            for (Operation operation : Operation.values()) {
+                register(server, new ObjectName(DOMAIN + ":type=LibraryMetrics,name=" + quoted
+                    + ",operation=" + operation.getMethodName()), new OperationBean(operation), names);
+            }
+        } catch (JMException e) {
+            unregister(server, names);
+            throw new IllegalStateException("Could not register the metrics of library " + name, e);
+        }
+        registeredNames.addAll(names);
+    }
+
+    /**
+     * Removes the MXBeans added by {@link #registerMBeans(String)}, if any.
+     */
+    public synchronized void unregisterMBeans() {
+        unregister(ManagementFactory.getPlatformMBeanServer(), registeredNames);
+        registeredNames.clear();
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object bean, List<ObjectName> names)
+            throws JMException {
+        server.registerMBean(bean, name);
+        names.add(name);
+    }
+
+    private static void unregister(MBeanServer server, List<ObjectName> names) {
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already unregistered by someone else.
+            }
+        }
+    }
+
+    /**
+     * The values of all metrics at some point.
+     *
+     * @param operations     the counts and latencies of each operation
+     * @param failuresByType the number of failures by simple name of the exception type, sorted by name
+     * @param indexSizes     the number of entries in each index, by index name
+     */
+    public record Snapshot(Map<Operation, OperationSnapshot> operations, Map<String, Long> failuresByType,
+                           Map<String, Long> indexSizes) {
+
+        /**
+         * Returns the values of one operation.
+         *
+         * @param operation the operation
+         * @return its counts and latencies
+         */
+        public OperationSnapshot operation(Operation operation) {
+            return operations.get(operation);
+        }
+    }
+
+    /**
+     * The values of the metrics of one operation at some point.
+     *
+     * @param count    the number of calls, failed or not
+     * @param failures the number of failed calls
+     * @param latency  the latencies of all calls
+     */
+    public record OperationSnapshot(long count, long failures, LatencyHistogram.Snapshot latency) {
+    }
+
+    /**
+     * Management interface of the library-wide metrics.
+     */
+    public interface LibraryMetricsMXBean {
+        /**
+         * Returns the number of failures by simple name of the exception type.
+         *
+         * @return the failure counts
+         */
+        Map<String, Long> getFailuresByType();
+
+        /**
+         * Returns the number of entries in each index, by index name.
+         *
+         * @return the index sizes
+         */
+        Map<String, Long> getIndexSizes();
+    }
+
+    /**
+     * Management interface of the metrics of one operation. Every latency is in nanoseconds.
+     */
+    public interface OperationMetricsMXBean {
+        /** @return the number of calls */
+        long getCount();
+
+        /** @return the number of failed calls */
+        long getFailureCount();
+
+        /** @return the mean latency */
+        double getMeanNanos();
+
+        /** @return the median latency */
+        long getP50Nanos();
+
+        /** @return the 90th percentile latency */
+        long getP90Nanos();
+
+        /** @return the 99th percentile latency */
+        long getP99Nanos();
+
+        /** @return the 99.9th percentile latency */
+        long getP999Nanos();
+
+        /** @return the highest latency */
+        long getMaxNanos();
+    }
+
+    private final class LibraryBean implements LibraryMetricsMXBean {
+        @Override
+        public Map<String, Long> getFailuresByType() {
+            return readFailuresByType();
+        }
+
+        @Override
+        public Map<String, Long> getIndexSizes() {
+            return readIndexSizes();
+        }
+    }
+
+    private final class OperationBean implements OperationMetricsMXBean {
+        private final Operation operation;
+
+        OperationBean(Operation operation) {
+            this.operation = operation;
+        }
+
+        private LatencyHistogram.Snapshot latency() {
+            return latencies.get(operation).snapshot();
+        }
+
+        @Override
+        public long getCount() {
+            return latency().getCount();
+        }
+
+        @Override
+        public long getFailureCount() {
+            return failures.get(operation).sum();
+        }
+
+        @Override
+        public double getMeanNanos() {
+            return latency().getMean();
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return latency().getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getP90Nanos() {
+            return latency().getValueAtPercentile(90);
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return latency().getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return latency().getValueAtPercentile(99.9);
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return latency().getMax();
+        }
+    }
+}
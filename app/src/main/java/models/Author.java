@@ -1,6 +1,12 @@
 package models;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import static utils.StringUtils.normalize;
 
 /**
  * Represents an author with a name.
@@ -8,20 +14,42 @@ import java.util.List;
  * This class encapsulates the author's name and provides methods to access it.
  * </p>
  *
+ * <p>
+ * The author's bibliography is an insertion-ordered set of copies, so adding a copy and
+ * checking for duplicates take constant time. Alongside it, the author keeps the number of
+ * copies of each title, keyed by normalized title, so questions such as how many copies or
+ * how many distinct titles the author has are answered without walking the bibliography.
+ * Once the author's copies are registered in a {@link Library}, the number of them and the
+ * number on loan are kept up to date as they are registered, borrowed and returned.
+ * </p>
+ *
+ * <p>
+ * The library adds copies under its registration lock while other threads may be reading the
+ * bibliography, so the set is guarded by its own monitor and {@link #getBooks()} returns a copy.
+ * </p>
+ *
  */
 public class Author {
 
     private String name;
-    private List<Book> books;
+    private String normalizedName;
+    private int id = -1;
+    private Set<Book> books;
+    private Map<String, Integer> copiesByTitle;
+    private final LongAdder registeredCopies = new LongAdder();
+    private final LongAdder borrowedCopies = new LongAdder();
 
     /**
-     * Constructs a new Author with the specified name and initializes the list of books.
+     * Constructs a new Author with the specified name and initializes the set of books.
+     * The normalized form of the name is computed once here.
      *
      * @param name the name of the author
      */
     public Author(String name) {
         this.name = name;
-        this.books = new ArrayList<>();
+        this.normalizedName = normalize(name);
+        this.books = new LinkedHashSet<>();
+        this.copiesByTitle = new ConcurrentHashMap<>();
     }
 
     /**
@@ -34,25 +62,156 @@ public class Author {
     }
 
     /**
-     * Adds a book to this author's list of books.
+     * Returns the name of the author without accents and in lowercase,
+     * as produced by {@link utils.StringUtils#normalize(String)}.
+     *
+     * @return the author's normalized name
+     */
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    /**
+     * Adds a book to this author's set of books, unless that very copy is already in it.
      *
      * @param book the book to be added
      */
     public void addBook(Book book) {
-        if (book != null && !books.contains(book)) {
-            books.add(book);
+        if (book == null) {
+            return;
+        }
+        boolean added;
+        synchronized (books) {
+            added = books.add(book);
+        }
+        if (added) {
+            copiesByTitle.merge(book.getNormalizedTitle(), 1, Integer::sum);
         }
     }
 
     /**
-     * Returns an unmodifiable list of books written by the author.
+     * Adds several books to this author's set of books, skipping those already in it.
      *
-     * @return list of books
+     * @param newBooks the books to be added
      */
-    public List<Book> getBooks() {
-        return books;
+    public void addBooks(Collection<Book> newBooks) {
+        for (Book book : newBooks) {
+            addBook(book);
+        }
+    }
+
+    /**
+     * Returns the books written by the author, in the order they were added.
+     * The set is an unmodifiable copy, so it can be iterated while copies are being registered.
+     *
+     * @return set of books
+     */
+    public Set<Book> getBooks() {
+        synchronized (books) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(books));
+        }
+    }
+
+    /**
+     * Returns how many copies by this author have been added, counting every copy of a title,
+     * whether or not it is registered in a library.
+     *
+     * @return the number of copies
+     */
+    public int getCopyCount() {
+        synchronized (books) {
+            return books.size();
+        }
+    }
+
+    /**
+     * Returns how many of this author's copies are registered in a library.
+     *
+     * @return the number of registered copies
+     */
+    public long getRegisteredCopyCount() {
+        return registeredCopies.sum();
+    }
+
+    /**
+     * Returns how many distinct titles, compared by normalized title, this author has.
+     *
+     * @return the number of distinct titles
+     */
+    public int getTitleCount() {
+        return copiesByTitle.size();
+    }
+
+    /**
+     * Returns how many copies of the given title by this author have been added.
+     * The title is compared after normalization, like every title lookup in the library.
+     *
+     * @param title the title of the book
+     * @return the number of copies of that title, or {@code 0} if the author has none
+     */
+    public int getCopyCount(String title) {
+        return copiesByTitle.getOrDefault(normalize(title), 0);
     }
         
+    /**
+     * Returns how many of this author's copies registered in a library are currently borrowed.
+     *
+     * @return the number of borrowed copies
+     */
+    public long getBorrowedCopyCount() {
+        return borrowedCopies.sum();
+    }
+
+    /**
+     * Returns how many of this author's copies registered in a library are not currently borrowed.
+     *
+     * @return the number of available copies
+     */
+    public long getAvailableCopyCount() {
+        return getRegisteredCopyCount() - getBorrowedCopyCount();
+    }
+
+    /**
+     * Records that one of this author's copies was registered in a library. Called by {@link TitleCopies}.
+     */
+    void copyRegistered() {
+        registeredCopies.increment();
+    }
+
+    /**
+     * Records that one of this author's registered copies was borrowed. Called by {@link TitleCopies}.
+     */
+    void copyBorrowed() {
+        borrowedCopies.increment();
+    }
+
+    /**
+     * Records that one of this author's registered copies was returned. Called by {@link TitleCopies}.
+     */
+    void copyReturned() {
+        borrowedCopies.decrement();
+    }
+
+    /**
+     * Returns the identifier the library assigned to this author when it was registered.
+     * Identifiers are consecutive from {@code 0} in registration order and are used to refer
+     * to the author when the library is persisted.
+     *
+     * @return the identifier of this author, or {@code -1} if it has not been registered
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier of this author. Called by the library on registration.
+     *
+     * @param id the identifier assigned by the library
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns a string representation of the Author object.
      * In this case, it returns the author's name.
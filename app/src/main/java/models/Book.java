@@ -1,7 +1,13 @@
 package models;
+import exceptions.BookNotAvailableException;
 import interfaces.Borrowable;
 import interfaces.Returnable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import utils.Messages;
 import static utils.Messages.*;
+import static utils.StringUtils.normalize;
 
 
 /**
@@ -13,24 +19,59 @@ import static utils.Messages.*;
  * borrowed and returned by users.
  * </p>
  *
+ * <p>
+ * The loan state of a copy is a single state word, the borrowing user, which is {@code null}
+ * while the copy is available. Borrowing and returning change it with a compare-and-set, so
+ * when several threads try to take the same copy exactly one of them succeeds and the others
+ * learn it immediately, without any lock.
+ * </p>
+ *
  */
 public class Book implements Borrowable, Returnable{
+    private static final VarHandle BORROWED_BY;
+
+    static {
+        try {
+            BORROWED_BY = MethodHandles.lookup().findVarHandle(Book.class, "borrowedBy", User.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String title;
+    private String normalizedTitle;
     private Author author;
-    private BookStatus status;
-    private User borrowedBy;
+    private int id = -1;
+    private volatile User borrowedBy;
+    private TitleCopies copies;
+    private int loanSlot = -1;
 
     /**
      * Constructs a new Book with the specified title and author.
      * The book's status is set to AVAILABLE and it is not borrowed by any user.
+     * The normalized form of the title is computed once here and reused by every title lookup.
      *
      * @param title  the title of the book
      * @param author the author of the book
      */
     public Book(String title, Author author) {
         this.title = title;
+        this.normalizedTitle = normalize(title);
         this.author = author;
-        this.status = BookStatus.AVAILABLE;
+        this.borrowedBy = null;
+    }
+
+    /**
+     * Constructs another copy of the same title as the given book, by the same author.
+     * The new copy is available, and shares the title and its normalized form with the
+     * original, so adding many copies of a title does not normalize it again for each one.
+     *
+     * @param original a copy of the title
+     */
+    public Book(Book original) {
+        this.title = original.title;
+        this.normalizedTitle = original.normalizedTitle;
+        this.author = original.author;
         this.borrowedBy = null;
     }
 
@@ -43,6 +84,16 @@ public class Book implements Borrowable, Returnable{
         return title;
     }
 
+    /**
+     * Returns the title of the book without accents and in lowercase,
+     * as produced by {@link utils.StringUtils#normalize(String)}.
+     *
+     * @return the normalized title of the book
+     */
+    public String getNormalizedTitle() {
+        return normalizedTitle;
+    }
+
     /**
      * Returns the author of the book.
      *
@@ -58,7 +109,7 @@ public class Book implements Borrowable, Returnable{
      * @return the {@link BookStatus} representing the book's status
      */
     public BookStatus getStatus() {
-        return status;
+        return borrowedBy == null ? BookStatus.AVAILABLE : BookStatus.BORROWED;
     }
 
     /**
@@ -67,26 +118,68 @@ public class Book implements Borrowable, Returnable{
      * @return {@code true} if the book's status is {@link BookStatus#AVAILABLE}, {@code false} otherwise.
      */
     public boolean isAvailable() {
-        return status == BookStatus.AVAILABLE;
+        return borrowedBy == null;
     }
     
     /**
      * Marks the book as borrowed and assigns the specified user as the borrower.
      *
      * @param user the user who is borrowing the book
+     * @throws BookNotAvailableException if the book is already borrowed
      */
     public void borrow(User user) {
-        this.status = BookStatus.BORROWED;
-        this.borrowedBy = user;
+        if (!tryBorrow(user)) {
+            throw new BookNotAvailableException(title, Messages::bookNotAvailable);
+        }
+    }
+
+    /**
+     * Atomically marks the book as borrowed by the specified user, if it is available.
+     * If the book is registered in a library, its title's count of available copies is updated.
+     *
+     * @param user the user who is borrowing the book
+     * @return {@code true} if the book was available and is now borrowed by the user,
+     *         {@code false} if another user already holds it
+     */
+    public boolean tryBorrow(User user) {
+        Objects.requireNonNull(user, "user");
+        if (!BORROWED_BY.compareAndSet(this, null, user)) {
+            return false;
+        }
+        if (copies != null) {
+            copies.copyBorrowed(this);
+        }
+        return true;
     }
 
     /**
      * Marks the book as available and clears the borrower information.
      * This method should be called when a borrowed book is returned to the library.
+     * Returning a book that is not borrowed has no effect.
      */
     public void returnBook(){
-        this.status = BookStatus.AVAILABLE;
-        this.borrowedBy = null;
+        tryReturn();
+    }
+
+    /**
+     * Atomically marks the book as available, if it is borrowed.
+     * If the book is registered in a library, it is put back on its title's free-list.
+     *
+     * @return {@code true} if the book was borrowed and is now available,
+     *         {@code false} if it was already available
+     */
+    public boolean tryReturn() {
+        User current;
+        do {
+            current = borrowedBy;
+            if (current == null) {
+                return false;
+            }
+        } while (!BORROWED_BY.compareAndSet(this, current, null));
+        if (copies != null) {
+            copies.copyReturned(this);
+        }
+        return true;
     }
 
     /**
@@ -98,6 +191,63 @@ public class Book implements Borrowable, Returnable{
         return borrowedBy;
     }
 
+    /**
+     * Associates this book with the group of copies it was registered under.
+     *
+     * @param copies the {@link TitleCopies} this book belongs to
+     */
+    void setCopies(TitleCopies copies) {
+        this.copies = copies;
+    }
+
+    /**
+     * Returns the group of copies this book was registered under.
+     *
+     * @return the {@link TitleCopies} of this book, or {@code null} if it is not registered
+     */
+    TitleCopies getCopies() {
+        return copies;
+    }
+
+    /**
+     * Returns the position of this book among the loans of its borrower, as kept by {@link User}.
+     * Only meaningful while the borrower's loan lock is held.
+     *
+     * @return the slot of this book in its borrower's loans, or {@code -1} if it is on no user's loans
+     */
+    int getLoanSlot() {
+        return loanSlot;
+    }
+
+    /**
+     * Records the position of this book among the loans of its borrower. Called by {@link User}
+     * under the borrower's loan lock.
+     *
+     * @param loanSlot the slot of this book, or {@code -1} once it leaves the loans
+     */
+    void setLoanSlot(int loanSlot) {
+        this.loanSlot = loanSlot;
+    }
+
+    /**
+     * Returns the identifier the library assigned to this book when it was registered.
+     * Identifiers are consecutive from {@code 0} in registration order and are used to refer
+     * to the book when the library is persisted.
+     *
+     * @return the identifier of this book, or {@code -1} if it has not been registered
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier of this book. Called by the library on registration.
+     *
+     * @param id the identifier assigned by the library
+     */
+    void setId(int id) {
+        this.id = id;
+    }
 
     /**
      * Returns a string representation of the Book object by delegating to the
@@ -0,0 +1,99 @@
+package models;
+
+/**
+ * Outcome of {@link Library#tryBorrowBook(String, String)} or {@link Library#tryReturnBook(String)}.
+ * <p>
+ * These methods report an expected failure, such as every copy of a title being out, through
+ * a result instead of an exception. Failures carry nothing but their {@link Status}, so each one
+ * is a shared constant and reporting it allocates nothing. A success carries the copy that was
+ * borrowed or returned.
+ * </p>
+ */
+public final class BorrowResult {
+
+    /**
+     * The possible outcomes of borrowing or returning a book.
+     */
+    public enum Status {
+        /** The user now holds a copy of the title. */
+        BORROWED,
+        /** The user gave back the copy they held. */
+        RETURNED,
+        /** No user is registered under the given name. */
+        USER_NOT_FOUND,
+        /** No copy of the given title is registered. */
+        BOOK_NOT_FOUND,
+        /** Every copy of the title is borrowed. */
+        BOOK_NOT_AVAILABLE,
+        /** The user already holds as many books as their loan limit allows. */
+        USER_HAS_BOOK,
+        /** The user holds no book to return, or not the requested one. */
+        USER_HAS_NO_BOOK
+    }
+
+    static final BorrowResult USER_NOT_FOUND = new BorrowResult(Status.USER_NOT_FOUND, null);
+    static final BorrowResult BOOK_NOT_FOUND = new BorrowResult(Status.BOOK_NOT_FOUND, null);
+    static final BorrowResult BOOK_NOT_AVAILABLE = new BorrowResult(Status.BOOK_NOT_AVAILABLE, null);
+    static final BorrowResult USER_HAS_BOOK = new BorrowResult(Status.USER_HAS_BOOK, null);
+    static final BorrowResult USER_HAS_NO_BOOK = new BorrowResult(Status.USER_HAS_NO_BOOK, null);
+
+    private final Status status;
+    private final Book book;
+
+    private BorrowResult(Status status, Book book) {
+        this.status = status;
+        this.book = book;
+    }
+
+    /**
+     * Returns the result of a successful borrow.
+     *
+     * @param book the copy lent to the user
+     * @return a {@link Status#BORROWED} result
+     */
+    static BorrowResult borrowed(Book book) {
+        return new BorrowResult(Status.BORROWED, book);
+    }
+
+    /**
+     * Returns the result of a successful return.
+     *
+     * @param book the copy given back by the user
+     * @return a {@link Status#RETURNED} result
+     */
+    static BorrowResult returned(Book book) {
+        return new BorrowResult(Status.RETURNED, book);
+    }
+
+    /**
+     * Returns the outcome of the operation.
+     *
+     * @return the status of this result
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the book was borrowed or returned.
+     *
+     * @return {@code true} if the status is {@link Status#BORROWED} or {@link Status#RETURNED}
+     */
+    public boolean isSuccess() {
+        return book != null;
+    }
+
+    /**
+     * Returns the copy that was borrowed or returned.
+     *
+     * @return the copy, or {@code null} if the operation failed
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    @Override
+    public String toString() {
+        return book == null ? status.toString() : status + " " + book.getTitle();
+    }
+}
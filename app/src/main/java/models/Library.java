@@ -1,12 +1,38 @@
 package models;
 import static utils.StringUtils.normalize;
 import static utils.Messages.*;
+import events.LibraryEvent;
+import events.LibraryEventListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
 import exceptions.BookNotAvailableException;
 import exceptions.BookNotFoundException;
+import exceptions.DuplicateUserException;
+import exceptions.UserHasBookException;
 import exceptions.UserHasNoBookException;
 import exceptions.UserNotFoundException;
+import jfr.BorrowEvent;
+import jfr.LookupEvent;
+import jfr.ReturnEvent;
+import metrics.LibraryMetrics;
+import metrics.LibraryMetrics.Operation;
+import search.SearchIndex;
 import utils.Messages;
 
 
@@ -24,236 +50,1420 @@ import utils.Messages;
  * <ul>
  *   <li>Registering books, authors, and users</li>
  *   <li>Borrowing and returning books</li>
+ *   <li>Placing holds on titles whose copies are all borrowed</li>
  *   <li>Retrieving summaries and lists of books and authors</li>
  *   <li>Validating user and book availability during operations</li>
  * </ul>
  * </p>
  *
  * <p>
+ * A {@code Library} is safe to use from several threads at once. Registrations and
+ * catalog-wide reads share a read/write lock, while borrowing and returning only lock
+ * the user involved. Copies are reserved with an atomic compare-and-set on the book,
+ * so threads competing for a popular title never queue on a lock: a thread that loses
+ * a copy simply retries with the next free one, and two threads racing for the last
+ * copy can never both win.
+ * </p>
+ *
+ * <p>
+ * The event listener is called while the operation still holds its locks, so the events
+ * about a given copy or user reach the listener in the order the changes happened. A
+ * registration is reported before the new entities become visible to lookups, so no borrow
+ * of a copy or by a user can be reported before its registration, and a registration the
+ * listener rejects with an exception leaves the library unchanged. A return is reported just
+ * before the copy is released, and a borrow whose event the listener rejects is undone. A
+ * listener that makes changes durable, such as a journal, therefore sees a consistent history
+ * and can veto a change.
+ * </p>
+ *
+ * <p>
+ * A user who finds every copy of a title borrowed can place a hold on it instead of retrying.
+ * Holds are served in the order they were placed: a returned or newly registered copy goes to
+ * the first waiting user, and while anyone is waiting, {@link #borrowBook(String, String)} leaves
+ * the title's copies to them. Holds live in memory only and are not reported to the listener;
+ * the loans they lead to are reported like any other borrow.
+ * </p>
+ *
+ * <p>
+ * Borrowing, returning, looking users up and registering books can be timed and counted by
+ * {@link LibraryMetrics}, enabled with {@link #enableMetrics()}. While metrics are disabled, which
+ * is the default, these operations only pay for reading one field. Borrows, returns and lookups
+ * also emit Flight Recorder events from the {@code jfr} package, which cost nothing while no
+ * recording is running and are only recorded when slower than their threshold.
+ * </p>
+ *
+ * <p>
  * This class assumes the existence of supporting classes such as {@code Book},
  * {@code User}, {@code Author}, and custom exceptions for error handling.
  * </p>
  *
  */
 public class Library {
+    private static final int SUMMARY_BATCH_SIZE = 1024;
 
-    private List<Book> books;
-    private List<User> users;
-    private List<Author> authors;
+    private ArrayList<Book> books;
+    private ArrayList<User> users;
+    private ArrayList<Author> authors;
+    private Map<String, TitleCopies> titleIndex;
+    private Map<String, User> userIndex;
+    private final ReadWriteLock registryLock = new ReentrantReadWriteLock();
+    private volatile LibraryEventListener listener;
+    private final LibraryStats stats = new LibraryStats();
+    private final SearchIndex<TitleCopies> searchIndex = new SearchIndex<>();
+    private volatile LibraryMetrics metrics;
 
     /**
      * Constructs a new Library instance with empty lists for books, users, and authors.
      * Initializes the internal collections to ensure the library starts with no data.
+     * Events are discarded; use {@link #Library(LibraryEventListener)} to observe them.
      */
     public Library() {
+        this(LibraryEventListener.noOp());
+    }
+
+    /**
+     * Constructs a new, empty Library that reports registrations, borrows and returns
+     * to the given listener.
+     *
+     * @param listener the listener notified of every change to the library
+     */
+    public Library(LibraryEventListener listener) {
+        this.listener = listener;
         this.books = new ArrayList<>();
         this.users = new ArrayList<>();
         this.authors = new ArrayList<>();
+        this.titleIndex = new ConcurrentHashMap<>();
+        this.userIndex = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Replaces the listener notified of changes to the library.
+     * This lets a library that was just loaded from storage start reporting changes only
+     * once it is fully rebuilt, so that loading it is not mistaken for new registrations.
+     *
+     * @param listener the listener notified of every change to the library
+     */
+    public void setEventListener(LibraryEventListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts timing and counting the hot operations of the library, if not started already.
+     * The metrics also track the sizes of the title and user indexes and the numbers of copies and authors.
+     *
+     * @return the metrics of this library
+     */
+    public LibraryMetrics enableMetrics() {
+        registryLock.writeLock().lock();
+        try {
+            if (metrics == null) {
+                Map<String, LongSupplier> indexSizes = new LinkedHashMap<>();
+                indexSizes.put("titles", titleIndex::size);
+                indexSizes.put("users", userIndex::size);
+                indexSizes.put("copies", stats::getCopyCount);
+                indexSizes.put("authors", stats::getAuthorCount);
+                metrics = new LibraryMetrics(indexSizes);
+            }
+            return metrics;
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops timing and counting operations. The metrics gathered so far stay readable from the
+     * instance returned by {@link #enableMetrics()}, and enabling metrics again starts from zero.
+     */
+    public void disableMetrics() {
+        registryLock.writeLock().lock();
+        try {
+            metrics = null;
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the metrics of this library.
+     *
+     * @return the metrics, or {@code null} if they are disabled
+     */
+    public LibraryMetrics getMetrics() {
+        return metrics;
     }
 
     /**
      * Registers a new book in the library by adding it to the collection of books.
-     * Prints a confirmation message after the book is registered.
+     * The book is also added to the title index under its normalized title, so that
+     * later lookups by title only visit the copies of that title.
+     * Notifies the listener before the copy becomes visible, so that a listener that throws
+     * leaves the library unchanged, then lends the copy to the first user holding the title, if any.
      *
      * @param book the Book object to be registered in the library
      */
     public void registerBook(Book book) {
-        book.getAuthor().addBook(book);
-        books.add(book);
-        System.out.println(bookRegistered(book));
+        LibraryMetrics metrics = this.metrics;
+        if (metrics == null) {
+            addBook(book);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            addBook(book);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.REGISTER_BOOK, start, e.getClass());
+            throw e;
+        }
+        metrics.recordSuccess(Operation.REGISTER_BOOK, start);
+    }
+
+    /**
+     * Registers a book as described by {@link #registerBook(Book)}, without metrics.
+     */
+    private void addBook(Book book) {
+        TitleCopies copies;
+        registryLock.writeLock().lock();
+        try {
+            book.setId(books.size());
+            try {
+                listener.onEvent(new LibraryEvent.BookRegistered(book));
+            } catch (RuntimeException e) {
+                book.setId(-1);
+                throw e;
+            }
+            book.getAuthor().addBook(book);
+            books.add(book);
+            copies = addToTitleIndex(book);
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+        if (copies.hasHolds()) {
+            serveHolds(copies);
+        }
+    }
+
+    /**
+     * Registers many books at once, as when loading a whole catalog.
+     * <p>
+     * The books are added exactly as {@link #registerBook(Book)} would add them, but the
+     * registration lock is taken once, the internal list is grown once to fit them all, each
+     * author receives its new books in a single call, and the listener is notified with a
+     * single {@link LibraryEvent.BooksRegistered} event instead of one event per copy.
+     * </p>
+     *
+     * @param newBooks the books to be registered, in registration order
+     */
+    public void registerBooks(Collection<Book> newBooks) {
+        LibraryMetrics metrics = this.metrics;
+        if (metrics == null) {
+            addBooks(newBooks);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            addBooks(newBooks);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.REGISTER_BOOKS, start, e.getClass());
+            throw e;
+        }
+        metrics.recordSuccess(Operation.REGISTER_BOOKS, start);
+    }
+
+    /**
+     * Registers books as described by {@link #registerBooks(Collection)}, without metrics.
+     */
+    private void addBooks(Collection<Book> newBooks) {
+        List<Book> registered = List.copyOf(newBooks);
+        Set<TitleCopies> held = new LinkedHashSet<>();
+        registryLock.writeLock().lock();
+        try {
+            int nextId = books.size();
+            for (Book book : registered) {
+                book.setId(nextId++);
+            }
+            try {
+                listener.onEvent(new LibraryEvent.BooksRegistered(registered));
+            } catch (RuntimeException e) {
+                registered.forEach(book -> book.setId(-1));
+                throw e;
+            }
+            Map<Author, List<Book>> booksByAuthor = new IdentityHashMap<>();
+            books.ensureCapacity(books.size() + registered.size());
+            for (Book book : registered) {
+                booksByAuthor.computeIfAbsent(book.getAuthor(), author -> new ArrayList<>()).add(book);
+                books.add(book);
+                TitleCopies copies = addToTitleIndex(book);
+                if (copies.hasHolds()) {
+                    held.add(copies);
+                }
+            }
+            booksByAuthor.forEach(Author::addBooks);
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+        held.forEach(this::serveHolds);
+    }
+
+    /**
+     * Adds a copy to the group of its title, creating the group and making the title searchable
+     * by its title and its author's name if it is the first copy. Called under the registration lock.
+     *
+     * @param book the copy being registered
+     * @return the group the copy was added to
+     */
+    private TitleCopies addToTitleIndex(Book book) {
+        TitleCopies copies = titleIndex.get(book.getNormalizedTitle());
+        if (copies == null) {
+            copies = new TitleCopies(book.getTitle(), stats);
+            titleIndex.put(book.getNormalizedTitle(), copies);
+            searchIndex.add(book.getTitle(), copies);
+            searchIndex.add(book.getAuthor().getName(), copies);
+        }
+        copies.add(book);
+        return copies;
     }
 
     /**
      * Registers a new author in the library system.
-     * Adds the specified Author object to the list of authors and prints a confirmation message.
+     * Notifies the listener, then adds the specified Author object to the list of authors.
      *
      * @param author the Author object to be registered
      */
     public void registerAuthor(Author author) {
-        authors.add(author);
-        System.out.println(authorRegistered(author));
+        registryLock.writeLock().lock();
+        try {
+            author.setId(authors.size());
+            try {
+                listener.onEvent(new LibraryEvent.AuthorRegistered(author));
+            } catch (RuntimeException e) {
+                author.setId(-1);
+                throw e;
+            }
+            authors.add(author);
+            stats.authorRegistered();
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers many authors at once, taking the registration lock once and notifying the listener
+     * with a single {@link LibraryEvent.AuthorsRegistered} event.
+     *
+     * @param newAuthors the authors to be registered
+     */
+    public void registerAuthors(Collection<Author> newAuthors) {
+        List<Author> registered = List.copyOf(newAuthors);
+        registryLock.writeLock().lock();
+        try {
+            int nextId = authors.size();
+            for (Author author : registered) {
+                author.setId(nextId++);
+            }
+            try {
+                listener.onEvent(new LibraryEvent.AuthorsRegistered(registered));
+            } catch (RuntimeException e) {
+                registered.forEach(author -> author.setId(-1));
+                throw e;
+            }
+            authors.addAll(registered);
+            registered.forEach(author -> stats.authorRegistered());
+        } finally {
+            registryLock.writeLock().unlock();
+        }
     }
 
     /**
      * Registers a new user in the library system.
-     * Adds the specified user to the list of users and prints a confirmation message.
+     * Notifies the listener, then adds the specified user to the list of users and to the name index.
      *
      * @param user The User object to be registered.
+     * @throws DuplicateUserException if a user with the same normalized name is already registered
      */
     public void registerUser(User user) {
-        users.add(user);
-        System.out.println(userRegistered(user));
+        registryLock.writeLock().lock();
+        try {
+            if (userIndex.containsKey(user.getNormalizedName())) {
+                throw new DuplicateUserException(user.getName(), Messages::userAlreadyRegistered);
+            }
+            user.setId(users.size());
+            try {
+                listener.onEvent(new LibraryEvent.UserRegistered(user));
+            } catch (RuntimeException e) {
+                user.setId(-1);
+                throw e;
+            }
+            users.add(user);
+            userIndex.put(user.getNormalizedName(), user);
+            stats.userRegistered(user);
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers many users at once, taking the registration lock once and notifying the listener
+     * with a single {@link LibraryEvent.UsersRegistered} event.
+     * The names are all checked before any user is registered, so a rejected batch leaves the library unchanged.
+     *
+     * @param newUsers the users to be registered
+     * @throws DuplicateUserException if a name is already registered or appears twice in the batch
+     */
+    public void registerUsers(Collection<User> newUsers) {
+        List<User> registered = List.copyOf(newUsers);
+        registryLock.writeLock().lock();
+        try {
+            Set<String> names = new HashSet<>();
+            for (User user : registered) {
+                if (userIndex.containsKey(user.getNormalizedName()) || !names.add(user.getNormalizedName())) {
+                    throw new DuplicateUserException(user.getName(), Messages::userAlreadyRegistered);
+                }
+            }
+            int nextId = users.size();
+            for (User user : registered) {
+                user.setId(nextId++);
+            }
+            try {
+                listener.onEvent(new LibraryEvent.UsersRegistered(registered));
+            } catch (RuntimeException e) {
+                registered.forEach(user -> user.setId(-1));
+                throw e;
+            }
+            users.ensureCapacity(users.size() + registered.size());
+            for (User user : registered) {
+                users.add(user);
+                userIndex.put(user.getNormalizedName(), user);
+                stats.userRegistered(user);
+            }
+        } finally {
+            registryLock.writeLock().unlock();
+        }
     }
     
     /**
      * Allows a user to borrow a book from the library by specifying the book's title and the user's name.
      * <p>
-     * This method checks if the specified book exists in the library. If the book does not exist,
-     * a {@link BookNotFoundException} is thrown. If the book exists, it retrieves the corresponding
-     * {@link Book} and {@link User} objects and processes the borrowing operation.
+     * This method looks the title up in the title index. If the book does not exist,
+     * a {@link BookNotFoundException} is thrown. If the book exists, it validates the corresponding
+     * {@link User} before taking an available copy off the title's free-list, so a rejected user
+     * never removes a copy from circulation, and then processes the borrowing operation.
+     * </p>
+     * <p>
+     * The user is locked for the whole operation so that the check and the loan happen atomically.
+     * The copy itself is reserved without locking, see {@link #reserveCopy(TitleCopies, User)}.
+     * Callers for whom a failure is a normal outcome should use {@link #tryBorrowBook(String, String)},
+     * which reports it without throwing, and callers willing to wait for a copy should use
+     * {@link #placeHold(String, String)}. While users hold the title, its copies are left to them
+     * and the book is reported as not available.
      * </p>
      *
      * @param bookTitle the title of the book to be borrowed
      * @param userName the name of the user borrowing the book
+     * @throws UserNotFoundException if the user is not registered
      * @throws BookNotFoundException if the specified book does not exist in the library
+     * @throws UserHasBookException if the user holds as many books as their loan limit allows
+     * @throws BookNotAvailableException if every copy of the book is borrowed or held for other users
      */
     public void borrowBook(String bookTitle, String userName) {
- 
-        User user = findUserByName(userName);
+        BorrowResult result = tryBorrowBook(bookTitle, userName);
+        if (!result.isSuccess()) {
+            throw failure(result, bookTitle, userName);
+        }
+    }
+
+    /**
+     * Lends an available copy of a title to a user, reporting the outcome as a result instead of
+     * throwing when the user or the title is unknown, the user has reached their loan limit, or no copy is free.
+     * <p>
+     * It behaves exactly like {@link #borrowBook(String, String)}, but a failed attempt returns
+     * a shared constant and allocates nothing. An exception thrown by the event listener still
+     * propagates, and the loan is undone.
+     * </p>
+     *
+     * @param bookTitle the title of the book to be borrowed
+     * @param userName the name of the user borrowing the book
+     * @return a {@link BorrowResult.Status#BORROWED} result holding the copy, or the reason of the failure
+     */
+    public BorrowResult tryBorrowBook(String bookTitle, String userName) {
+        BorrowEvent event = BorrowEvent.start();
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        BorrowResult result;
+        try {
+            result = lend(bookTitle, userName, event);
+        } catch (RuntimeException e) {
+            if (metrics != null) {
+                metrics.recordFailure(Operation.BORROW_BOOK, start, e.getClass());
+            }
+            if (event != null) {
+                event.commit(bookTitle, userName, e.getClass().getSimpleName());
+            }
+            throw e;
+        }
+        if (metrics != null) {
+            record(metrics, Operation.BORROW_BOOK, start, result);
+        }
+        if (event != null) {
+            event.commit(bookTitle, userName, result.getStatus().name());
+        }
+        return result;
+    }
+
+    /**
+     * Lends a copy as described by {@link #tryBorrowBook(String, String)}, without metrics,
+     * counting the copies it scans in the event if it is recorded.
+     */
+    private BorrowResult lend(String bookTitle, String userName, BorrowEvent event) {
+        User user = userIndex.get(normalize(userName));
+        if (user == null) {
+            return BorrowResult.USER_NOT_FOUND;
+        }
+        TitleCopies copies = findCopies(bookTitle);
+        if (copies == null) {
+            return BorrowResult.BOOK_NOT_FOUND;
+        }
+        if (copies.hasHolds()) {
+            return BorrowResult.BOOK_NOT_AVAILABLE;
+        }
+        Book book;
+        RuntimeException rejected = null;
+        user.getLoanLock().lock();
+        try {
+            if (user.hasReachedLoanLimit()) {
+                return BorrowResult.USER_HAS_BOOK;
+            }
+            book = reserveCopy(copies, user, event);
+            if (book == null) {
+                return BorrowResult.BOOK_NOT_AVAILABLE;
+            }
+            processBorrow(book, user);
+            try {
+                listener.onEvent(new LibraryEvent.BookBorrowed(book, user));
+            } catch (RuntimeException e) {
+                user.returnBook(book);
+                book.tryReturn();
+                stats.loanEnded();
+                rejected = e;
+            }
+        } finally {
+            user.getLoanLock().unlock();
+        }
+        if (rejected != null) {
+            // A hold placed while the copy was reserved would otherwise wait for the next return.
+            if (copies.hasHolds()) {
+                serveHolds(copies);
+            }
+            throw rejected;
+        }
+        return BorrowResult.borrowed(book);
+    }
+
+    /**
+     * Places a hold on a title for a user, who gets the next copy of the title that becomes available.
+     * <p>
+     * The hold joins the end of the title's queue, and waiting users are served in that order as
+     * copies are returned or registered. If a copy is available and nobody is waiting, it is lent
+     * right away and the returned future is already complete. Otherwise the caller gets a future
+     * that completes once a copy has been lent to the user, so waiting takes no thread.
+     * </p>
+     * <p>
+     * The future completes exceptionally with a {@link UserHasBookException} if the user holds
+     * as many books as their loan limit allows when their turn comes, or with the listener's exception if it rejects the loan.
+     * Cancelling the future, or completing it exceptionally, for instance through
+     * {@link CompletableFuture#orTimeout}, withdraws the hold. Dependent actions added with the
+     * non-async methods of the future run on the thread that released the copy.
+     * </p>
+     *
+     * @param bookTitle the title of the book to be held
+     * @param userName the name of the user waiting for the book
+     * @return a future completed with the copy lent to the user
+     * @throws UserNotFoundException if the user is not registered
+     * @throws BookNotFoundException if the specified book does not exist in the library
+     * @throws UserHasBookException if the user holds as many books as their loan limit allows
+     */
+    public CompletableFuture<Book> placeHold(String bookTitle, String userName) {
+        User user = requireUser(userName);
+        TitleCopies copies = findCopies(bookTitle);
+        if (copies == null) {
+            throw new BookNotFoundException(bookTitle, Messages::bookNotFound);
+        }
+        TitleCopies.Hold hold = new TitleCopies.Hold(user, new CompletableFuture<>());
+        copies.getHoldLock().lock();
+        try {
+            if (user.hasReachedLoanLimit()) {
+                throw user.loanLimitReached();
+            }
+            copies.addHold(hold);
+        } finally {
+            copies.getHoldLock().unlock();
+        }
+        hold.future().whenComplete((book, failure) -> {
+            if (failure != null) {
+                withdrawHold(copies, hold);
+            }
+        });
+        serveHolds(copies);
+        return hold.future();
+    }
+
+    /**
+     * Returns how many users are waiting for a copy of the specified title.
+     *
+     * @param title the title of the book
+     * @return the number of holds on the title, or {@code 0} if no book with that title is registered
+     */
+    public int getHoldCount(String title) {
+        TitleCopies copies = findCopies(title);
+        return copies == null ? 0 : copies.getHoldCount();
+    }
+
+    /**
+     * Removes a hold from its title's queue, if it is still queued.
+     *
+     * @param copies the title the hold was placed on
+     * @param hold   the hold to be removed
+     */
+    private void withdrawHold(TitleCopies copies, TitleCopies.Hold hold) {
+        copies.getHoldLock().lock();
+        try {
+            copies.removeHold(hold);
+        } finally {
+            copies.getHoldLock().unlock();
+        }
+    }
+
+    /**
+     * Lends available copies of a title to the users holding it, in the order the holds were placed,
+     * until either runs out. Called whenever a copy may have become available to a waiting user.
+     * <p>
+     * The queue is locked while copies are handed out, which orders handoffs with new holds: a hold
+     * is queued before its placer looks for a free copy, and a copy is freed before its returner
+     * looks for a hold, so one of the two always finds the other. The futures are completed once
+     * the locks are released, so that their dependent actions never run under a lock.
+     * </p>
+     *
+     * @param copies the title whose holds are to be served
+     */
+    private void serveHolds(TitleCopies copies) {
+        List<Runnable> completions = new ArrayList<>();
+        copies.getHoldLock().lock();
+        try {
+            TitleCopies.Hold hold;
+            while ((hold = copies.peekHold()) != null && serveHold(copies, hold, completions)) {
+                copies.removeHold(hold);
+            }
+        } finally {
+            copies.getHoldLock().unlock();
+        }
+        completions.forEach(Runnable::run);
+    }
 
-        if (!bookExists(bookTitle)) {
-            throw new BookNotFoundException(bookNotFound(bookTitle));
+    /**
+     * Settles the first hold on a title: lends it a copy, or fails it if its user has reached their loan limit.
+     * Holds that were withdrawn are simply dropped. The caller holds the title's hold lock.
+     *
+     * @param copies      the title the hold was placed on
+     * @param hold        the first hold in the title's queue
+     * @param completions the completions of futures to be run once the locks are released
+     * @return {@code true} if the hold is settled and leaves the queue,
+     *         {@code false} if no copy is available and it keeps waiting
+     */
+    private boolean serveHold(TitleCopies copies, TitleCopies.Hold hold, List<Runnable> completions) {
+        User user = hold.user();
+        CompletableFuture<Book> future = hold.future();
+        if (future.isDone()) {
+            return true;
+        }
+        user.getLoanLock().lock();
+        try {
+            if (user.hasReachedLoanLimit()) {
+                completions.add(() -> future.completeExceptionally(user.loanLimitReached()));
+                return true;
+            }
+            Book book = reserveCopy(copies, user, null);
+            if (book == null) {
+                return false;
+            }
+            processBorrow(book, user);
+            try {
+                listener.onEvent(new LibraryEvent.BookBorrowed(book, user));
+            } catch (RuntimeException e) {
+                user.returnBook(book);
+                book.tryReturn();
+                stats.loanEnded();
+                completions.add(() -> future.completeExceptionally(e));
+                return true;
+            }
+            completions.add(() -> {
+                if (!future.complete(book)) {
+                    endLoan(user, book, null, null);
+                }
+            });
+            return true;
+        } finally {
+            user.getLoanLock().unlock();
         }
-        Book book = findBookByTitle(bookTitle);
+    }
 
-        processBorrow(book, user);
+    /**
+     * Builds the exception that {@link #borrowBook(String, String)} or {@link #returnBook(String)}
+     * throws for a failed result.
+     *
+     * @param result    the failed result
+     * @param bookTitle the title as requested, or {@code null} for a return of any book
+     * @param userName  the name of the user as requested
+     * @return the exception to be thrown
+     */
+    private RuntimeException failure(BorrowResult result, String bookTitle, String userName) {
+        return switch (result.getStatus()) {
+            case USER_NOT_FOUND -> new UserNotFoundException(userName, Messages::userNotFound);
+            case BOOK_NOT_FOUND -> new BookNotFoundException(bookTitle, Messages::bookNotFound);
+            case BOOK_NOT_AVAILABLE -> new BookNotAvailableException(bookTitle, Messages::bookNotAvailable);
+            case USER_HAS_BOOK -> requireUser(userName).loanLimitReached();
+            case USER_HAS_NO_BOOK -> bookTitle == null
+                ? new UserHasNoBookException(requireUser(userName).getName(), Messages::userHasNoBorrowedBook)
+                : new UserHasNoBookException(requireUser(userName).getName(),
+                    name -> Messages.userHasNotBorrowed(name, bookTitle));
+            case BORROWED, RETURNED -> new IllegalArgumentException("not a failure: " + result);
+        };
     }
 
     /**
-     * Checks if a book with the specified title exists in the library.
-     * The comparison is case-insensitive and ignores formatting differences
-     * by normalizing both the stored book titles and the input title.
+     * Records a borrow or return in the metrics, counting a failure under the type of the exception
+     * that {@link #failure} builds for it.
+     */
+    private static void record(LibraryMetrics metrics, Operation operation, long start, BorrowResult result) {
+        switch (result.getStatus()) {
+            case BORROWED, RETURNED -> metrics.recordSuccess(operation, start);
+            case USER_NOT_FOUND -> metrics.recordFailure(operation, start, UserNotFoundException.class);
+            case BOOK_NOT_FOUND -> metrics.recordFailure(operation, start, BookNotFoundException.class);
+            case BOOK_NOT_AVAILABLE -> metrics.recordFailure(operation, start, BookNotAvailableException.class);
+            case USER_HAS_BOOK -> metrics.recordFailure(operation, start, UserHasBookException.class);
+            case USER_HAS_NO_BOOK -> metrics.recordFailure(operation, start, UserHasNoBookException.class);
+        }
+    }
+
+    /**
+     * Looks up the group of copies registered under the specified title.
+     * The comparison is case-insensitive and ignores formatting differences,
+     * since the title index is keyed by the normalized title.
      *
      * @param title the title of the book to search for
-     * @return true if a book with the given title exists, false otherwise
+     * @return the {@link TitleCopies} for the title, or {@code null} if no such book exists
      */
-    private boolean bookExists(String title) {
-        return books.stream()
-            .anyMatch(book -> normalize(book.getTitle()).equals(normalize(title)));
+    private TitleCopies findCopies(String title) {
+        LookupEvent event = LookupEvent.start();
+        TitleCopies copies = titleIndex.get(normalize(title));
+        if (event != null) {
+            event.commit(LookupEvent.TITLE, title, copies == null ? 0 : copies.getCopyCount());
+        }
+        return copies;
     }
     
     /**
      * Processes the borrowing of a book by a user.
      * <p>
-     * This method validates the user, marks the book as borrowed by the user,
-     * updates the user's borrowed book record, and prints a confirmation message.
+     * This method updates the user's borrowed book record once the book has been
+     * reserved for the user. The user is expected to have been validated
+     * already, and the caller holds the user's loan lock.
      *
-     * @param book the {@link Book} to be borrowed
+     * @param book the {@link Book} that was borrowed
      * @param user the {@link User} who is borrowing the book
      */
     private void processBorrow(Book book, User user) {
-        user.validate();
-        book.borrow(user);
-        user.setBorrowedBook(book);
-        System.out.println(bookSuccessfullyBorrowed(book));
+        user.addLoan(book);
+        stats.loanStarted();
     }
 
     /**
-     * Searches for an available book in the library by its title.
-     * The search is case-insensitive and ignores formatting differences by normalizing the titles.
-     * If a matching available book is found, it is returned.
-     * If no such book is available, a BookNotAvailableException is thrown with an appropriate message.
+     * Searches for an available copy among the copies registered under a title and reserves it for the user.
+     * Copies are taken off the title's free-list and reserved with {@link Book#tryBorrow(User)}; if another
+     * thread gets to a copy first, the next free copy is tried instead.
      *
-     * @param title the title of the book to search for
-     * @return the available Book object with the specified title
-     * @throws BookNotAvailableException if no available book with the given title is found
+     * @param copies the copies registered under the requested title
+     * @param user the user the copy is reserved for
+     * @param event the event counting the copies scanned, or {@code null}
+     * @return the copy, now borrowed by the user, or {@code null} if no copy of the title is available
+     */
+    private Book reserveCopy(TitleCopies copies, User user, BorrowEvent event) {
+        Book book;
+        while ((book = copies.pollAvailable()) != null) {
+            if (event != null) {
+                event.copyScanned();
+            }
+            if (book.tryBorrow(user)) {
+                return book;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how many copies of the specified title are currently available for borrowing.
+     * The count is kept up to date as copies are borrowed and returned, so this is a constant-time lookup.
+     *
+     * @param title the title of the book
+     * @return the number of available copies, or {@code 0} if no book with that title is registered
+     */
+    public int getAvailableCopies(String title) {
+        TitleCopies copies = findCopies(title);
+        return copies == null ? 0 : copies.getAvailableCount();
+    }
+
+    /**
+     * Returns how many copies of the specified title are registered, whether available or borrowed.
+     *
+     * @param title the title of the book
+     * @return the number of copies, or {@code 0} if no book with that title is registered
+     */
+    public int getCopyCount(String title) {
+        TitleCopies copies = findCopies(title);
+        return copies == null ? 0 : copies.getCopyCount();
+    }
+
+    /**
+     * Returns how many copies of the specified title are currently borrowed.
+     * Like {@link #getAvailableCopies(String)}, this reads counters kept up to date by every borrow and return.
+     *
+     * @param title the title of the book
+     * @return the number of borrowed copies, or {@code 0} if no book with that title is registered
+     */
+    public int getBorrowedCopies(String title) {
+        TitleCopies copies = findCopies(title);
+        return copies == null ? 0 : Math.max(copies.getCopyCount() - copies.getAvailableCount(), 0);
+    }
+
+    /**
+     * Returns the number of distinct titles, compared by normalized title, registered in the library.
+     *
+     * @return the number of titles
      */
-    private Book findBookByTitle(String title) {
-        return books.stream()
-            .filter(book -> normalize(book.getTitle()).equals(normalize(title)) && book.isAvailable())
-            .findFirst()
-            .orElseThrow(() -> new BookNotAvailableException(Messages.bookNotAvailable(title)));
+    public int getTitleCount() {
+        return titleIndex.size();
+    }
+
+    /**
+     * Completes a partly typed title or author name, as a search box would.
+     * <p>
+     * Titles starting with the prefix come first, then titles with a word starting with it, then
+     * titles whose author's name or one of its words starts with it. The comparison ignores case
+     * and accents. Titles registered while the completion runs may or may not be included.
+     * </p>
+     *
+     * @param prefix the beginning of a title, an author name or one of their words
+     * @param limit  the maximum number of titles to return
+     * @return the copies of each matching title, best match first
+     */
+    public List<List<Book>> completeTitles(String prefix, int limit) {
+        LookupEvent event = LookupEvent.start();
+        List<TitleCopies> found = searchIndex.complete(prefix, limit);
+        if (event != null) {
+            event.commit(LookupEvent.COMPLETE, prefix, found.size());
+        }
+        return copiesOf(found);
+    }
+
+    /**
+     * Searches for titles matching a query despite typos.
+     * <p>
+     * Titles or author names starting with the query are returned first, as by
+     * {@link #completeTitles(String, int)}. The remaining places go to titles whose title or author
+     * name is within a few edits of the whole query, closest first: one edit for queries of up to
+     * eight characters and two for longer ones.
+     * </p>
+     *
+     * @param query the title or author name to look for
+     * @param limit the maximum number of titles to return
+     * @return the copies of each matching title, best match first
+     */
+    public List<List<Book>> searchTitles(String query, int limit) {
+        LookupEvent event = LookupEvent.start();
+        Set<TitleCopies> found = new LinkedHashSet<>(searchIndex.complete(query, limit));
+        if (found.size() < limit) {
+            int maxEdits = query.strip().length() <= 8 ? 1 : 2;
+            for (TitleCopies copies : searchIndex.search(query, limit, maxEdits)) {
+                if (found.size() == limit) {
+                    break;
+                }
+                found.add(copies);
+            }
+        }
+        if (event != null) {
+            event.commit(LookupEvent.SEARCH, query, found.size());
+        }
+        return copiesOf(found);
+    }
+
+    /**
+     * Returns the copies of each group, in the order of the groups.
+     * The copies are read under the read lock, so each list is a consistent snapshot.
+     *
+     * @param groups the groups of copies found by a search
+     * @return a read-only list of the copies of each group
+     */
+    private List<List<Book>> copiesOf(Collection<TitleCopies> groups) {
+        List<List<Book>> result = new ArrayList<>(groups.size());
+        registryLock.readLock().lock();
+        try {
+            for (TitleCopies copies : groups) {
+                result.add(List.copyOf(copies.getCopies()));
+            }
+        } finally {
+            registryLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the live counters of this library: copies registered, available and borrowed, users,
+     * authors and active loans. Per-title counts are available from {@link #getCopyCount(String)},
+     * {@link #getAvailableCopies(String)} and {@link #getBorrowedCopies(String)}, and per-author counts
+     * from {@link Author#getBorrowedCopyCount()} and {@link Author#getAvailableCopyCount()}.
+     * <p>
+     * Every count is maintained as the library changes, so reading it takes constant time and is safe
+     * while other threads register, borrow and return books.
+     * </p>
+     *
+     * @return the counters of this library
+     */
+    public LibraryStats getStats() {
+        return stats;
     }
 
     /**
      * Searches for a user in the library by their name.
-     * The search is case-insensitive and ignores formatting differences by normalizing both the stored user name and the input name.
+     * The search is case-insensitive and ignores formatting differences, since users are
+     * indexed by their normalized name. The lookup takes constant time and no lock.
      *
      * @param name the name of the user to search for
      * @return the {@link User} object whose name matches the provided name
      * @throws UserNotFoundException if no user with the specified name is found
      */
     public User findUserByName(String name) {
-        return users.stream()
-            .filter(user -> normalize(user.getName()).equals(normalize(name)))
-            .findFirst()
-            .orElseThrow(() -> new UserNotFoundException(userNotFound(name)));
+        LookupEvent event = LookupEvent.start();
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        User user = userIndex.get(normalize(name));
+        if (metrics != null) {
+            if (user == null) {
+                metrics.recordFailure(Operation.FIND_USER_BY_NAME, start, UserNotFoundException.class);
+            } else {
+                metrics.recordSuccess(Operation.FIND_USER_BY_NAME, start);
+            }
+        }
+        if (event != null) {
+            event.commit(LookupEvent.USER, name, user == null ? 0 : 1);
+        }
+        if (user == null) {
+            throw new UserNotFoundException(name, Messages::userNotFound);
+        }
+        return user;
+    }
+
+    /**
+     * Looks a user up as {@link #findUserByName(String)} does, without metrics or events, for the library's own lookups.
+     */
+    private User requireUser(String name) {
+        User user = userIndex.get(normalize(name));
+        if (user == null) {
+            throw new UserNotFoundException(name, Messages::userNotFound);
+        }
+        return user;
     }
 
     /**
      * Generates a summary of all books in the library.
      * <p>
-     * Iterates through the list of books and appends each book's string representation,
-     * separated by a newline character, to a StringBuilder. Returns the resulting summary
-     * as a single string.
+     * Each book's description is written on its own line, as by {@link #writeBooksSummary(Appendable)},
+     * and the result is returned as a single string. Prefer the streaming variant for large catalogs.
+     * </p>
      *
      * @return a string containing the summary of all books in the library, each on a new line
      */
     public String getBooksSummary() {
         StringBuilder sb = new StringBuilder();
-        for (Book book : books) {
-            sb.append(book.toString()).append("\n");
-        }
+        writeBooksSummary(sb);
         return sb.toString();
     }
 
+    /**
+     * Writes a summary of all books in the library to the given destination, one book per line.
+     *
+     * @param out the destination of the summary, such as a {@link java.io.Writer} or a {@link java.io.PrintStream}
+     * @throws UncheckedIOException if the destination cannot be written to
+     * @see #writeBooksSummary(Appendable, int, int)
+     */
+    public void writeBooksSummary(Appendable out) {
+        writeBooksSummary(out, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes a page of the summary of all books to the given destination, one book per line.
+     * <p>
+     * Books are taken in registration order, a few at a time under the read lock, and each description
+     * is appended to the destination directly, so no string holding the whole page is ever built and
+     * registrations are never held up for the time it takes to write the page. A summary written while
+     * books are being registered or borrowed may therefore mix states from slightly different moments.
+     * </p>
+     *
+     * @param out    the destination of the summary
+     * @param offset the position of the first book to describe
+     * @param limit  the maximum number of books to describe
+     * @return the number of books described, less than {@code limit} once the end of the catalog is reached
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     * @throws UncheckedIOException     if the destination cannot be written to
+     */
+    public int writeBooksSummary(Appendable out, int offset, int limit) {
+        return writeSummary(books, out, offset, limit, Messages::appendBookDescription);
+    }
+
     /**
      * Generates a summary of all users registered in the library.
      * <p>
-     * Iterates through the list of users and appends each user's string representation,
-     * separated by a newline character, to a StringBuilder. Returns the resulting summary
-     * as a single string.
+     * Each user's description is written on its own line, as by {@link #writeUsersSummary(Appendable)},
+     * and the result is returned as a single string.
+     * </p>
      *
      * @return a string containing the summary of all users in the library, each on a new line
      */
     public String getUsersSummary() {
         StringBuilder sb = new StringBuilder();
-        for (User user : users) {
-            sb.append(user.toString()).append("\n");
-        }
+        writeUsersSummary(sb);
         return sb.toString();
     }
 
+    /**
+     * Writes a summary of all users registered in the library to the given destination, one user per line.
+     *
+     * @param out the destination of the summary
+     * @throws UncheckedIOException if the destination cannot be written to
+     * @see #writeUsersSummary(Appendable, int, int)
+     */
+    public void writeUsersSummary(Appendable out) {
+        writeUsersSummary(out, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes a page of the summary of all users to the given destination, one user per line,
+     * in the same way as {@link #writeBooksSummary(Appendable, int, int)}.
+     *
+     * @param out    the destination of the summary
+     * @param offset the position of the first user to describe
+     * @param limit  the maximum number of users to describe
+     * @return the number of users described, less than {@code limit} once the end of the list is reached
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     * @throws UncheckedIOException     if the destination cannot be written to
+     */
+    public int writeUsersSummary(Appendable out, int offset, int limit) {
+        return writeSummary(users, out, offset, limit, Messages::appendUserDescription);
+    }
+
+    /**
+     * Writes the descriptions of a range of a registry list, one per line.
+     * Elements are copied out of the list {@value #SUMMARY_BATCH_SIZE} at a time under the read lock,
+     * and described after the lock is released.
+     *
+     * @param source      the list of books or users
+     * @param out         the destination of the descriptions
+     * @param offset      the position of the first element to describe
+     * @param limit       the maximum number of elements to describe
+     * @param description appends the description of one element
+     * @return the number of elements described
+     */
+    private <T> int writeSummary(List<T> source, Appendable out, int offset, int limit,
+                                 DescriptionWriter<T> description) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        List<T> batch = new ArrayList<>(Math.min(limit, SUMMARY_BATCH_SIZE));
+        int written = 0;
+        try {
+            while (written < limit) {
+                registryLock.readLock().lock();
+                try {
+                    int from = offset + written;
+                    int to = (int) Math.min(source.size(), (long) from + Math.min(limit - written, SUMMARY_BATCH_SIZE));
+                    for (int i = from; i < to; i++) {
+                        batch.add(source.get(i));
+                    }
+                } finally {
+                    registryLock.readLock().unlock();
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (T element : batch) {
+                    description.append(out, element);
+                    out.append('\n');
+                }
+                written += batch.size();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    /**
+     * Appends the description of a book or a user, as the methods of {@link Messages} do.
+     *
+     * @param <T> the type of the element described
+     */
+    @FunctionalInterface
+    private interface DescriptionWriter<T> {
+        void append(Appendable out, T element) throws IOException;
+    }
+
+    /**
+     * Retrieves a list of all users registered in the library.
+     *
+     * @return a new {@code List} containing all {@code User} objects currently in the library.
+     */
+    public List<User> getAllUsers() {
+        registryLock.readLock().lock();
+        try {
+            return new ArrayList<>(users);
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
     /**
      * Retrieves a list of all authors in the library.
      *
      * @return a new {@code List} containing all {@code Author} objects currently in the library.
      */
     public List<Author> getAllAuthors() {
-        return new ArrayList<>(authors);
+        registryLock.readLock().lock();
+        try {
+            return new ArrayList<>(authors);
+        } finally {
+            registryLock.readLock().unlock();
+        }
     }
 
     /**
      * Returns a list of all books available in the library.
+     * The list is a read-only snapshot, so it can be iterated while other threads register books.
      *
      * @return a List containing all Book objects in the library
      */
     public List<Book> getAllBooks() {
-        return this.books;
+        registryLock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(books));
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Captures the authors, books, users and loans of the library at once, for a snapshot.
+     * <p>
+     * Registrations are held while the state is captured, so the lists agree with each other.
+     * The journal sequence is read first, and then each user's loans under their loan lock,
+     * so every loan change missing from the state is journaled after that sequence. Borrows
+     * and returns keep going meanwhile.
+     * </p>
+     *
+     * @param journalSequence reads the last sequence journaled, or returns {@code 0} without a journal
+     * @return the captured state
+     */
+    public LibraryState captureState(LongSupplier journalSequence) {
+        registryLock.readLock().lock();
+        try {
+            long sequence = journalSequence.getAsLong();
+            User[] borrowers = new User[books.size()];
+            for (User user : users) {
+                user.getLoanLock().lock();
+                try {
+                    for (Book book : user.getBorrowedBooks()) {
+                        borrowers[book.getId()] = user;
+                    }
+                } finally {
+                    user.getLoanLock().unlock();
+                }
+            }
+            return new LibraryState(sequence, List.copyOf(authors), List.copyOf(books),
+                List.copyOf(users), Collections.unmodifiableList(Arrays.asList(borrowers)));
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the book registered under the given id.
+     *
+     * @param id the id assigned to the book on registration
+     * @return the {@link Book} with that id
+     * @throws BookNotFoundException if no book has that id
+     */
+    public Book findBookById(int id) {
+        registryLock.readLock().lock();
+        try {
+            if (id < 0 || id >= books.size()) {
+                throw new BookNotFoundException("#" + id, Messages::bookNotFound);
+            }
+            return books.get(id);
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the user registered under the given id.
+     *
+     * @param id the id assigned to the user on registration
+     * @return the {@link User} with that id
+     * @throws UserNotFoundException if no user has that id
+     */
+    public User findUserById(int id) {
+        registryLock.readLock().lock();
+        try {
+            if (id < 0 || id >= users.size()) {
+                throw new UserNotFoundException("#" + id, Messages::userNotFound);
+            }
+            return users.get(id);
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the author registered under the given id.
+     *
+     * @param id the id assigned to the author on registration
+     * @return the {@link Author} with that id
+     * @throws IndexOutOfBoundsException if no author has that id
+     */
+    public Author findAuthorById(int id) {
+        registryLock.readLock().lock();
+        try {
+            return authors.get(id);
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an existing loan of a registered book to a registered user, without validating the
+     * user's loan limit or notifying the listener.
+     * <p>
+     * This is meant for rebuilding a library from storage, where the loan was already validated
+     * and reported when it was first made. Restoring a loan the library already holds changes
+     * nothing, so that journal records already reflected in a snapshot can be replayed on top of it.
+     * </p>
+     *
+     * @param book the registered copy that is on loan
+     * @param user the registered user holding it
+     * @throws BookNotAvailableException if the copy is already lent to someone else
+     */
+    public void restoreLoan(Book book, User user) {
+        user.getLoanLock().lock();
+        try {
+            if (book.getBorrowedBy() == user) {
+                return;
+            }
+            if (!book.tryBorrow(user)) {
+                throw new BookNotAvailableException(book.getTitle(), Messages::bookNotAvailable);
+            }
+            processBorrow(book, user);
+        } finally {
+            user.getLoanLock().unlock();
+        }
+    }
+
+    /**
+     * Ends the loan of a registered book, if it is on loan, without notifying the listener.
+     * This is the counterpart of {@link #restoreLoan(Book, User)} for rebuilding a library from storage.
+     *
+     * @param book the registered copy that was returned
+     */
+    public void restoreReturn(Book book) {
+        User user = book.getBorrowedBy();
+        if (user == null) {
+            return;
+        }
+        user.getLoanLock().lock();
+        try {
+            if (book.getBorrowedBy() == user) {
+                boolean onLoan = user.returnBook(book);
+                if (book.tryReturn() && onLoan) {
+                    stats.loanEnded();
+                }
+            }
+        } finally {
+            user.getLoanLock().unlock();
+        }
     }
 
     /**
      * Handles the process of returning a borrowed book for a specific user.
      * <p>
      * This method locates the user by their name, validates that the user has a borrowed book,
-     * processes the return of the book, updates the user's borrowing status, and prints a confirmation message.
+     * processes the return of the book, updates the user's borrowing status, and notifies the listener.
+     * The user is locked while the loan is cleared, as in {@link #borrowBook(String, String)}, and
+     * the listener is notified before the copy is released, so that no other user's borrow of it can be
+     * reported first. Once released, the copy goes to the first user holding its title, if any.
+     * </p>
+     * <p>
+     * A user holding several books gives back one of them; use {@link #returnBook(String, String)}
+     * or {@link #returnBook(String, Book)} to choose which.
      * </p>
      *
      * @param userName the name of the user returning the book
-     * @throws IllegalArgumentException if the user does not exist or has not borrowed any book
+     * @throws UserNotFoundException if the user is not registered
+     * @throws UserHasNoBookException if the user has not borrowed any book
      */
     public void returnBook(String userName) {
-        User user = findUserByName(userName);
-        validateUserHasBorrowedBook(user);
-        Book book = user.getBorrowedBook();
-        book.returnBook();
-        user.returnBook();
-        System.out.println(bookSuccessfullyReturned(book));
+        BorrowResult result = tryReturnBook(userName);
+        if (!result.isSuccess()) {
+            throw failure(result, null, userName);
+        }
     }
 
     /**
-     * Validates whether the specified user has borrowed a book.
-     * <p>
-     * If the user has not borrowed any book, this method throws a
-     * {@link UserHasNoBookException} with an appropriate message.
-     * </p>
+     * Returns the user's copy of the specified title, like {@link #returnBook(String)} does for a user's book.
      *
-     * @param user the user to validate
-     * @throws UserHasNoBookException if the user has not borrowed any book
+     * @param userName  the name of the user returning the book
+     * @param bookTitle the title of the book being returned
+     * @throws UserNotFoundException if the user is not registered
+     * @throws UserHasNoBookException if the user holds no copy of the title
+     */
+    public void returnBook(String userName, String bookTitle) {
+        BorrowResult result = tryReturnBook(userName, bookTitle);
+        if (!result.isSuccess()) {
+            throw failure(result, bookTitle, userName);
+        }
+    }
+
+    /**
+     * Returns a specific copy held by the user, like {@link #returnBook(String)} does for a user's book.
+     *
+     * @param userName the name of the user returning the book
+     * @param copy     the copy being returned
+     * @throws UserNotFoundException if the user is not registered
+     * @throws UserHasNoBookException if the user does not hold the copy
+     */
+    public void returnBook(String userName, Book copy) {
+        BorrowResult result = tryReturnBook(userName, copy);
+        if (!result.isSuccess()) {
+            throw failure(result, copy.getTitle(), userName);
+        }
+    }
+
+    /**
+     * Gives back the book a user has borrowed, reporting the outcome as a result instead of throwing
+     * when the user is unknown or has no book. It behaves exactly like {@link #returnBook(String)}
+     * otherwise, and a failed attempt allocates nothing.
+     *
+     * @param userName the name of the user returning the book
+     * @return a {@link BorrowResult.Status#RETURNED} result holding the copy, or the reason of the failure
+     */
+    public BorrowResult tryReturnBook(String userName) {
+        return tryReturnBook(userName, null, null);
+    }
+
+    /**
+     * Gives back the user's copy of the specified title, reporting the outcome as a result.
+     * It behaves exactly like {@link #returnBook(String, String)}, but a failed attempt allocates nothing.
+     *
+     * @param userName  the name of the user returning the book
+     * @param bookTitle the title of the book being returned
+     * @return a {@link BorrowResult.Status#RETURNED} result holding the copy, or the reason of the failure
      */
-    private void validateUserHasBorrowedBook(User user) {
-        if (!user.hasBorrowedBook()) {
-            throw new UserHasNoBookException(Messages.userHasNoBorrowedBook(user.getName()));
+    public BorrowResult tryReturnBook(String userName, String bookTitle) {
+        return tryReturnBook(userName, null, bookTitle);
+    }
+
+    /**
+     * Gives back a specific copy held by the user, reporting the outcome as a result.
+     * It behaves exactly like {@link #returnBook(String, Book)}, but a failed attempt allocates nothing.
+     *
+     * @param userName the name of the user returning the book
+     * @param copy     the copy being returned
+     * @return a {@link BorrowResult.Status#RETURNED} result holding the copy, or the reason of the failure
+     */
+    public BorrowResult tryReturnBook(String userName, Book copy) {
+        return tryReturnBook(userName, copy, null);
+    }
+
+    private BorrowResult tryReturnBook(String userName, Book copy, String bookTitle) {
+        ReturnEvent event = ReturnEvent.start();
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        BorrowResult result;
+        try {
+            result = takeBack(userName, copy, bookTitle == null ? null : normalize(bookTitle), event);
+        } catch (RuntimeException e) {
+            if (metrics != null) {
+                metrics.recordFailure(Operation.RETURN_BOOK, start, e.getClass());
+            }
+            if (event != null) {
+                event.commit(copy == null ? bookTitle : copy.getTitle(), userName, e.getClass().getSimpleName());
+            }
+            throw e;
+        }
+        if (metrics != null) {
+            record(metrics, Operation.RETURN_BOOK, start, result);
+        }
+        Book returned = result.isSuccess() ? result.getBook() : copy;
+        if (event != null) {
+            event.commit(returned == null ? bookTitle : returned.getTitle(), userName, result.getStatus().name());
+        }
+        return result;
+    }
+
+    private BorrowResult takeBack(String userName, Book copy, String normalizedTitle, ReturnEvent event) {
+        User user = userIndex.get(normalize(userName));
+        if (user == null) {
+            return BorrowResult.USER_NOT_FOUND;
+        }
+        Book book = endLoan(user, copy, normalizedTitle, event);
+        return book == null ? BorrowResult.USER_HAS_NO_BOOK : BorrowResult.returned(book);
+    }
+
+    /**
+     * Ends one loan of a user, notifies the listener and releases the copy, then serves the holds on its
+     * title. The holds are served once the user is unlocked, since serving them locks other users.
+     * The copy to return is looked up under the user's loan lock, in constant time for a given copy
+     * and among the user's few loans for a given title.
+     *
+     * @param user            the user returning a book
+     * @param copy            the copy to return, or {@code null} to choose it by title
+     * @param normalizedTitle the normalized title of the copy to return, or {@code null} for any copy
+     * @param event           the event told how many loans the user holds, or {@code null}
+     * @return the returned copy, or {@code null} if the user holds no matching book
+     */
+    private Book endLoan(User user, Book copy, String normalizedTitle, ReturnEvent event) {
+        Book book;
+        user.getLoanLock().lock();
+        try {
+            if (event != null) {
+                event.setLoansHeld(user.getLoanCount());
+            }
+            if (copy != null) {
+                book = user.hasBorrowed(copy) ? copy : null;
+            } else if (normalizedTitle != null) {
+                book = user.findBorrowedBook(normalizedTitle);
+            } else {
+                book = user.getBorrowedBook();
+            }
+            if (book == null) {
+                return null;
+            }
+            listener.onEvent(new LibraryEvent.BookReturned(book, user));
+            user.returnBook(book);
+            book.tryReturn();
+            stats.loanEnded();
+        } finally {
+            user.getLoanLock().unlock();
+        }
+        TitleCopies copies = book.getCopies();
+        if (copies != null && copies.hasHolds()) {
+            serveHolds(copies);
         }
+        return book;
     }
 }
\ No newline at end of file
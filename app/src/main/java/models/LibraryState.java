@@ -0,0 +1,22 @@
+package models;
+import java.util.List;
+
+/**
+ * A consistent copy of the contents of a {@link Library}, as returned by {@link Library#captureState}.
+ * <p>
+ * The lists are in id order and all come from the same moment of the registry, so every author
+ * and borrower a book refers to is in the copy. Loans keep changing while the state is captured,
+ * but each user's loans are read under that user's loan lock, and every change that is not
+ * reflected is reported to the listener after {@code journalSequence} was read. Replaying the
+ * journal records after that sequence therefore brings the state up to date.
+ * </p>
+ *
+ * @param journalSequence the journal sequence read before the loans, which the state covers
+ * @param authors         the registered authors, by id
+ * @param books           the registered copies, by id
+ * @param users           the registered users, by id
+ * @param borrowers       the borrower of each copy, by the copy's id, or {@code null} for a copy on the shelf
+ */
+public record LibraryState(long journalSequence, List<Author> authors, List<Book> books,
+                           List<User> users, List<User> borrowers) {
+}
@@ -0,0 +1,138 @@
+package models;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters describing the contents of a {@link Library}.
+ * <p>
+ * The library updates the counters as books and users are registered and as copies are
+ * borrowed and returned, so every question answered here is a constant-time read instead
+ * of a scan of the catalog. The counters are {@link LongAdder}s, which spread concurrent
+ * updates over several cells, so threads borrowing different titles do not contend on them.
+ * </p>
+ *
+ * <p>
+ * Each counter is exact once the changes in flight have completed. A value derived from two
+ * counters, such as {@link #getAvailableCopyCount()}, may be momentarily off while a copy is
+ * being registered or borrowed.
+ * </p>
+ */
+public class LibraryStats {
+    private final LongAdder copies = new LongAdder();
+    private final LongAdder borrowedCopies = new LongAdder();
+    private final LongAdder users = new LongAdder();
+    private final LongAdder authors = new LongAdder();
+    private final LongAdder activeLoans = new LongAdder();
+
+    /**
+     * Constructs a set of counters that are all zero.
+     */
+    LibraryStats() {
+    }
+
+    /**
+     * Returns the number of copies registered in the library.
+     *
+     * @return the number of copies
+     */
+    public long getCopyCount() {
+        return copies.sum();
+    }
+
+    /**
+     * Returns the number of registered copies that are currently borrowed.
+     *
+     * @return the number of borrowed copies
+     */
+    public long getBorrowedCopyCount() {
+        return borrowedCopies.sum();
+    }
+
+    /**
+     * Returns the number of registered copies that are currently available.
+     *
+     * @return the number of available copies
+     */
+    public long getAvailableCopyCount() {
+        return getCopyCount() - getBorrowedCopyCount();
+    }
+
+    /**
+     * Returns the number of registered users.
+     *
+     * @return the number of users
+     */
+    public long getUserCount() {
+        return users.sum();
+    }
+
+    /**
+     * Returns the number of registered authors.
+     *
+     * @return the number of authors
+     */
+    public long getAuthorCount() {
+        return authors.sum();
+    }
+
+    /**
+     * Returns the number of books currently lent to users, counting each loan of a user separately.
+     *
+     * @return the number of active loans
+     */
+    public long getActiveLoanCount() {
+        return activeLoans.sum();
+    }
+
+    /**
+     * Records that a copy was registered. A copy that was already borrowed is then also
+     * recorded through {@link #copyBorrowed()}.
+     */
+    void copyRegistered() {
+        copies.increment();
+    }
+
+    /**
+     * Records that a registered copy was borrowed.
+     */
+    void copyBorrowed() {
+        borrowedCopies.increment();
+    }
+
+    /**
+     * Records that a registered copy was returned.
+     */
+    void copyReturned() {
+        borrowedCopies.decrement();
+    }
+
+    /**
+     * Records that a user was registered.
+     *
+     * @param user the registered user
+     */
+    void userRegistered(User user) {
+        users.increment();
+        activeLoans.add(user.getLoanCount());
+    }
+
+    /**
+     * Records that an author was registered.
+     */
+    void authorRegistered() {
+        authors.increment();
+    }
+
+    /**
+     * Records that a user took a book on loan.
+     */
+    void loanStarted() {
+        activeLoans.increment();
+    }
+
+    /**
+     * Records that a user gave a book back.
+     */
+    void loanEnded() {
+        activeLoans.decrement();
+    }
+}
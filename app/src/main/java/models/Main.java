@@ -1,8 +1,9 @@
 package models;
+import events.ConsoleEventListener;
 
 public class Main {
     public static void main(String[] args) {
-        Library library = new Library();
+        Library library = new Library(new ConsoleEventListener());
 
         // ==== Registering Authors ====
         Author author1 = new Author("Robert C. Martin");
@@ -0,0 +1,229 @@
+package models;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Groups every registered copy of a book that shares the same normalized title.
+ * <p>
+ * The {@link Library} keeps one {@code TitleCopies} per normalized title in its title index,
+ * so lookups by title only ever visit the copies of that title instead of the whole catalog.
+ * </p>
+ *
+ * <p>
+ * Besides the full list of copies, the group keeps a free-list of the copies that are
+ * available for borrowing, together with their count. Copies leave the free-list when the
+ * library hands them out and {@link Book#returnBook()} puts them back, so finding a free
+ * copy never walks over the borrowed ones. A copy borrowed directly through
+ * {@link Book#borrow(User)} stays in the free-list until it is reached, at which point it
+ * is skipped and dropped.
+ * </p>
+ *
+ * <p>
+ * The free-list and the count are lock-free. Taking a copy off the free-list does not
+ * reserve it by itself: the caller still has to win {@link Book#tryBorrow(User)}, and
+ * moves on to the next free copy if it loses.
+ * </p>
+ *
+ * <p>
+ * The group also keeps the queue of holds placed on the title by users waiting for a copy,
+ * in the order they were placed. The queue is guarded by the hold lock, while its size is
+ * readable without locking so that returns can skip the lock when nobody is waiting.
+ * </p>
+ */
+class TitleCopies {
+    private final String title;
+    private final List<Book> copies;
+    private final Deque<Book> available;
+    private final AtomicInteger availableCount;
+    private final LibraryStats stats;
+    private volatile int copyCount;
+    private final ReentrantLock holdLock = new ReentrantLock();
+    private final Deque<Hold> holds = new ArrayDeque<>();
+    private volatile int holdCount;
+
+    /**
+     * A user waiting for a copy of the title, and the future completed with the copy lent to them.
+     *
+     * @param user   the user who placed the hold
+     * @param future the future completed with the copy once it is lent to the user
+     */
+    record Hold(User user, CompletableFuture<Book> future) {
+    }
+
+    /**
+     * Constructs an empty group for the given title.
+     *
+     * @param title the title of the first copy registered under this group, kept for display
+     * @param stats the counters of the library, updated as copies are added, borrowed and returned
+     */
+    TitleCopies(String title, LibraryStats stats) {
+        this.title = title;
+        this.copies = new ArrayList<>();
+        this.available = new ConcurrentLinkedDeque<>();
+        this.availableCount = new AtomicInteger();
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the title under which the copies were first registered.
+     *
+     * @return the display title of this group
+     */
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * Adds a copy to this group and, if it is available, to the free-list.
+     * Registrations are serialized by the library, so the list of copies needs no lock of its own.
+     * A copy that is already borrowed is counted as borrowed in the library's and the author's counters.
+     *
+     * @param book the copy to be added
+     */
+    void add(Book book) {
+        copies.add(book);
+        copyCount = copies.size();
+        stats.copyRegistered();
+        book.getAuthor().copyRegistered();
+        book.setCopies(this);
+        if (book.isAvailable()) {
+            availableCount.incrementAndGet();
+            available.offerLast(book);
+        } else {
+            stats.copyBorrowed();
+            book.getAuthor().copyBorrowed();
+        }
+    }
+
+    /**
+     * Takes the next available copy of this title off the free-list.
+     * Copies that were borrowed without going through the free-list are discarded on the way.
+     *
+     * @return a {@link Book} that was available when it was taken, or {@code null} if every copy is borrowed
+     */
+    Book pollAvailable() {
+        Book book;
+        while ((book = available.pollFirst()) != null) {
+            if (book.isAvailable()) {
+                return book;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records that one copy of this title has been borrowed, in this group and in the
+     * library's and the author's counters. Called by {@link Book#tryBorrow(User)}.
+     *
+     * @param book the borrowed copy
+     */
+    void copyBorrowed(Book book) {
+        availableCount.decrementAndGet();
+        stats.copyBorrowed();
+        book.getAuthor().copyBorrowed();
+    }
+
+    /**
+     * Records that a copy of this title has been returned and puts it back on the free-list.
+     * Called by {@link Book#tryReturn()}.
+     *
+     * @param book the returned copy
+     */
+    void copyReturned(Book book) {
+        availableCount.incrementAndGet();
+        stats.copyReturned();
+        book.getAuthor().copyReturned();
+        available.offerLast(book);
+    }
+
+    /**
+     * Returns how many copies of this title are currently available.
+     *
+     * @return the number of available copies
+     */
+    int getAvailableCount() {
+        return availableCount.get();
+    }
+
+    /**
+     * Returns how many copies are registered under this title, whether available or borrowed.
+     *
+     * @return the number of copies of this title
+     */
+    int getCopyCount() {
+        return copyCount;
+    }
+
+    /**
+     * Returns a read-only view of every copy registered under this title.
+     *
+     * @return the copies of this title, in registration order
+     */
+    List<Book> getCopies() {
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Returns the lock guarding the queue of holds. It is taken before the loan lock of any user.
+     *
+     * @return the hold lock of this title
+     */
+    ReentrantLock getHoldLock() {
+        return holdLock;
+    }
+
+    /**
+     * Appends a hold to the end of the queue. The caller holds the hold lock.
+     *
+     * @param hold the hold to be queued
+     */
+    void addHold(Hold hold) {
+        holds.addLast(hold);
+        holdCount = holds.size();
+    }
+
+    /**
+     * Returns the hold placed the earliest that is still queued. The caller holds the hold lock.
+     *
+     * @return the first hold, or {@code null} if nobody is waiting
+     */
+    Hold peekHold() {
+        return holds.peekFirst();
+    }
+
+    /**
+     * Removes a hold from the queue. The caller holds the hold lock.
+     *
+     * @param hold the hold to be removed
+     */
+    void removeHold(Hold hold) {
+        if (holds.remove(hold)) {
+            holdCount = holds.size();
+        }
+    }
+
+    /**
+     * Checks without locking whether any user is waiting for a copy of this title.
+     *
+     * @return {@code true} if at least one hold is queued
+     */
+    boolean hasHolds() {
+        return holdCount > 0;
+    }
+
+    /**
+     * Returns how many holds are queued on this title.
+     *
+     * @return the number of waiting users
+     */
+    int getHoldCount() {
+        return holdCount;
+    }
+}
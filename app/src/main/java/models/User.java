@@ -1,35 +1,74 @@
 package models;
 import exceptions.UserHasBookException;
 import interfaces.Validatable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import utils.Messages;
 import static utils.Messages.*;
+import static utils.StringUtils.normalize;
 
 
 /**
  * Represents a user in the library system.
  * <p>
- * Each user has a name and may have borrowed a single book at a time.
- * This class provides methods to manage the user's borrowed book and validate borrowing rules.
+ * Each user has a name and may have borrowed up to a fixed number of books at a time, their
+ * loan limit, which is one unless set otherwise when the user is created.
+ * This class provides methods to manage the user's borrowed books and validate borrowing rules.
+ * </p>
+ *
+ * <p>
+ * The borrowed books are kept in an array of slots no longer than the loan limit, and each book
+ * remembers its slot, so checking whether the user holds a book, adding a loan and removing one
+ * all take constant time. A removed loan's slot is filled with the last loan. Changes are made
+ * under the user's loan lock; the books can be read without it, and then reflect a recent state.
  * </p>
  *
  * <p>
  * Implements the {@link Validatable} interface to allow validation of user state,
- * such as checking if the user already has a borrowed book.
+ * such as checking if the user has reached their loan limit.
  * </p>
  *
  */
 public class User implements Validatable {
+    /** The number of books a user may hold at once unless created with another limit. */
+    public static final int DEFAULT_LOAN_LIMIT = 1;
+
     private String name;
-    private Book borrowedBook;
+    private String normalizedName;
+    private int id = -1;
+    private final int loanLimit;
+    private volatile Book[] loans;
+    private volatile int loanCount;
+    private final ReentrantLock loanLock = new ReentrantLock();
 
     /**
-     * Constructs a new User with the specified name.
-     * Initializes the borrowedBook field to null.
+     * Constructs a new User with the specified name, who may hold {@link #DEFAULT_LOAN_LIMIT} book at a time.
+     * The user starts with no borrowed book, and the normalized name used for lookups is computed once here.
      *
      * @param name the name of the user
      */
     public User(String name) {
+        this(name, DEFAULT_LOAN_LIMIT);
+    }
+
+    /**
+     * Constructs a new User with the specified name, who may hold up to {@code loanLimit} books at a time.
+     *
+     * @param name      the name of the user
+     * @param loanLimit the number of books the user may hold at once
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public User(String name, int loanLimit) {
+        if (loanLimit < 1) {
+            throw new IllegalArgumentException("loan limit must be positive: " + loanLimit);
+        }
         this.name = name;
-        this.borrowedBook = null;
+        this.normalizedName = normalize(name);
+        this.loanLimit = loanLimit;
+        this.loans = new Book[Math.min(loanLimit, 4)];
     }
 
     /**
@@ -42,21 +81,61 @@ public class User implements Validatable {
     }
 
     /**
-     * Returns the book currently borrowed by the user.
+     * Returns the name of the user without accents and in lowercase,
+     * as produced by {@link utils.StringUtils#normalize(String)}.
+     *
+     * @return the user's normalized name
+     */
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    /**
+     * Returns the number of books the user may hold at once.
      *
-     * @return the {@link Book} object that the user has borrowed, or null if no book is borrowed
+     * @return the loan limit of the user
+     */
+    public int getLoanLimit() {
+        return loanLimit;
+    }
+
+    /**
+     * Returns the number of books the user currently holds.
+     *
+     * @return the number of loans of the user
+     */
+    public int getLoanCount() {
+        return loanCount;
+    }
+
+    /**
+     * Returns a book currently borrowed by the user. For a user holding a single book, this is that book.
+     *
+     * @return one of the {@link Book}s that the user has borrowed, or null if no book is borrowed
      */
     public Book getBorrowedBook() {
-        return borrowedBook;
+        Book[] current = loans;
+        return loanCount > 0 ? current[0] : null;
     }
 
     /**
-     * Sets the book that the user has borrowed.
+     * Returns the books currently borrowed by the user.
      *
-     * @param book the {@link Book} object to be set as the borrowed book for the user
+     * @return a read-only snapshot of the user's loans, in no particular order
      */
-    public void setBorrowedBook(Book book) {
-        this.borrowedBook = book;
+    public List<Book> getBorrowedBooks() {
+        int count = loanCount;
+        if (count == 0) {
+            return List.of();
+        }
+        Book[] current = loans;
+        List<Book> borrowed = new ArrayList<>(count);
+        for (int i = 0; i < Math.min(count, current.length); i++) {
+            if (current[i] != null) {
+                borrowed.add(current[i]);
+            }
+        }
+        return Collections.unmodifiableList(borrowed);
     }
 
     /**
@@ -65,33 +144,189 @@ public class User implements Validatable {
      * @return {@code true} if the user has a borrowed book; {@code false} otherwise.
      */
     public boolean hasBorrowedBook() {
-        return borrowedBook != null;
+        return loanCount > 0;
     }
 
     /**
-     * Returns the currently borrowed book by setting the borrowedBook field to null.
-     * This method indicates that the user has returned the book they had borrowed.
+     * Checks if the user holds as many books as their loan limit allows.
+     *
+     * @return {@code true} if the user cannot borrow another book
      */
+    public boolean hasReachedLoanLimit() {
+        return loanCount >= loanLimit;
+    }
+
+    /**
+     * Checks in constant time whether the user currently holds the specified copy.
+     *
+     * @param book the copy to look for
+     * @return {@code true} if the copy is one of the user's loans
+     */
+    public boolean hasBorrowed(Book book) {
+        int slot = book.getLoanSlot();
+        Book[] current = loans;
+        return slot >= 0 && slot < loanCount && slot < current.length && current[slot] == book;
+    }
+
+    /**
+     * Finds the copy of a title among the user's loans. This visits at most as many books as the
+     * loan limit allows.
+     *
+     * @param normalizedTitle the title, as produced by {@link utils.StringUtils#normalize(String)}
+     * @return a copy of the title held by the user, or {@code null} if the user holds none
+     */
+    Book findBorrowedBook(String normalizedTitle) {
+        Book[] current = loans;
+        for (int i = 0; i < loanCount; i++) {
+            if (current[i].getNormalizedTitle().equals(normalizedTitle)) {
+                return current[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a copy to the user's loans. The caller holds the loan lock and has checked the loan limit;
+     * a loan restored from storage may exceed it, in which case the slots grow.
+     *
+     * @param book the copy lent to the user
+     */
+    void addLoan(Book book) {
+        int count = loanCount;
+        Book[] current = loans;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, Math.max(count * 2, 1));
+            loans = current;
+        }
+        current[count] = book;
+        book.setLoanSlot(count);
+        loanCount = count + 1;
+    }
+
+    /**
+     * Sets the book that the user has borrowed, replacing all of the user's loans.
+     * Like the single-loan field it stands in for, this only updates the user: the book is not
+     * marked as borrowed and no library is told.
+     *
+     * @param book the {@link Book} object to be set as the borrowed book for the user, or {@code null} for none
+     * @deprecated users may hold several loans, which the library records when lending a copy;
+     *             use {@link Library#borrowBook(String, String)}
+     */
+    @Deprecated
+    public void setBorrowedBook(Book book) {
+        loanLock.lock();
+        try {
+            Book held;
+            while ((held = getBorrowedBook()) != null) {
+                returnBook(held);
+            }
+            if (book != null) {
+                addLoan(book);
+            }
+        } finally {
+            loanLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the book returned by {@link #getBorrowedBook()} from the user's loans.
+     * Like {@link #setBorrowedBook(Book)}, this only updates the user.
+     *
+     * @deprecated use {@link Library#returnBook(String)}, which also releases the copy
+     */
+    @Deprecated
     public void returnBook() {
-        this.borrowedBook = null;
+        loanLock.lock();
+        try {
+            Book held = getBorrowedBook();
+            if (held != null) {
+                returnBook(held);
+            }
+        } finally {
+            loanLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a copy from the user's loans, moving the last loan into its slot.
+     * The library calls this with the loan lock held, before releasing the copy, since the copy's
+     * slot belongs to its next borrower as soon as it is released.
+     *
+     * @param book the copy the user gave back
+     * @return {@code true} if the copy was one of the user's loans, {@code false} otherwise
+     */
+    boolean returnBook(Book book) {
+        if (!hasBorrowed(book)) {
+            return false;
+        }
+        int slot = book.getLoanSlot();
+        int last = loanCount - 1;
+        Book[] current = loans;
+        Book moved = current[last];
+        current[slot] = moved;
+        moved.setLoanSlot(slot);
+        current[last] = null;
+        book.setLoanSlot(-1);
+        loanCount = last;
+        return true;
+    }
+
+    /**
+     * Returns the lock that the library holds while it checks and updates this user's loan.
+     * A {@link ReentrantLock} is used instead of the object monitor so that virtual threads
+     * waiting on a user do not pin their carrier thread.
+     *
+     * @return the loan lock of this user
+     */
+    ReentrantLock getLoanLock() {
+        return loanLock;
     }
 
     /**
      * Validates whether the user is eligible to borrow a book.
      * <p>
-     * If the user has already borrowed a book, this method throws a
-     * {@link UserHasBookException} with a message indicating that the user
-     * already has a borrowed book.
+     * If the user already holds as many books as their loan limit allows, this method throws a
+     * {@link UserHasBookException} with a message indicating that the user cannot borrow another book.
      * </p>
      *
-     * @throws UserHasBookException if the user has already borrowed a book
+     * @throws UserHasBookException if the user has reached their loan limit
      */
     public void validate() {
-        if (hasBorrowedBook()) {
-            throw new UserHasBookException(userAlreadyHasBook(name));
+        if (hasReachedLoanLimit()) {
+            throw loanLimitReached();
         }
     }
 
+    /**
+     * Builds the exception reporting that the user has reached their loan limit.
+     *
+     * @return the exception to be thrown
+     */
+    UserHasBookException loanLimitReached() {
+        int limit = loanLimit;
+        return new UserHasBookException(name, userName -> Messages.loanLimitReached(userName, limit));
+    }
+
+    /**
+     * Returns the identifier the library assigned to this user when it was registered.
+     * Identifiers are consecutive from {@code 0} in registration order and are used to refer
+     * to the user when the library is persisted.
+     *
+     * @return the identifier of this user, or {@code -1} if it has not been registered
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier of this user. Called by the library on registration.
+     *
+     * @param id the identifier assigned by the library
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns a string representation of the User object by delegating to the
      * {@code Messages.userDescription} method. This method provides a human-readable
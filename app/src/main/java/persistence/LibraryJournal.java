@@ -0,0 +1,556 @@
+package persistence;
+import events.LibraryEvent;
+import events.LibraryEventListener;
+import exceptions.PersistenceException;
+import jfr.CatalogLoadEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+
+/**
+ * Append-only journal of the changes made to a {@link Library}, with group commit.
+ * <p>
+ * Used as the library's event listener, the journal appends a record for every registration,
+ * borrow and return, and only lets the operation return once that record is on disk. Records
+ * are written by a single writer thread through a {@link FileChannel}: it takes every record
+ * queued since its last write, writes them with one gathering write and makes them durable
+ * with a single {@code fsync}, so many concurrent operations share the cost of one flush.
+ * A maximum batch size of {@code 1} gives one {@code fsync} per operation.
+ * </p>
+ *
+ * <p>
+ * Every record carries a sequence number and a CRC. After a crash, {@link #replay} rebuilds
+ * the library by applying the records after the sequence covered by the last snapshot, and
+ * opening the journal again drops a record that was only partially written. Once a snapshot
+ * has been saved, {@link #checkpoint(long)} drops the records it covers.
+ * </p>
+ *
+ * <p>
+ * Record layout: {@code int length, long sequence, byte type, payload, int crc}, where
+ * {@code length} counts the sequence, type and payload, and the CRC covers the same bytes.
+ * A user's record ends with their loan limit, which records written before loan limits existed
+ * lack; those users get the default limit.
+ * </p>
+ */
+public class LibraryJournal implements LibraryEventListener, AutoCloseable {
+    private static final byte CHECKPOINT = 0;
+    private static final byte AUTHOR_REGISTERED = 1;
+    private static final byte BOOK_REGISTERED = 2;
+    private static final byte USER_REGISTERED = 3;
+    private static final byte BOOK_BORROWED = 4;
+    private static final byte BOOK_RETURNED = 5;
+
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    /**
+     * Records waiting to be written, and the future completed once they are durable.
+     */
+    private record PendingWrite(ByteBuffer records, CompletableFuture<Void> durable) {
+    }
+
+    private final FileChannel channel;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingWrite> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Thread writer;
+    private long lastSequence;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private LibraryJournal(FileChannel channel, long lastSequence, int maxBatchSize) {
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::writeLoop, "library-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens the journal in the given file for appending, creating it if needed.
+     * A record left partially written by a crash is cut off.
+     *
+     * @param file         the journal file
+     * @param maxBatchSize the maximum number of operations made durable by a single {@code fsync}
+     * @return the journal
+     * @throws PersistenceException if the file cannot be opened
+     */
+    public static LibraryJournal open(Path file, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        try {
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] end = {0};
+            long lastSequence = scan(channel, (sequence, type, payload) -> { }, end);
+            channel.truncate(end[0]);
+            channel.position(end[0]);
+            return new LibraryJournal(channel, lastSequence, maxBatchSize);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not open journal " + file, e);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last record appended to the journal.
+     *
+     * @return the last sequence number, or {@code 0} if nothing was ever journaled
+     */
+    public long getLastSequence() {
+        appendLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the records for the event and waits until they are durable.
+     *
+     * @param event the event that happened
+     * @throws PersistenceException if the records could not be written
+     */
+    @Override
+    public void onEvent(LibraryEvent event) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        appendLock.lock();
+        try {
+            checkOpen();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            encode(event, out);
+            queue.put(new PendingWrite(ByteBuffer.wrap(bytes.toByteArray()), durable));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not encode " + event, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while journaling " + event, e);
+        } finally {
+            appendLock.unlock();
+        }
+        await(durable);
+    }
+
+    /**
+     * Drops the records covered by a snapshot once it has been saved.
+     * <p>
+     * The snapshot is usually taken at {@link #getLastSequence()} while the library keeps
+     * changing, so records appended between reading that sequence and this call are kept:
+     * only records up to {@code coveredSequence} are removed. Appends are held while the
+     * journal is rewritten, and the sequence keeps counting from where it was, so records
+     * written afterwards still sort after the snapshot. The kept records are read into memory
+     * and written back at the start of the file.
+     * </p>
+     *
+     * @param coveredSequence the last sequence number covered by the saved snapshot
+     * @throws IllegalArgumentException if the sequence is beyond the last record appended
+     * @throws PersistenceException if the journal could not be rewritten
+     */
+    public void checkpoint(long coveredSequence) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        appendLock.lock();
+        try {
+            checkOpen();
+            if (coveredSequence > lastSequence) {
+                throw new IllegalArgumentException("Sequence " + coveredSequence
+                    + " is beyond the last record appended, " + lastSequence);
+            }
+            ByteArrayOutputStream marker = new ByteArrayOutputStream(32);
+            writeRecord(new DataOutputStream(marker), ++lastSequence, CHECKPOINT, new byte[0]);
+            queue.put(new PendingWrite(ByteBuffer.wrap(marker.toByteArray()), durable));
+            await(durable);
+            // The append lock keeps anything else out of the queue, so the writer thread is idle.
+            ByteArrayOutputStream kept = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(kept);
+            scan(channel, (sequence, type, payload) -> {
+                if (sequence > coveredSequence && type != CHECKPOINT) {
+                    byte[] bytes = new byte[payload.remaining()];
+                    payload.get(bytes);
+                    writeRecord(out, sequence, type, bytes);
+                }
+            }, new long[1]);
+            marker.writeTo(kept);
+            ByteBuffer records = ByteBuffer.wrap(kept.toByteArray());
+            channel.truncate(0);
+            channel.position(0);
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not checkpoint journal", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while checkpointing journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting records, waits for the queued ones to be written and closes the file.
+     * Records still queued once the writer thread has stopped fail with a
+     * {@link PersistenceException} rather than leaving their callers waiting.
+     */
+    @Override
+    public void close() {
+        // Under the append lock, a record is either queued before the writer thread can see
+        // the flag, or refused by checkOpen().
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not close journal", e);
+        } finally {
+            IOException closedFailure = new IOException("Journal is closed");
+            for (PendingWrite write; (write = queue.poll()) != null; ) {
+                write.durable().completeExceptionally(closedFailure);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the changes recorded in a journal file on top of a library.
+     * <p>
+     * The library should hold the state of the last snapshot, or be empty if there is none,
+     * and should not have a listener that journals again. Records with a sequence number up to
+     * {@code afterSequence}, which the snapshot already covers, are skipped. Registrations are
+     * replayed through the library's registration methods, so entities get the ids they had,
+     * and loans through {@link Library#restoreLoan} and {@link Library#restoreReturn}. Loan records
+     * set the state of their copy rather than change it, so replaying records that a snapshot
+     * taken by {@link LibrarySnapshot#write(Library, Path, LibraryJournal)} already reflects is harmless.
+     * </p>
+     *
+     * @param file          the journal file
+     * @param library       the library to apply the records to
+     * @param afterSequence the last sequence number covered by the snapshot
+     * @return the sequence number of the last record in the journal
+     * @throws PersistenceException if the journal cannot be read or does not match the library
+     */
+    public static long replay(Path file, Library library, long afterSequence) {
+        if (!Files.exists(file)) {
+            return afterSequence;
+        }
+        Map<String, Author> unregisteredAuthors = new HashMap<>();
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long last = scan(channel, (sequence, type, payload) -> {
+                if (sequence > afterSequence) {
+                    apply(library, type, payload, unregisteredAuthors);
+                }
+            }, new long[1]);
+            event.commit("journal", file, library, "loaded");
+            return Math.max(last, afterSequence);
+        } catch (IOException e) {
+            event.commit("journal", file, library, e.getClass().getSimpleName());
+            throw new PersistenceException("Could not replay journal " + file, e);
+        } catch (RuntimeException e) {
+            event.commit("journal", file, library, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    /**
+     * Receives the records read by {@link #scan}.
+     */
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long sequence, byte type, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * Reads every complete, intact record of a journal from its start.
+     *
+     * @param channel the journal
+     * @param visitor receives each record
+     * @param end     receives the position right after the last intact record
+     * @return the sequence number of the last intact record, or {@code 0} if there is none
+     * @throws IOException if the journal cannot be read
+     */
+    private static long scan(FileChannel channel, RecordVisitor visitor, long[] end) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        long lastSequence = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.flip().getInt();
+            if (length < Long.BYTES + 1 || position + HEADER_BYTES + length + TRAILER_BYTES > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length + TRAILER_BYTES);
+            while (body.hasRemaining()) {
+                channel.read(body, position + HEADER_BYTES + body.position());
+            }
+            body.flip();
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != body.getInt(length)) {
+                break;
+            }
+            long sequence = body.getLong();
+            byte type = body.get();
+            body.limit(length);
+            visitor.visit(sequence, type, body.slice());
+            lastSequence = sequence;
+            position += HEADER_BYTES + length + TRAILER_BYTES;
+        }
+        end[0] = position;
+        return lastSequence;
+    }
+
+    /**
+     * Applies one journal record to a library being rebuilt.
+     *
+     * @param library             the library being rebuilt
+     * @param type                the type of the record
+     * @param payload             the payload of the record
+     * @param unregisteredAuthors authors of journaled books that were never registered, by name
+     */
+    private static void apply(Library library, byte type, ByteBuffer payload, Map<String, Author> unregisteredAuthors) {
+        switch (type) {
+            case AUTHOR_REGISTERED -> {
+                int id = payload.getInt();
+                Author author = new Author(readString(payload));
+                library.registerAuthor(author);
+                checkId("author", id, author.getId());
+            }
+            case BOOK_REGISTERED -> {
+                int id = payload.getInt();
+                String title = readString(payload);
+                int authorId = payload.getInt();
+                String authorName = readString(payload);
+                Author author = authorId < 0
+                    ? unregisteredAuthors.computeIfAbsent(authorName, Author::new)
+                    : library.findAuthorById(authorId);
+                Book book = new Book(title, author);
+                library.registerBook(book);
+                checkId("book", id, book.getId());
+            }
+            case USER_REGISTERED -> {
+                int id = payload.getInt();
+                String name = readString(payload);
+                int loanLimit = payload.hasRemaining() ? payload.getInt() : User.DEFAULT_LOAN_LIMIT;
+                User user = new User(name, loanLimit);
+                library.registerUser(user);
+                checkId("user", id, user.getId());
+            }
+            case BOOK_BORROWED -> {
+                Book book = library.findBookById(payload.getInt());
+                User user = library.findUserById(payload.getInt());
+                if (book.getBorrowedBy() != user) {
+                    // A snapshot taken while loans changed may hold a later borrower of the copy,
+                    // whose own record follows this one.
+                    library.restoreReturn(book);
+                }
+                library.restoreLoan(book, user);
+            }
+            case BOOK_RETURNED -> library.restoreReturn(library.findBookById(payload.getInt()));
+            default -> { }
+        }
+    }
+
+    /**
+     * Encodes the records for an event, assigning them the next sequence numbers.
+     * Bulk registrations produce one record per registered entity. Called with the append lock held.
+     *
+     * @param event the event to encode
+     * @param out   receives the encoded records
+     * @throws IOException if encoding fails
+     */
+    private void encode(LibraryEvent event, DataOutputStream out) throws IOException {
+        switch (event) {
+            case LibraryEvent.AuthorRegistered e -> writeAuthor(out, e.author());
+            case LibraryEvent.AuthorsRegistered e -> {
+                for (Author author : e.authors()) {
+                    writeAuthor(out, author);
+                }
+            }
+            case LibraryEvent.BookRegistered e -> writeBook(out, e.book());
+            case LibraryEvent.BooksRegistered e -> {
+                for (Book book : e.books()) {
+                    writeBook(out, book);
+                }
+            }
+            case LibraryEvent.UserRegistered e -> writeUser(out, e.user());
+            case LibraryEvent.UsersRegistered e -> {
+                for (User user : e.users()) {
+                    writeUser(out, user);
+                }
+            }
+            case LibraryEvent.BookBorrowed e -> writeLoan(out, BOOK_BORROWED, e.book(), e.user());
+            case LibraryEvent.BookReturned e -> writeLoan(out, BOOK_RETURNED, e.book(), e.user());
+        }
+    }
+
+    private void writeAuthor(DataOutputStream out, Author author) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeInt(author.getId());
+        writeString(data, author.getName());
+        writeRecord(out, ++lastSequence, AUTHOR_REGISTERED, payload.toByteArray());
+    }
+
+    private void writeBook(DataOutputStream out, Book book) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeInt(book.getId());
+        writeString(data, book.getTitle());
+        data.writeInt(book.getAuthor().getId());
+        writeString(data, book.getAuthor().getName());
+        writeRecord(out, ++lastSequence, BOOK_REGISTERED, payload.toByteArray());
+    }
+
+    private void writeUser(DataOutputStream out, User user) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeInt(user.getId());
+        writeString(data, user.getName());
+        data.writeInt(user.getLoanLimit());
+        writeRecord(out, ++lastSequence, USER_REGISTERED, payload.toByteArray());
+    }
+
+    private void writeLoan(DataOutputStream out, byte type, Book book, User user) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(2 * Integer.BYTES).putInt(book.getId()).putInt(user.getId());
+        writeRecord(out, ++lastSequence, type, payload.array());
+    }
+
+    /**
+     * Writes one framed record: length, sequence, type, payload and CRC.
+     */
+    private static void writeRecord(DataOutputStream out, long sequence, byte type, byte[] payload) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(Long.BYTES + 1 + payload.length)
+            .putLong(sequence).put(type).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        out.writeInt(body.capacity());
+        out.write(body.array());
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding.
+     */
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     */
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkId(String entity, int journaled, int assigned) {
+        if (journaled != assigned) {
+            throw new PersistenceException("Journaled " + entity + " id " + journaled
+                + " does not match the id " + assigned + " assigned on replay", null);
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal failed earlier", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private static void await(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new PersistenceException("Could not write journal", e.getCause());
+        }
+    }
+
+    /**
+     * Body of the writer thread: takes every queued record, writes them with one gathering write,
+     * forces them to disk once and then releases the operations waiting for them.
+     */
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(maxBatchSize, QUEUE_CAPACITY));
+        while (true) {
+            PendingWrite first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+                closed = true;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = batch.get(i).records();
+            }
+            try {
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+                for (PendingWrite write : batch) {
+                    write.durable().complete(null);
+                }
+            } catch (IOException e) {
+                failure = e;
+                for (PendingWrite write : batch) {
+                    write.durable().completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
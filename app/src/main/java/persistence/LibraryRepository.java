@@ -0,0 +1,78 @@
+package persistence;
+import java.util.Collection;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+
+/**
+ * Stores the state of a {@link Library}: its authors, books, users and active loans.
+ * <p>
+ * Entities are identified by the ids the library assigned to them on registration.
+ * Registrations are saved in batches; loans are written one at a time as books are
+ * borrowed and returned. Use a {@link RepositoryEventListener} to keep a repository
+ * up to date with a running library.
+ * </p>
+ *
+ * <p>
+ * Storage failures are reported as {@link exceptions.PersistenceException}.
+ * </p>
+ */
+public interface LibraryRepository extends AutoCloseable {
+
+    /**
+     * Saves newly registered authors.
+     *
+     * @param authors the authors to be saved
+     */
+    void saveAuthors(Collection<Author> authors);
+
+    /**
+     * Saves newly registered books.
+     *
+     * @param books the books to be saved
+     */
+    void saveBooks(Collection<Book> books);
+
+    /**
+     * Saves newly registered users.
+     *
+     * @param users the users to be saved
+     */
+    void saveUsers(Collection<User> users);
+
+    /**
+     * Records that a book has been lent to a user.
+     *
+     * @param book the borrowed book
+     * @param user the user who borrowed it
+     */
+    void saveLoan(Book book, User user);
+
+    /**
+     * Records that a book has been returned.
+     *
+     * @param book the returned book
+     */
+    void deleteLoan(Book book);
+
+    /**
+     * Saves the whole state of a library, replacing whatever was stored before.
+     *
+     * @param library the library to be saved
+     */
+    void saveAll(Library library);
+
+    /**
+     * Rebuilds a library from the stored state. The returned library has no event listener.
+     *
+     * @return a new library holding the stored authors, books, users and loans
+     */
+    Library load();
+
+    /**
+     * Releases the underlying storage.
+     */
+    @Override
+    void close();
+}
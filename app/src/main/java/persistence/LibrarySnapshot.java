@@ -0,0 +1,356 @@
+package persistence;
+import exceptions.PersistenceException;
+import jfr.CatalogLoadEvent;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.LibraryState;
+import models.User;
+
+/**
+ * Compact binary snapshot of a whole {@link Library}: its authors, books, users and active loans.
+ * <p>
+ * Every name and title is stored once in a string table, and authors, books and users refer to
+ * it by index, so the many copies of a title share a single entry. Entities are stored in id order
+ * as fixed-width rows of {@code int}s, and a book's row also holds the id of its borrower.
+ * </p>
+ *
+ * <p>
+ * Loading maps the file into memory instead of reading it through a stream. Strings are decoded
+ * from the mapped table the first time a row refers to them and then shared, so each distinct title
+ * is decoded and allocated once however many copies it has, and consecutive copies of a title
+ * share its normalized form as well. The rows are registered with the
+ * library's bulk registration methods, which assign the same ids they had when the snapshot was taken.
+ * </p>
+ *
+ * <p>
+ * A snapshot records the journal sequence it covers, so that a {@link LibraryJournal} can be
+ * replayed on top of it. Its authors, books and users are captured together, and a loan change
+ * the snapshot misses is journaled after that sequence, so borrows and returns may continue while
+ * it is written.
+ * </p>
+ *
+ * <p>
+ * Layout, all big-endian: {@code int magic, int version, long journalSequence, int strings,
+ * int authors, int books, int users}; {@code strings + 1} string offsets followed by the UTF-8
+ * bytes of the strings; one {@code name} per author; one {@code title, authorId, authorName,
+ * borrowerId} per book, with {@code -1} for an unregistered author or no borrower; one
+ * {@code name, loanLimit} per user. Snapshots of version 1 hold only the {@code name} of each
+ * user, whose loan limit is then the default one.
+ * </p>
+ */
+public final class LibrarySnapshot {
+    private static final int MAGIC = 0x4C494253;
+    private static final int VERSION = 2;
+    private static final int NAME_ONLY_USERS_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 4 * Integer.BYTES;
+    private static final int BOOK_ROW_INTS = 4;
+    private static final int USER_ROW_INTS = 2;
+
+    private LibrarySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a journaled library to the given file, covering the journal's last
+     * sequence. Borrows and returns may go on while it is written: the state is captured by
+     * {@link Library#captureState}, and the loan changes it misses are replayed from the journal.
+     *
+     * @param library the library to be saved
+     * @param file    the snapshot file
+     * @param journal the journal of the library
+     * @throws PersistenceException if the snapshot cannot be written
+     */
+    public static void write(Library library, Path file, LibraryJournal journal) {
+        write(library.captureState(journal::getLastSequence), file);
+    }
+
+    /**
+     * Writes a snapshot of the library to the given file. The snapshot is written to a temporary
+     * file next to it first and then moved into place, so a crash never leaves a partial snapshot.
+     *
+     * @param library         the library to be saved
+     * @param file            the snapshot file
+     * @param journalSequence the last journal sequence reflected in the library, or {@code 0}
+     * @throws PersistenceException if the snapshot cannot be written
+     */
+    public static void write(Library library, Path file, long journalSequence) {
+        write(library.captureState(() -> journalSequence), file);
+    }
+
+    /**
+     * Writes a captured state as described by {@link #write(Library, Path, long)}.
+     */
+    private static void write(LibraryState state, Path file) {
+        long journalSequence = state.journalSequence();
+        List<Author> authors = state.authors();
+        List<Book> books = state.books();
+        List<User> users = state.users();
+
+        StringTable strings = new StringTable();
+        int[] authorRows = new int[authors.size()];
+        for (int i = 0; i < authorRows.length; i++) {
+            authorRows[i] = strings.indexOf(authors.get(i).getName());
+        }
+        int[] bookRows = new int[books.size() * BOOK_ROW_INTS];
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            User borrower = state.borrowers().get(i);
+            int row = i * BOOK_ROW_INTS;
+            bookRows[row] = strings.indexOf(book.getTitle());
+            bookRows[row + 1] = book.getAuthor().getId();
+            bookRows[row + 2] = book.getAuthor().getId() < 0 ? strings.indexOf(book.getAuthor().getName()) : -1;
+            bookRows[row + 3] = borrower == null ? -1 : borrower.getId();
+        }
+        int[] userRows = new int[users.size() * USER_ROW_INTS];
+        for (int i = 0; i < users.size(); i++) {
+            userRows[i * USER_ROW_INTS] = strings.indexOf(users.get(i).getName());
+            userRows[i * USER_ROW_INTS + 1] = users.get(i).getLoanLimit();
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSequence);
+            out.writeInt(strings.size());
+            out.writeInt(authorRows.length);
+            out.writeInt(books.size());
+            out.writeInt(users.size());
+            strings.writeTo(out);
+            writeInts(out, authorRows);
+            writeInts(out, bookRows);
+            writeInts(out, userRows);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write snapshot " + file, e);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Loads a library from a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return a new library holding the saved authors, books, users and loans
+     * @throws PersistenceException if the file cannot be read or is not a valid snapshot
+     */
+    public static Library load(Path file) {
+        Library library = new Library();
+        read(file, library);
+        return library;
+    }
+
+    /**
+     * Returns the last journal sequence reflected in a snapshot, from which the journal should be replayed.
+     *
+     * @param file the snapshot file
+     * @return the journal sequence covered by the snapshot
+     * @throws PersistenceException if the file cannot be read or is not a valid snapshot
+     */
+    public static long journalSequence(Path file) {
+        return header(map(file), file).getLong(2 * Integer.BYTES);
+    }
+
+    /**
+     * Loads a snapshot into an empty library.
+     *
+     * @param file    the snapshot file
+     * @param library the empty library to load the snapshot into
+     * @return the journal sequence covered by the snapshot
+     * @throws PersistenceException if the file cannot be read or is not a valid snapshot
+     */
+    public static long read(Path file, Library library) {
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        try {
+            long journalSequence = readInto(file, library);
+            event.commit("snapshot", file, library, "loaded");
+            return journalSequence;
+        } catch (RuntimeException e) {
+            event.commit("snapshot", file, library, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    /**
+     * Loads a snapshot as described by {@link #read(Path, Library)}, without its Flight Recorder event.
+     */
+    private static long readInto(Path file, Library library) {
+        ByteBuffer buffer = header(map(file), file);
+        boolean withLoanLimits = buffer.getInt(Integer.BYTES) != NAME_ONLY_USERS_VERSION;
+        long journalSequence = buffer.getLong(2 * Integer.BYTES);
+        int stringCount = buffer.getInt(HEADER_BYTES - 4 * Integer.BYTES);
+        int authorCount = buffer.getInt(HEADER_BYTES - 3 * Integer.BYTES);
+        int bookCount = buffer.getInt(HEADER_BYTES - 2 * Integer.BYTES);
+        int userCount = buffer.getInt(HEADER_BYTES - Integer.BYTES);
+
+        try {
+            MappedStrings strings = new MappedStrings(buffer, HEADER_BYTES, stringCount);
+            buffer.position(strings.end());
+
+            List<Author> authors = new ArrayList<>(authorCount);
+            for (int i = 0; i < authorCount; i++) {
+                authors.add(new Author(strings.get(buffer.getInt())));
+            }
+            library.registerAuthors(authors);
+
+            List<Book> books = new ArrayList<>(bookCount);
+            int[] borrowers = new int[bookCount];
+            Map<String, Author> unregisteredAuthors = new HashMap<>();
+            Book previous = null;
+            for (int i = 0; i < bookCount; i++) {
+                String title = strings.get(buffer.getInt());
+                int authorId = buffer.getInt();
+                int authorName = buffer.getInt();
+                borrowers[i] = buffer.getInt();
+                Author author = authorId < 0
+                    ? unregisteredAuthors.computeIfAbsent(strings.get(authorName), Author::new)
+                    : authors.get(authorId);
+                Book book = previous != null && previous.getTitle() == title && previous.getAuthor() == author
+                    ? new Book(previous)
+                    : new Book(title, author);
+                books.add(book);
+                previous = book;
+            }
+            library.registerBooks(books);
+
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                String name = strings.get(buffer.getInt());
+                users.add(new User(name, withLoanLimits ? buffer.getInt() : User.DEFAULT_LOAN_LIMIT));
+            }
+            library.registerUsers(users);
+
+            for (int i = 0; i < bookCount; i++) {
+                if (borrowers[i] >= 0) {
+                    library.restoreLoan(books.get(i), users.get(borrowers[i]));
+                }
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new PersistenceException("Snapshot " + file + " is truncated or corrupt", e);
+        }
+        return journalSequence;
+    }
+
+    /**
+     * Maps a whole snapshot file into memory, read-only.
+     */
+    private static ByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new PersistenceException("Snapshot " + file + " is larger than 2 GB", null);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Checks the header of a mapped snapshot.
+     */
+    private static ByteBuffer header(ByteBuffer buffer, Path file) {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new PersistenceException(file + " is not a library snapshot", null);
+        }
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION && version != NAME_ONLY_USERS_VERSION) {
+            throw new PersistenceException("Unsupported snapshot version " + buffer.getInt(Integer.BYTES), null);
+        }
+        return buffer;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Collects the distinct strings of a snapshot being written, in order of first use.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = encoded.size();
+                indexes.put(value, index);
+                encoded.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            return index;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * The string table of a mapped snapshot. Each string is decoded the first time it is asked
+     * for and the same instance is returned afterwards.
+     */
+    private static final class MappedStrings {
+        private final ByteBuffer buffer;
+        private final int offsets;
+        private final int data;
+        private final String[] decoded;
+
+        MappedStrings(ByteBuffer buffer, int start, int count) {
+            this.buffer = buffer;
+            this.offsets = start;
+            this.data = start + (count + 1) * Integer.BYTES;
+            this.decoded = new String[count];
+        }
+
+        String get(int index) {
+            String value = decoded[index];
+            if (value == null) {
+                int from = buffer.getInt(offsets + index * Integer.BYTES);
+                int to = buffer.getInt(offsets + (index + 1) * Integer.BYTES);
+                byte[] bytes = new byte[to - from];
+                buffer.get(data + from, bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                decoded[index] = value;
+            }
+            return value;
+        }
+
+        int end() {
+            return data + buffer.getInt(offsets + decoded.length * Integer.BYTES);
+        }
+    }
+}
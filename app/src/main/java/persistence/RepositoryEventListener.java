@@ -0,0 +1,43 @@
+package persistence;
+import events.LibraryEvent;
+import events.LibraryEventListener;
+import java.util.List;
+
+/**
+ * Writes every change to a {@link models.Library} through to a {@link LibraryRepository}
+ * as it happens, on the thread that made the change.
+ * <p>
+ * Bulk registrations are saved as one batch; borrows and returns update a single loan.
+ * </p>
+ */
+public class RepositoryEventListener implements LibraryEventListener {
+    private final LibraryRepository repository;
+
+    /**
+     * Constructs a listener that writes changes to the given repository.
+     *
+     * @param repository the repository kept in sync with the library
+     */
+    public RepositoryEventListener(LibraryRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Saves the change described by the event.
+     *
+     * @param event the event that happened
+     */
+    @Override
+    public void onEvent(LibraryEvent event) {
+        switch (event) {
+            case LibraryEvent.BookRegistered e -> repository.saveBooks(List.of(e.book()));
+            case LibraryEvent.BooksRegistered e -> repository.saveBooks(e.books());
+            case LibraryEvent.AuthorRegistered e -> repository.saveAuthors(List.of(e.author()));
+            case LibraryEvent.AuthorsRegistered e -> repository.saveAuthors(e.authors());
+            case LibraryEvent.UserRegistered e -> repository.saveUsers(List.of(e.user()));
+            case LibraryEvent.UsersRegistered e -> repository.saveUsers(e.users());
+            case LibraryEvent.BookBorrowed e -> repository.saveLoan(e.book(), e.user());
+            case LibraryEvent.BookReturned e -> repository.deleteLoan(e.book());
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package persistence;
+import exceptions.PersistenceException;
+import jfr.CatalogLoadEvent;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+
+/**
+ * {@link LibraryRepository} backed by a SQLite database, through the {@code sqlite-jdbc} driver.
+ * <p>
+ * The database can live in a local file ({@link #open(Path)}) or in memory
+ * ({@link #inMemory()}). Registrations are inserted with batched prepared statements inside
+ * a single transaction. Loans are written through with statements that are prepared once and
+ * reused, and the loan changes of threads that arrive while a transaction is running are
+ * committed together in the next one. Books and users are indexed by their normalized title
+ * and name.
+ * </p>
+ *
+ * <p>
+ * A JDBC connection cannot be used by several threads at once, so every operation is
+ * serialized on the repository.
+ * </p>
+ */
+public class SqliteLibraryRepository implements LibraryRepository {
+    private static final int FETCH_SIZE = 10_000;
+    private static final int NO_USER = -1;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS authors ("
+            + "id INTEGER PRIMARY KEY, name TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS books ("
+            + "id INTEGER PRIMARY KEY, title TEXT NOT NULL, normalized_title TEXT NOT NULL, "
+            + "author_id INTEGER REFERENCES authors(id), author_name TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS users ("
+            + "id INTEGER PRIMARY KEY, name TEXT NOT NULL, normalized_name TEXT NOT NULL, "
+            + "loan_limit INTEGER NOT NULL DEFAULT 1)",
+        "CREATE TABLE IF NOT EXISTS loans ("
+            + "book_id INTEGER PRIMARY KEY REFERENCES books(id), user_id INTEGER NOT NULL REFERENCES users(id))",
+        "CREATE INDEX IF NOT EXISTS books_normalized_title ON books(normalized_title)",
+        "CREATE INDEX IF NOT EXISTS users_normalized_name ON users(normalized_name)",
+        "CREATE INDEX IF NOT EXISTS loans_user ON loans(user_id)"
+    };
+
+    /**
+     * A loan saved, or deleted if {@code userId} is {@link #NO_USER}, and the future completed
+     * once the transaction holding it is committed.
+     */
+    private record LoanWrite(int bookId, int userId, CompletableFuture<Void> committed) {
+    }
+
+    private final String url;
+    private final Connection connection;
+    private final PreparedStatement insertAuthor;
+    private final PreparedStatement insertBook;
+    private final PreparedStatement insertUser;
+    private final PreparedStatement upsertLoan;
+    private final PreparedStatement deleteLoan;
+    private final List<LoanWrite> pendingLoans = new ArrayList<>();
+
+    /**
+     * Opens a repository on the given JDBC URL and creates the schema if it does not exist.
+     *
+     * @param url the JDBC URL of the SQLite database, e.g. {@code jdbc:sqlite:library.db}
+     * @throws PersistenceException if the database cannot be opened
+     */
+    public SqliteLibraryRepository(String url) {
+        this.url = url;
+        try {
+            this.connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA foreign_keys = ON");
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = NORMAL");
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+                addLoanLimitColumn(statement);
+            }
+            this.insertAuthor = connection.prepareStatement(
+                "INSERT INTO authors (id, name) VALUES (?, ?)");
+            this.insertBook = connection.prepareStatement(
+                "INSERT INTO books (id, title, normalized_title, author_id, author_name) VALUES (?, ?, ?, ?, ?)");
+            this.insertUser = connection.prepareStatement(
+                "INSERT INTO users (id, name, normalized_name, loan_limit) VALUES (?, ?, ?, ?)");
+            this.upsertLoan = connection.prepareStatement(
+                "INSERT OR REPLACE INTO loans (book_id, user_id) VALUES (?, ?)");
+            this.deleteLoan = connection.prepareStatement(
+                "DELETE FROM loans WHERE book_id = ?");
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not open library database " + url, e);
+        }
+    }
+
+    /**
+     * Adds the loan limit of users to a database created before users had one.
+     * Existing users get the default limit.
+     *
+     * @param statement a statement on the database
+     * @throws SQLException if the schema cannot be read or changed
+     */
+    private static void addLoanLimitColumn(Statement statement) throws SQLException {
+        try (ResultSet columns = statement.executeQuery("PRAGMA table_info(users)")) {
+            while (columns.next()) {
+                if (columns.getString("name").equals("loan_limit")) {
+                    return;
+                }
+            }
+        }
+        statement.execute("ALTER TABLE users ADD COLUMN loan_limit INTEGER NOT NULL DEFAULT " + User.DEFAULT_LOAN_LIMIT);
+    }
+
+    /**
+     * Opens a repository stored in the given SQLite file, creating it if needed.
+     *
+     * @param file the database file
+     * @return the repository
+     */
+    public static SqliteLibraryRepository open(Path file) {
+        return new SqliteLibraryRepository("jdbc:sqlite:" + file);
+    }
+
+    /**
+     * Opens a repository held in memory, which disappears when it is closed.
+     *
+     * @return the repository
+     */
+    public static SqliteLibraryRepository inMemory() {
+        return new SqliteLibraryRepository("jdbc:sqlite::memory:");
+    }
+
+    @Override
+    public synchronized void saveAuthors(Collection<Author> authors) {
+        inTransaction("save authors", () -> {
+            for (Author author : authors) {
+                insertAuthor.setInt(1, author.getId());
+                insertAuthor.setString(2, author.getName());
+                insertAuthor.addBatch();
+            }
+            insertAuthor.executeBatch();
+        });
+    }
+
+    /**
+     * Saves newly registered books. A book whose author was never registered in the library is
+     * stored with the author's name only, and loading it creates an unregistered author again.
+     *
+     * @param books the books to be saved
+     */
+    @Override
+    public synchronized void saveBooks(Collection<Book> books) {
+        inTransaction("save books", () -> {
+            for (Book book : books) {
+                insertBook.setInt(1, book.getId());
+                insertBook.setString(2, book.getTitle());
+                insertBook.setString(3, book.getNormalizedTitle());
+                if (book.getAuthor().getId() < 0) {
+                    insertBook.setNull(4, Types.INTEGER);
+                } else {
+                    insertBook.setInt(4, book.getAuthor().getId());
+                }
+                insertBook.setString(5, book.getAuthor().getName());
+                insertBook.addBatch();
+            }
+            insertBook.executeBatch();
+        });
+    }
+
+    @Override
+    public synchronized void saveUsers(Collection<User> users) {
+        inTransaction("save users", () -> {
+            for (User user : users) {
+                insertUser.setInt(1, user.getId());
+                insertUser.setString(2, user.getName());
+                insertUser.setString(3, user.getNormalizedName());
+                insertUser.setInt(4, user.getLoanLimit());
+                insertUser.addBatch();
+            }
+            insertUser.executeBatch();
+        });
+    }
+
+    /**
+     * Saves a loan, committed together with the loan changes of other threads waiting for the
+     * connection; see {@link #writeLoan(LoanWrite)}.
+     *
+     * @param book the borrowed book
+     * @param user the user who borrowed it
+     */
+    @Override
+    public void saveLoan(Book book, User user) {
+        writeLoan(new LoanWrite(book.getId(), user.getId(), new CompletableFuture<>()));
+    }
+
+    /**
+     * Deletes a loan, committed together with the loan changes of other threads waiting for the
+     * connection; see {@link #writeLoan(LoanWrite)}.
+     *
+     * @param book the returned book
+     */
+    @Override
+    public void deleteLoan(Book book) {
+        writeLoan(new LoanWrite(book.getId(), NO_USER, new CompletableFuture<>()));
+    }
+
+    /**
+     * Queues a loan change and waits until it is committed.
+     * <p>
+     * The thread that gets the connection next commits every change queued so far in one
+     * transaction, so threads that queued theirs while another transaction was running share
+     * a single commit, and a change that was already committed by another thread returns
+     * without touching the database.
+     * </p>
+     *
+     * @param write the change to be made
+     * @throws PersistenceException if the transaction holding the change failed
+     */
+    private void writeLoan(LoanWrite write) {
+        synchronized (pendingLoans) {
+            pendingLoans.add(write);
+        }
+        synchronized (this) {
+            if (!write.committed().isDone()) {
+                flushLoans();
+            }
+        }
+        try {
+            write.committed().join();
+        } catch (CompletionException e) {
+            throw new PersistenceException("Could not save loan change of book " + write.bookId(), e.getCause());
+        }
+    }
+
+    /**
+     * Commits every queued loan change in one transaction. Only the last change queued for
+     * each book is written, as a batch of upserts and a batch of deletes.
+     */
+    private void flushLoans() {
+        List<LoanWrite> batch;
+        synchronized (pendingLoans) {
+            batch = new ArrayList<>(pendingLoans);
+            pendingLoans.clear();
+        }
+        Map<Integer, LoanWrite> latest = new LinkedHashMap<>();
+        for (LoanWrite write : batch) {
+            latest.put(write.bookId(), write);
+        }
+        try {
+            inTransaction("save " + latest.size() + " loan changes", () -> {
+                boolean upserts = false;
+                boolean deletes = false;
+                for (LoanWrite write : latest.values()) {
+                    if (write.userId() == NO_USER) {
+                        deleteLoan.setInt(1, write.bookId());
+                        deleteLoan.addBatch();
+                        deletes = true;
+                    } else {
+                        upsertLoan.setInt(1, write.bookId());
+                        upsertLoan.setInt(2, write.userId());
+                        upsertLoan.addBatch();
+                        upserts = true;
+                    }
+                }
+                if (upserts) {
+                    upsertLoan.executeBatch();
+                }
+                if (deletes) {
+                    deleteLoan.executeBatch();
+                }
+            });
+        } catch (PersistenceException e) {
+            for (LoanWrite write : batch) {
+                write.committed().completeExceptionally(e);
+            }
+            return;
+        }
+        for (LoanWrite write : batch) {
+            write.committed().complete(null);
+        }
+    }
+
+    @Override
+    public synchronized void saveAll(Library library) {
+        List<Author> authors = library.getAllAuthors();
+        List<Book> books = library.getAllBooks();
+        List<User> users = library.getAllUsers();
+        inTransaction("save library", () -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM loans");
+                statement.executeUpdate("DELETE FROM users");
+                statement.executeUpdate("DELETE FROM books");
+                statement.executeUpdate("DELETE FROM authors");
+            }
+            saveAuthors(authors);
+            saveBooks(books);
+            saveUsers(users);
+            for (Book book : books) {
+                if (book.getBorrowedBy() != null) {
+                    upsertLoan.setInt(1, book.getId());
+                    upsertLoan.setInt(2, book.getBorrowedBy().getId());
+                    upsertLoan.addBatch();
+                }
+            }
+            upsertLoan.executeBatch();
+        });
+    }
+
+    /**
+     * Rebuilds a library from the stored state.
+     * <p>
+     * Each table is read in id order through a forward-only cursor with a large fetch size,
+     * and its rows are registered with the library's bulk registration methods, so the ids
+     * the library assigns match the stored ones. Loans are restored last.
+     * </p>
+     *
+     * @return a new library holding the stored authors, books, users and loans
+     */
+    @Override
+    public synchronized Library load() {
+        Library library = new Library();
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+
+            List<Author> authors = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("SELECT id, name FROM authors ORDER BY id")) {
+                while (rows.next()) {
+                    checkId("author", rows.getInt(1), authors.size());
+                    authors.add(new Author(rows.getString(2)));
+                }
+            }
+            library.registerAuthors(authors);
+
+            List<Book> books = new ArrayList<>(count(statement, "books"));
+            Map<String, Author> unregisteredAuthors = new HashMap<>();
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT id, title, author_id, author_name FROM books ORDER BY id")) {
+                while (rows.next()) {
+                    checkId("book", rows.getInt(1), books.size());
+                    int authorId = rows.getInt(3);
+                    Author author = rows.wasNull()
+                        ? unregisteredAuthors.computeIfAbsent(rows.getString(4), Author::new)
+                        : authors.get(authorId);
+                    books.add(new Book(rows.getString(2), author));
+                }
+            }
+            library.registerBooks(books);
+
+            List<User> users = new ArrayList<>(count(statement, "users"));
+            try (ResultSet rows = statement.executeQuery("SELECT id, name, loan_limit FROM users ORDER BY id")) {
+                while (rows.next()) {
+                    checkId("user", rows.getInt(1), users.size());
+                    users.add(new User(rows.getString(2), rows.getInt(3)));
+                }
+            }
+            library.registerUsers(users);
+
+            try (ResultSet rows = statement.executeQuery("SELECT book_id, user_id FROM loans")) {
+                while (rows.next()) {
+                    library.restoreLoan(books.get(rows.getInt(1)), users.get(rows.getInt(2)));
+                }
+            }
+        } catch (SQLException e) {
+            event.commit("sqlite", url, library, e.getClass().getSimpleName());
+            throw new PersistenceException("Could not load library", e);
+        } catch (RuntimeException e) {
+            event.commit("sqlite", url, library, e.getClass().getSimpleName());
+            throw e;
+        }
+        event.commit("sqlite", url, library, "loaded");
+        return library;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not close library database", e);
+        }
+    }
+
+    /**
+     * Work done against the database inside {@link #inTransaction(String, SqlWork)}.
+     */
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Runs the given work in a single transaction, or as part of the enclosing one if a
+     * transaction is already open, rolling back if it fails.
+     *
+     * @param description what the work does, used in the error message
+     * @param work        the work to be run
+     * @throws PersistenceException if the work fails
+     */
+    private void inTransaction(String description, SqlWork work) {
+        try {
+            if (!connection.getAutoCommit()) {
+                work.run();
+                return;
+            }
+            connection.setAutoCommit(false);
+            try {
+                work.run();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not " + description, e);
+        }
+    }
+
+    /**
+     * Returns the number of rows of a table, used to pre-size the lists built while loading.
+     *
+     * @param statement the statement to run the query with
+     * @param table     the name of the table
+     * @return the number of rows
+     * @throws SQLException if the query fails
+     */
+    private static int count(Statement statement, String table) throws SQLException {
+        try (ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    /**
+     * Checks that stored ids are consecutive, as assigned by the library, so that loading
+     * the rows in order reproduces them.
+     *
+     * @param entity   the kind of entity, used in the error message
+     * @param storedId the id read from the database
+     * @param expected the id the library will assign to the entity
+     * @throws SQLException if the ids do not match
+     */
+    private static void checkId(String entity, int storedId, int expected) throws SQLException {
+        if (storedId != expected) {
+            throw new SQLException("Expected " + entity + " id " + expected + " but found " + storedId);
+        }
+    }
+}
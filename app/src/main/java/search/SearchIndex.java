@@ -0,0 +1,343 @@
+package search;
+import static utils.StringUtils.normalize;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index for finding values by short texts, such as book titles and author names.
+ * <p>
+ * Texts are compared after {@link utils.StringUtils#normalize(String)}, so accents and case never
+ * matter. The index answers two kinds of queries:
+ * <ul>
+ *   <li>Prefix completion: the texts, or any word of the texts, starting with what was typed so far.
+ *   Texts are kept in sorted maps, which serve the same purpose as a trie: the matches of a prefix
+ *   are one contiguous range, read in order and only as far as needed.</li>
+ *   <li>Typo-tolerant search: the texts within a few edits of the query. Each text is indexed by its
+ *   trigrams, the three-character substrings of the text padded with spaces, with one posting list
+ *   per trigram and text length. An edit changes at most three trigrams and one character of length,
+ *   so a text within {@code k} edits of the query is at most {@code k} characters longer or shorter
+ *   and contains at least one of any {@code 3k + 1} trigrams of the query. Only the texts in the
+ *   postings of the query's rarest trigrams, for those lengths, are compared with the query, with an
+ *   edit distance that gives up past {@code k}.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Texts are added by one thread at a time, under a lock held by the owner of the index, while
+ * queries may run concurrently with additions and with each other without locking.
+ * </p>
+ *
+ * @param <T> the type of the values found through the index
+ */
+public class SearchIndex<T> {
+    private static final char SEPARATOR = '\u0000';
+    private static final int GRAM = 3;
+
+    private final NavigableMap<String, Integer> textStarts = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Integer> wordStarts = new ConcurrentSkipListMap<>();
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+    private volatile String[] texts = new String[16];
+    private volatile Object[] values = new Object[16];
+    private int size;
+
+    /**
+     * Adds a text under which a value can be found. A value can be added under several texts,
+     * and is reported once per query however many of its texts match. Callers must not add
+     * texts concurrently.
+     *
+     * @param text  the text, normalized by the index
+     * @param value the value found through the text
+     */
+    public void add(String text, T value) {
+        String normalized = normalize(text).strip();
+        if (normalized.isEmpty()) {
+            return;
+        }
+        int id = size;
+        String[] currentTexts = texts;
+        Object[] currentValues = values;
+        if (id == currentTexts.length) {
+            currentTexts = Arrays.copyOf(currentTexts, id * 2);
+            currentValues = Arrays.copyOf(currentValues, id * 2);
+        }
+        currentTexts[id] = normalized;
+        currentValues[id] = value;
+        texts = currentTexts;
+        values = currentValues;
+        size = id + 1;
+
+        textStarts.put(normalized + SEPARATOR + id, id);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ') {
+                wordStarts.put(normalized.substring(i) + SEPARATOR + id, id);
+            }
+        }
+        for (String gram : trigrams(normalized)) {
+            postings.computeIfAbsent(postingKey(gram, normalized.length()), key -> new Posting()).add(id);
+        }
+    }
+
+    /**
+     * Returns the values whose texts start with the given prefix, followed by those with a word
+     * of their text starting with it. Within each group, shorter and alphabetically earlier texts
+     * come first.
+     *
+     * @param prefix the beginning of a text or of a word, normalized by the index
+     * @param limit  the maximum number of values to return
+     * @return the matching values, at most {@code limit}
+     */
+    public List<T> complete(String prefix, int limit) {
+        String normalized = normalize(prefix).strip();
+        Set<T> found = new LinkedHashSet<>();
+        collect(textStarts, normalized, limit, found);
+        collect(wordStarts, normalized, limit, found);
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Returns the values whose texts are within the given number of edits of the query, closest
+     * first, and shorter texts first among equally close ones. An edit inserts, deletes or replaces
+     * one character.
+     * <p>
+     * Queries too short to be filtered by trigrams are searched with fewer edits: a query with
+     * {@code n} trigrams allows at most {@code (n - 1) / 3} edits.
+     * </p>
+     *
+     * @param query    the text to look for, normalized by the index
+     * @param limit    the maximum number of values to return
+     * @param maxEdits the maximum number of edits between the query and a matching text
+     * @return the matching values, at most {@code limit}
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> search(String query, int limit, int maxEdits) {
+        String normalized = normalize(query).strip();
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<String> grams = trigrams(normalized);
+        int edits = Math.max(0, Math.min(maxEdits, (grams.size() - 1) / GRAM));
+        int length = normalized.length();
+        List<Posting[]> candidates = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Posting[] byLength = new Posting[2 * edits + 1];
+            for (int i = 0; i < byLength.length; i++) {
+                byLength[i] = postings.getOrDefault(postingKey(gram, length - edits + i), Posting.EMPTY);
+            }
+            candidates.add(byLength);
+        }
+        candidates.sort(Comparator.comparingInt(SearchIndex::size));
+
+        List<Posting> selected = new ArrayList<>();
+        for (Posting[] byLength : candidates.subList(0, Math.min(candidates.size(), GRAM * edits + 1))) {
+            selected.addAll(Arrays.asList(byLength));
+        }
+        List<int[]> matches = new ArrayList<>();
+        String[] currentTexts = null;
+        IdMerge merge = new IdMerge(selected);
+        for (int id = merge.next(); id >= 0; id = merge.next()) {
+            if (currentTexts == null || id >= currentTexts.length) {
+                currentTexts = texts;
+            }
+            String text = currentTexts[id];
+            int distance = distance(normalized, text, edits);
+            if (distance <= edits) {
+                matches.add(new int[] {distance, text.length(), id});
+            }
+        }
+        matches.sort(Comparator.<int[]>comparingInt(match -> match[0])
+            .thenComparingInt(match -> match[1])
+            .thenComparingInt(match -> match[2]));
+
+        Object[] currentValues = values;
+        Set<T> found = new LinkedHashSet<>();
+        for (int[] match : matches) {
+            if (found.size() == limit) {
+                break;
+            }
+            found.add((T) currentValues[match[2]]);
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Adds the values of the texts in the range of a sorted map that starts with a prefix,
+     * until the set holds enough values.
+     *
+     * @param starts the sorted map of texts or words to their ids
+     * @param prefix the normalized prefix
+     * @param limit  the number of values wanted in total
+     * @param found  the values found so far
+     */
+    @SuppressWarnings("unchecked")
+    private void collect(NavigableMap<String, Integer> starts, String prefix, int limit, Set<T> found) {
+        if (found.size() >= limit) {
+            return;
+        }
+        for (int id : starts.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            found.add((T) values[id]);
+            if (found.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the posting list of a trigram among the texts of a given length.
+     *
+     * @param gram   the trigram
+     * @param length the length of the texts
+     * @return the key of the posting list
+     */
+    private static String postingKey(String gram, int length) {
+        return gram + (char) Math.max(0, Math.min(length, Character.MAX_VALUE));
+    }
+
+    /**
+     * Returns how many ids the posting lists of a trigram hold over a range of lengths.
+     *
+     * @param byLength the posting lists of the trigram, one per length
+     * @return the number of ids in them
+     */
+    private static int size(Posting[] byLength) {
+        int size = 0;
+        for (Posting posting : byLength) {
+            size += posting.size;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the distinct trigrams of a normalized text, padded with two spaces in front and one behind
+     * so that the beginning of the text weighs more than its middle.
+     *
+     * @param text the normalized text
+     * @return the trigrams of the text
+     */
+    static Set<String> trigrams(String text) {
+        String padded = "  " + text + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Computes the edit distance between two strings, giving up as soon as it exceeds a bound.
+     *
+     * @param a   the first string
+     * @param b   the second string
+     * @param max the largest distance of interest
+     * @return the edit distance, or {@code max + 1} if it is larger than {@code max}
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int over = max + 1;
+        if (Math.abs(n - m) > max) {
+            return over;
+        }
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, over);
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = Math.min(i, over);
+            current[from - 1] = from == 1 ? current[0] : over;
+            int rowMin = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = over;
+            }
+            if (rowMin > max) {
+                return over;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
+    /**
+     * Walks the union of several posting lists in increasing id order, reporting each id once.
+     * Posting lists are sorted, since ids are added in increasing order.
+     */
+    private static final class IdMerge {
+        private final int[][] ids;
+        private final int[] sizes;
+        private final int[] positions;
+
+        IdMerge(List<Posting> postings) {
+            ids = new int[postings.size()][];
+            sizes = new int[postings.size()];
+            positions = new int[postings.size()];
+            for (int i = 0; i < ids.length; i++) {
+                Posting posting = postings.get(i);
+                sizes[i] = posting.size;
+                ids[i] = posting.ids;
+            }
+        }
+
+        /**
+         * Returns the next id of the union.
+         *
+         * @return the smallest id not reported yet, or {@code -1} once every list is exhausted
+         */
+        int next() {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < ids.length; i++) {
+                if (positions[i] < sizes[i]) {
+                    min = Math.min(min, ids[i][positions[i]]);
+                }
+            }
+            if (min == Integer.MAX_VALUE) {
+                return -1;
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (positions[i] < sizes[i] && ids[i][positions[i]] == min) {
+                    positions[i]++;
+                }
+            }
+            return min;
+        }
+    }
+
+    /**
+     * Ids of the texts containing one trigram, in the order they were added.
+     * Only the adding thread writes to it, and the array is published before the size that covers it,
+     * so readers read the size first.
+     */
+    private static final class Posting {
+        private static final Posting EMPTY = new Posting();
+
+        private volatile int[] ids = new int[4];
+        private volatile int size;
+
+        void add(int id) {
+            int[] current = ids;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                ids = current;
+            }
+            current[size] = id;
+            size = size + 1;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package storage;
+import models.BookStatus;
+import static utils.Messages.copyDescription;
+
+/**
+ * Lightweight handle on a copy stored in a {@link CompactLibrary}.
+ * <p>
+ * A view holds nothing but the library and the id of the copy, and reads the title, author and
+ * loan of the copy from the library's columns each time it is asked, so it always reflects the
+ * current state of the copy. Views are created on demand and can be discarded at any time;
+ * two views of the same copy are equal.
+ * </p>
+ */
+public final class BookView {
+    private final CompactLibrary library;
+    private final int id;
+
+    /**
+     * Constructs a view of a copy of the given library.
+     *
+     * @param library the library that stores the copy
+     * @param id      the id of the copy
+     */
+    BookView(CompactLibrary library, int id) {
+        this.library = library;
+        this.id = id;
+    }
+
+    /**
+     * Returns the id of the copy, which is its position in the library's copy table.
+     *
+     * @return the id of the copy
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the title of the copy, as it was first registered.
+     *
+     * @return the title of the copy
+     */
+    public String getTitle() {
+        return library.titleOf(id);
+    }
+
+    /**
+     * Returns the name of the author of the copy.
+     *
+     * @return the author's name
+     */
+    public String getAuthorName() {
+        return library.authorNameOf(id);
+    }
+
+    /**
+     * Returns the current status of the copy.
+     *
+     * @return {@link BookStatus#AVAILABLE} or {@link BookStatus#BORROWED}
+     */
+    public BookStatus getStatus() {
+        return isAvailable() ? BookStatus.AVAILABLE : BookStatus.BORROWED;
+    }
+
+    /**
+     * Checks if the copy is currently available for borrowing.
+     *
+     * @return {@code true} if nobody has borrowed the copy
+     */
+    public boolean isAvailable() {
+        return library.isAvailable(id);
+    }
+
+    /**
+     * Returns the name of the user who borrowed the copy.
+     *
+     * @return the borrower's name, or {@code null} if the copy is not borrowed
+     */
+    public String getBorrowerName() {
+        return library.borrowerNameOf(id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BookView view && view.library == library && view.id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    /**
+     * Returns a description of the copy in the same format as {@link models.Book#toString()}.
+     *
+     * @return a string representation of this copy
+     */
+    @Override
+    public String toString() {
+        return copyDescription(getTitle(), getAuthorName(), getBorrowerName());
+    }
+}
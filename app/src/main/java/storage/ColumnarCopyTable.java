@@ -0,0 +1,120 @@
+package storage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * {@link CopyTable} that stores each attribute of the copies in its own column of primitives.
+ * <p>
+ * The title, author and borrower of the copies live in three {@code int} columns, and whether
+ * each copy is borrowed is one bit of a bitset, so a copy costs twelve bytes and a bit, against
+ * a whole object per copy with {@link models.Book}. Columns grow in chunks that never move, so
+ * loans can be updated while copies are added.
+ * </p>
+ *
+ * <p>
+ * A copy is reserved by atomically setting its bit, which at most one thread can do, and only
+ * then is its borrower written. Returning clears the borrower first and the bit last, so the
+ * copy cannot be lent again before it is fully given back.
+ * </p>
+ */
+public class ColumnarCopyTable implements CopyTable {
+    private static final int WORDS_PER_CHUNK = IntColumn.CHUNK_SIZE / Long.SIZE;
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final IntColumn titleIds = new IntColumn();
+    private final IntColumn authorIds = new IntColumn();
+    private final IntColumn borrowers = new IntColumn();
+    private volatile long[][] borrowedBits = new long[0][];
+
+    @Override
+    public int size() {
+        return borrowers.size();
+    }
+
+    @Override
+    public int add(int titleId, int authorId) {
+        int copy = titleIds.size();
+        int chunk = copy >>> IntColumn.CHUNK_BITS;
+        if (chunk == borrowedBits.length) {
+            long[][] grown = Arrays.copyOf(borrowedBits, chunk + 1);
+            grown[chunk] = new long[WORDS_PER_CHUNK];
+            borrowedBits = grown;
+        }
+        titleIds.append(titleId);
+        authorIds.append(authorId);
+        borrowers.append(NO_USER);
+        return copy;
+    }
+
+    @Override
+    public int getTitleId(int copy) {
+        return titleIds.get(copy);
+    }
+
+    @Override
+    public int getAuthorId(int copy) {
+        return authorIds.get(copy);
+    }
+
+    @Override
+    public int getBorrower(int copy) {
+        return borrowers.get(copy);
+    }
+
+    @Override
+    public boolean isAvailable(int copy) {
+        return ((long) WORD.getVolatile(words(copy), wordIndex(copy)) & mask(copy)) == 0;
+    }
+
+    @Override
+    public int nextAvailable(int from, int to) {
+        int copy = from;
+        while (copy < to) {
+            long free = ~(long) WORD.getVolatile(words(copy), wordIndex(copy)) & (-1L << copy);
+            if (free != 0) {
+                int found = (copy & -Long.SIZE) + Long.numberOfTrailingZeros(free);
+                return found < to ? found : -1;
+            }
+            copy = (copy & -Long.SIZE) + Long.SIZE;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean tryBorrow(int copy, int userId) {
+        long previous = (long) WORD.getAndBitwiseOr(words(copy), wordIndex(copy), mask(copy));
+        if ((previous & mask(copy)) != 0) {
+            return false;
+        }
+        borrowers.set(copy, userId);
+        return true;
+    }
+
+    @Override
+    public boolean tryReturn(int copy, int userId) {
+        if (!borrowers.compareAndSet(copy, userId, NO_USER)) {
+            return false;
+        }
+        WORD.getAndBitwiseAnd(words(copy), wordIndex(copy), ~mask(copy));
+        return true;
+    }
+
+    @Override
+    public long footprintBytes() {
+        return titleIds.footprintBytes() + authorIds.footprintBytes() + borrowers.footprintBytes()
+            + (long) borrowedBits.length * WORDS_PER_CHUNK * Long.BYTES;
+    }
+
+    private long[] words(int copy) {
+        return borrowedBits[copy >>> IntColumn.CHUNK_BITS];
+    }
+
+    private static int wordIndex(int copy) {
+        return (copy & (IntColumn.CHUNK_SIZE - 1)) >>> 6;
+    }
+
+    private static long mask(int copy) {
+        return 1L << copy;
+    }
+}
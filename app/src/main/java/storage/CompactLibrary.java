@@ -0,0 +1,468 @@
+package storage;
+import static utils.Messages.*;
+import static utils.StringUtils.normalize;
+import exceptions.BookNotAvailableException;
+import exceptions.BookNotFoundException;
+import exceptions.DuplicateUserException;
+import exceptions.UserHasBookException;
+import exceptions.UserHasNoBookException;
+import exceptions.UserNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import utils.Messages;
+
+/**
+ * Library that keeps its copies in a {@link CopyTable} instead of one {@link models.Book} per copy.
+ * <p>
+ * It offers the borrowing operations of {@link models.Library} for catalogs too large to hold as
+ * objects. Titles and authors are interned: each distinct title, compared by normalized title, and
+ * each distinct author name is stored once and referred to by an {@code int} id, so a copy is only
+ * a row of the copy table. Users are also identified by {@code int} ids, and each user's loan is
+ * the id of the borrowed copy. {@link BookView}s are created on demand to look at a copy.
+ * </p>
+ *
+ * <p>
+ * The copy table is a {@link ColumnarCopyTable} on the heap by default. A library built on an
+ * {@link OffHeapCopyTable} keeps only its title, author and user tables on the heap.
+ * </p>
+ *
+ * <p>
+ * Copies registered together get consecutive ids, so the copies of a title are a few runs of ids.
+ * To find a free copy of a title, the runs are scanned in the table's bitset of borrowed copies,
+ * sixty-four copies per word, starting with the run the last copy was found in. A title also keeps
+ * its number of available copies, so a title with none is rejected without scanning.
+ * </p>
+ *
+ * <p>
+ * Registrations share a read/write lock with the catalog-wide reads. Borrowing and returning take
+ * no lock at all: a user's loan is claimed with a compare-and-set on the user's slot before a copy
+ * is reserved, which keeps a user from holding two copies, and the copy itself is reserved
+ * atomically by the copy table.
+ * </p>
+ */
+public class CompactLibrary {
+    private static final int NO_COPY = -1;
+    private static final int PENDING = -2;
+
+    private final CopyTable copies;
+    private final Map<String, TitleRow> titleIndex;
+    private volatile TitleRow[] titles;
+    private int titleCount;
+    private final Map<String, Integer> authorIndex;
+    private final ArrayList<String> authorNames;
+    private final Map<String, Integer> userIndex;
+    private final ArrayList<String> userNames;
+    private final IntColumn loans;
+    private final ReadWriteLock registryLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an empty library that stores its copies in a {@link ColumnarCopyTable}.
+     */
+    public CompactLibrary() {
+        this(new ColumnarCopyTable());
+    }
+
+    /**
+     * Constructs an empty library that stores its copies in the given table.
+     *
+     * @param copies an empty copy table
+     */
+    public CompactLibrary(CopyTable copies) {
+        this.copies = copies;
+        this.titleIndex = new ConcurrentHashMap<>();
+        this.titles = new TitleRow[16];
+        this.authorIndex = new HashMap<>();
+        this.authorNames = new ArrayList<>();
+        this.userIndex = new ConcurrentHashMap<>();
+        this.userNames = new ArrayList<>();
+        this.loans = new IntColumn();
+    }
+
+    /**
+     * Registers a number of copies of a title by an author.
+     * <p>
+     * The title and the author are added to their tables the first time they are seen; later
+     * registrations of the same normalized title or author name reuse them. The copies get
+     * consecutive ids and are all available.
+     * </p>
+     *
+     * @param title      the title of the copies
+     * @param authorName the name of their author
+     * @param count      the number of copies to add
+     * @return the id of the first new copy
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public int registerCopies(String title, String authorName, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        String normalizedTitle = normalize(title);
+        String normalizedAuthor = normalize(authorName);
+        registryLock.writeLock().lock();
+        try {
+            int authorId = authorIndex.computeIfAbsent(normalizedAuthor, key -> {
+                authorNames.add(authorName);
+                return authorNames.size() - 1;
+            });
+            TitleRow row = titleIndex.computeIfAbsent(normalizedTitle, key -> addTitle(title));
+            int first = copies.size();
+            for (int i = 0; i < count; i++) {
+                copies.add(row.id, authorId);
+            }
+            if (count > 0) {
+                row.addRun(first, first + count);
+            }
+            return first;
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a title to the title table. Called under the registration lock.
+     *
+     * @param title the title as first registered
+     * @return the new row of the title table
+     */
+    private TitleRow addTitle(String title) {
+        TitleRow[] current = titles;
+        if (titleCount == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        TitleRow row = new TitleRow(titleCount, title);
+        current[titleCount++] = row;
+        titles = current;
+        return row;
+    }
+
+    /**
+     * Registers a user. Like {@link models.Library#registerUser(models.User)}, a name that is
+     * already registered, after normalization, is rejected.
+     *
+     * @param name the name of the user
+     * @return the id of the user
+     * @throws DuplicateUserException if a user with the same normalized name is already registered
+     */
+    public int registerUser(String name) {
+        String normalizedName = normalize(name);
+        registryLock.writeLock().lock();
+        try {
+            if (userIndex.containsKey(normalizedName)) {
+                throw new DuplicateUserException(name, Messages::userAlreadyRegistered);
+            }
+            userNames.add(name);
+            loans.append(NO_COPY);
+            int id = userNames.size() - 1;
+            userIndex.put(normalizedName, id);
+            return id;
+        } finally {
+            registryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lends an available copy of a title to a user.
+     * <p>
+     * The user's loan slot is claimed first, so a user who already has a book never takes a copy
+     * out of circulation. If no copy is free, the slot is released again.
+     * </p>
+     *
+     * @param bookTitle the title of the book to be borrowed
+     * @param userName  the name of the user borrowing the book
+     * @return the copy lent to the user
+     * @throws UserNotFoundException     if the user is not registered
+     * @throws BookNotFoundException     if no copy of the title is registered
+     * @throws UserHasBookException      if the user already has a book
+     * @throws BookNotAvailableException if every copy of the title is borrowed
+     */
+    public BookView borrowBook(String bookTitle, String userName) {
+        int user = findUserId(userName);
+        TitleRow row = titleIndex.get(normalize(bookTitle));
+        if (row == null) {
+            throw new BookNotFoundException(bookTitle, Messages::bookNotFound);
+        }
+        if (!loans.compareAndSet(user, NO_COPY, PENDING)) {
+            throw new UserHasBookException(userName(user), Messages::userAlreadyHasBook);
+        }
+        int copy = row.reserve(copies, user);
+        if (copy == NO_COPY) {
+            loans.set(user, NO_COPY);
+            throw new BookNotAvailableException(bookTitle, Messages::bookNotAvailable);
+        }
+        loans.set(user, copy);
+        return new BookView(this, copy);
+    }
+
+    /**
+     * Gives back the copy a user has borrowed.
+     *
+     * @param userName the name of the user returning the book
+     * @throws UserNotFoundException  if the user is not registered
+     * @throws UserHasNoBookException if the user has no borrowed book
+     */
+    public void returnBook(String userName) {
+        int user = findUserId(userName);
+        int copy = loans.get(user);
+        if (copy < 0 || !loans.compareAndSet(user, copy, NO_COPY)) {
+            throw new UserHasNoBookException(userName(user), Messages::userHasNoBorrowedBook);
+        }
+        copies.tryReturn(copy, user);
+        titles[copies.getTitleId(copy)].available.incrementAndGet();
+    }
+
+    /**
+     * Returns the copy a user has borrowed.
+     *
+     * @param userName the name of the user
+     * @return the borrowed copy, or {@code null} if the user has no book
+     * @throws UserNotFoundException if the user is not registered
+     */
+    public BookView getBorrowedBook(String userName) {
+        int copy = loans.get(findUserId(userName));
+        return copy < 0 ? null : new BookView(this, copy);
+    }
+
+    /**
+     * Returns how many copies of a title are currently available for borrowing.
+     *
+     * @param title the title of the book
+     * @return the number of available copies, or {@code 0} if the title is not registered
+     */
+    public int getAvailableCopies(String title) {
+        TitleRow row = titleIndex.get(normalize(title));
+        return row == null ? 0 : row.available.get();
+    }
+
+    /**
+     * Returns the number of copies registered in the library.
+     *
+     * @return the number of copies
+     */
+    public int getCopyCount() {
+        return copies.size();
+    }
+
+    /**
+     * Returns a view of the copy with the given id.
+     *
+     * @param id the id of the copy
+     * @return a view of the copy
+     * @throws BookNotFoundException if no copy has that id
+     */
+    public BookView getBook(int id) {
+        if (id < 0 || id >= copies.size()) {
+            throw new BookNotFoundException("#" + id, Messages::bookNotFound);
+        }
+        return new BookView(this, id);
+    }
+
+    /**
+     * Generates a summary of all copies in the library, one per line, in the format of
+     * {@link models.Library#getBooksSummary()}.
+     *
+     * @return a string containing the description of every copy, each on a new line
+     */
+    public String getBooksSummary() {
+        StringBuilder sb = new StringBuilder();
+        writeBooksSummary(sb, 0, Integer.MAX_VALUE);
+        return sb.toString();
+    }
+
+    /**
+     * Writes a page of the summary of all copies to the given destination, one copy per line,
+     * in the format of {@link models.Library#writeBooksSummary(Appendable, int, int)}. Each
+     * description is appended straight from the columns, without creating a view of the copy.
+     *
+     * @param out    the destination of the summary
+     * @param offset the id of the first copy to describe
+     * @param limit  the maximum number of copies to describe
+     * @return the number of copies described
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     * @throws UncheckedIOException     if the destination cannot be written to
+     */
+    public int writeBooksSummary(Appendable out, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        int end = (int) Math.min(copies.size(), (long) offset + limit);
+        try {
+            for (int copy = offset; copy < end; copy++) {
+                appendCopyDescription(out, titleOf(copy), authorNameOf(copy), borrowerNameOf(copy));
+                out.append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Math.max(end - offset, 0);
+    }
+
+    /**
+     * Returns the number of bytes the copy table takes in memory.
+     *
+     * @return the size of the copy table in memory
+     * @see CopyTable#footprintBytes()
+     */
+    public long getCopyStorageBytes() {
+        return copies.footprintBytes();
+    }
+
+    /**
+     * Returns the title of a copy. Called by {@link BookView}.
+     *
+     * @param copy the id of the copy
+     * @return the title of the copy
+     */
+    String titleOf(int copy) {
+        return titles[copies.getTitleId(copy)].title;
+    }
+
+    /**
+     * Returns the author name of a copy. Called by {@link BookView}.
+     *
+     * @param copy the id of the copy
+     * @return the name of the copy's author
+     */
+    String authorNameOf(int copy) {
+        registryLock.readLock().lock();
+        try {
+            return authorNames.get(copies.getAuthorId(copy));
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the name of the user who borrowed a copy. Called by {@link BookView}.
+     *
+     * @param copy the id of the copy
+     * @return the borrower's name, or {@code null} if the copy is not borrowed
+     */
+    String borrowerNameOf(int copy) {
+        int user = copies.getBorrower(copy);
+        return user == CopyTable.NO_USER ? null : userName(user);
+    }
+
+    /**
+     * Checks if a copy is available. Called by {@link BookView}.
+     *
+     * @param copy the id of the copy
+     * @return {@code true} if nobody has borrowed the copy
+     */
+    boolean isAvailable(int copy) {
+        return copies.isAvailable(copy);
+    }
+
+    /**
+     * Looks a user up by name, comparing normalized names.
+     *
+     * @param name the name of the user
+     * @return the id of the user
+     * @throws UserNotFoundException if no user has that name
+     */
+    private int findUserId(String name) {
+        Integer user = userIndex.get(normalize(name));
+        if (user == null) {
+            throw new UserNotFoundException(name, Messages::userNotFound);
+        }
+        return user;
+    }
+
+    /**
+     * Returns the name a user was registered with.
+     *
+     * @param user the id of the user
+     * @return the user's name
+     */
+    private String userName(int user) {
+        registryLock.readLock().lock();
+        try {
+            return userNames.get(user);
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Row of the title table: a distinct title, the runs of ids of its copies and how many
+     * of them are available.
+     * <p>
+     * Each run is packed in a {@code long}, its first id in the high half and its end in the
+     * low half. A title has few runs, so the array of runs is replaced whenever a run is added,
+     * under the registration lock, and borrowers read it without locking.
+     * </p>
+     */
+    private static final class TitleRow {
+        private final int id;
+        private final String title;
+        private final AtomicInteger available = new AtomicInteger();
+        private volatile long[] runs = new long[0];
+        private volatile int lastRun;
+
+        TitleRow(int id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+
+        /**
+         * Adds the copies in a range of ids, extending the last run if the range follows it.
+         *
+         * @param from the first id, inclusive
+         * @param to   the last id, exclusive
+         */
+        void addRun(int from, int to) {
+            long[] current = runs;
+            int last = current.length - 1;
+            long[] updated;
+            if (last >= 0 && (int) current[last] == from) {
+                updated = current.clone();
+                updated[last] = run((int) (current[last] >>> 32), to);
+            } else {
+                updated = Arrays.copyOf(current, current.length + 1);
+                updated[last + 1] = run(from, to);
+            }
+            runs = updated;
+            available.addAndGet(to - from);
+        }
+
+        /**
+         * Reserves a free copy of this title for a user.
+         *
+         * @param copies the copy table
+         * @param user   the id of the borrower
+         * @return the id of the reserved copy, or {@link #NO_COPY} if every copy is borrowed
+         */
+        int reserve(CopyTable copies, int user) {
+            if (available.get() <= 0) {
+                return NO_COPY;
+            }
+            long[] current = runs;
+            int first = lastRun;
+            for (int i = 0; i < current.length; i++) {
+                int index = (first + i) % current.length;
+                int end = (int) current[index];
+                int copy = copies.nextAvailable((int) (current[index] >>> 32), end);
+                while (copy >= 0) {
+                    if (copies.tryBorrow(copy, user)) {
+                        available.decrementAndGet();
+                        lastRun = index;
+                        return copy;
+                    }
+                    copy = copies.nextAvailable(copy + 1, end);
+                }
+            }
+            return NO_COPY;
+        }
+
+        private static long run(int from, int to) {
+            return ((long) from << 32) | to;
+        }
+    }
+}
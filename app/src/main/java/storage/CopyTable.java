@@ -0,0 +1,103 @@
+package storage;
+
+/**
+ * Storage for the copies of a {@link CompactLibrary}, addressed by consecutive {@code int} ids.
+ * <p>
+ * A copy is a row holding the id of its title, the id of its author and the id of the user
+ * who borrowed it, if any. Rows are only added by one thread at a time, while loans may be
+ * taken and given back concurrently by any number of threads: {@link #tryBorrow(int, int)}
+ * and {@link #tryReturn(int, int)} change a copy's status atomically, so a copy is never
+ * lent to two users.
+ * </p>
+ */
+public interface CopyTable {
+
+    /**
+     * The borrower of a copy nobody has borrowed.
+     */
+    int NO_USER = -1;
+
+    /**
+     * Returns the number of copies in the table.
+     *
+     * @return the number of copies
+     */
+    int size();
+
+    /**
+     * Adds an available copy. Callers must not add copies concurrently.
+     *
+     * @param titleId  the id of the copy's title
+     * @param authorId the id of the copy's author
+     * @return the id of the new copy
+     */
+    int add(int titleId, int authorId);
+
+    /**
+     * Returns the id of the title of a copy.
+     *
+     * @param copy the id of the copy
+     * @return the id of its title
+     */
+    int getTitleId(int copy);
+
+    /**
+     * Returns the id of the author of a copy.
+     *
+     * @param copy the id of the copy
+     * @return the id of its author
+     */
+    int getAuthorId(int copy);
+
+    /**
+     * Returns the id of the user who borrowed a copy. Right after a copy is reserved by
+     * {@link #tryBorrow(int, int)}, this may still return {@link #NO_USER} for a short moment.
+     *
+     * @param copy the id of the copy
+     * @return the id of the borrower, or {@link #NO_USER} if the copy is not borrowed
+     */
+    int getBorrower(int copy);
+
+    /**
+     * Checks whether a copy is available for borrowing.
+     *
+     * @param copy the id of the copy
+     * @return {@code true} if nobody has borrowed the copy
+     */
+    boolean isAvailable(int copy);
+
+    /**
+     * Returns the first available copy in a range of ids.
+     *
+     * @param from the first id of the range, inclusive
+     * @param to   the last id of the range, exclusive
+     * @return the id of the first available copy in the range, or {@code -1} if every copy in it is borrowed
+     */
+    int nextAvailable(int from, int to);
+
+    /**
+     * Atomically lends a copy to a user if it is available.
+     *
+     * @param copy   the id of the copy
+     * @param userId the id of the borrower
+     * @return {@code true} if the copy was lent to the user, {@code false} if it was already borrowed
+     */
+    boolean tryBorrow(int copy, int userId);
+
+    /**
+     * Atomically gives back a copy borrowed by a user.
+     *
+     * @param copy   the id of the copy
+     * @param userId the id of the borrower
+     * @return {@code true} if the copy was returned, {@code false} if it was not borrowed by that user
+     */
+    boolean tryReturn(int copy, int userId);
+
+    /**
+     * Returns the number of bytes the table takes in memory, including space reserved for
+     * copies not added yet.
+     *
+     * @return the size of the table in memory
+     */
+    long footprintBytes();
+}
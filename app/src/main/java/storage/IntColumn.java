@@ -0,0 +1,93 @@
+package storage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Growable column of {@code int}s stored in fixed-size chunks.
+ * <p>
+ * Values are only appended by one thread at a time, under a lock held by the owner of the column,
+ * but can be read and updated by any thread at any time: growing the column adds chunks and never
+ * moves the ones already there, so an element keeps its place and can be updated atomically
+ * through {@link #compareAndSet(int, int, int)} while the column grows.
+ * </p>
+ */
+final class IntColumn {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private volatile int[][] chunks = new int[0][];
+    private volatile int size;
+
+    /**
+     * Returns the number of values in the column.
+     *
+     * @return the size of the column
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a value at the end of the column. Callers must not append concurrently.
+     *
+     * @param value the value to be appended
+     * @return the index of the new value
+     */
+    int append(int value) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        int[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk + 1);
+            current[chunk] = new int[CHUNK_SIZE];
+            chunks = current;
+        }
+        ELEMENT.setRelease(current[chunk], index & CHUNK_MASK, value);
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * Returns the value at the given index.
+     *
+     * @param index the index of the value, less than {@link #size()}
+     * @return the value
+     */
+    int get(int index) {
+        return (int) ELEMENT.getVolatile(chunks[index >>> CHUNK_BITS], index & CHUNK_MASK);
+    }
+
+    /**
+     * Replaces the value at the given index.
+     *
+     * @param index the index of the value, less than {@link #size()}
+     * @param value the new value
+     */
+    void set(int index, int value) {
+        ELEMENT.setVolatile(chunks[index >>> CHUNK_BITS], index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Atomically replaces the value at the given index if it still holds the expected value.
+     *
+     * @param index    the index of the value, less than {@link #size()}
+     * @param expected the value the element must hold
+     * @param value    the new value
+     * @return {@code true} if the value was replaced
+     */
+    boolean compareAndSet(int index, int expected, int value) {
+        return ELEMENT.compareAndSet(chunks[index >>> CHUNK_BITS], index & CHUNK_MASK, expected, value);
+    }
+
+    /**
+     * Returns the number of bytes taken by the chunks of the column.
+     *
+     * @return the size of the column in memory
+     */
+    long footprintBytes() {
+        return (long) chunks.length * CHUNK_SIZE * Integer.BYTES;
+    }
+}
@@ -0,0 +1,143 @@
+package storage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * {@link CopyTable} that stores its columns outside the Java heap.
+ * <p>
+ * Copies are grouped in chunks of {@link IntColumn#CHUNK_SIZE} rows, and each chunk is one direct
+ * {@link ByteBuffer} holding the title, author and borrower columns of its rows followed by their
+ * bitset of borrowed copies. The heap only holds one buffer object per chunk, so the garbage collector
+ * has nothing to trace for the copies themselves, however many there are.
+ * </p>
+ *
+ * <p>
+ * Every element is read and written through a {@link VarHandle} view of the buffer, which gives the
+ * same atomic reservation as {@link ColumnarCopyTable}: a copy is reserved by atomically setting its
+ * bit, and given back by clearing its borrower with a compare-and-set before clearing the bit.
+ * </p>
+ */
+public class OffHeapCopyTable implements CopyTable {
+    private static final int CHUNK_MASK = IntColumn.CHUNK_SIZE - 1;
+    private static final int COLUMN_BYTES = IntColumn.CHUNK_SIZE * Integer.BYTES;
+    private static final int TITLES = 0;
+    private static final int AUTHORS = COLUMN_BYTES;
+    private static final int BORROWERS = 2 * COLUMN_BYTES;
+    private static final int BITS = 3 * COLUMN_BYTES;
+    private static final int CHUNK_BYTES = BITS + IntColumn.CHUNK_SIZE / Byte.SIZE;
+    private static final VarHandle INT =
+        MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int add(int titleId, int authorId) {
+        int copy = size;
+        int chunk = copy >>> IntColumn.CHUNK_BITS;
+        ByteBuffer[] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk + 1);
+            current[chunk] = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+            chunks = current;
+        }
+        ByteBuffer buffer = current[chunk];
+        INT.set(buffer, TITLES + offset(copy), titleId);
+        INT.set(buffer, AUTHORS + offset(copy), authorId);
+        INT.setRelease(buffer, BORROWERS + offset(copy), NO_USER);
+        size = copy + 1;
+        return copy;
+    }
+
+    @Override
+    public int getTitleId(int copy) {
+        return (int) INT.get(chunk(copy), TITLES + offset(copy));
+    }
+
+    @Override
+    public int getAuthorId(int copy) {
+        return (int) INT.get(chunk(copy), AUTHORS + offset(copy));
+    }
+
+    @Override
+    public int getBorrower(int copy) {
+        return (int) INT.getVolatile(chunk(copy), BORROWERS + offset(copy));
+    }
+
+    @Override
+    public boolean isAvailable(int copy) {
+        return ((long) LONG.getVolatile(chunk(copy), wordOffset(copy)) & mask(copy)) == 0;
+    }
+
+    @Override
+    public int nextAvailable(int from, int to) {
+        int copy = from;
+        while (copy < to) {
+            long free = ~(long) LONG.getVolatile(chunk(copy), wordOffset(copy)) & (-1L << copy);
+            if (free != 0) {
+                int found = (copy & -Long.SIZE) + Long.numberOfTrailingZeros(free);
+                return found < to ? found : -1;
+            }
+            copy = (copy & -Long.SIZE) + Long.SIZE;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean tryBorrow(int copy, int userId) {
+        ByteBuffer buffer = chunk(copy);
+        long previous = (long) LONG.getAndBitwiseOr(buffer, wordOffset(copy), mask(copy));
+        if ((previous & mask(copy)) != 0) {
+            return false;
+        }
+        INT.setVolatile(buffer, BORROWERS + offset(copy), userId);
+        return true;
+    }
+
+    @Override
+    public boolean tryReturn(int copy, int userId) {
+        ByteBuffer buffer = chunk(copy);
+        if (!INT.compareAndSet(buffer, BORROWERS + offset(copy), userId, NO_USER)) {
+            return false;
+        }
+        LONG.getAndBitwiseAnd(buffer, wordOffset(copy), ~mask(copy));
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes the table takes outside the heap. The heap only holds the
+     * array of chunks and one buffer object per chunk.
+     *
+     * @return the size of the table in native memory
+     */
+    @Override
+    public long footprintBytes() {
+        return (long) chunks.length * CHUNK_BYTES;
+    }
+
+    private ByteBuffer chunk(int copy) {
+        return chunks[copy >>> IntColumn.CHUNK_BITS];
+    }
+
+    private static int offset(int copy) {
+        return (copy & CHUNK_MASK) * Integer.BYTES;
+    }
+
+    private static int wordOffset(int copy) {
+        return BITS + ((copy & CHUNK_MASK) >>> 6) * Long.BYTES;
+    }
+
+    private static long mask(int copy) {
+        return 1L << copy;
+    }
+}
@@ -1,4 +1,7 @@
 package utils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import models.Author;
 import models.Book;
 import models.BookStatus;
@@ -31,7 +34,17 @@ public class Messages {
      * @return a String message confirming the registration of the book
      */
     public static String bookRegistered(Book book) {
-        return "Book registered: " + book;
+        return "Book registered: " + bookDescription(book, null);
+    }
+
+    /**
+     * Returns a message indicating that several books have been registered at once.
+     *
+     * @param count the number of books registered
+     * @return a String message confirming the registration of the books
+     */
+    public static String booksRegistered(int count) {
+        return count + " books registered.";
     }
 
     /**
@@ -44,6 +57,16 @@ public class Messages {
         return "Author registered: " + author;
     }
 
+    /**
+     * Returns a message indicating that several authors have been registered at once.
+     *
+     * @param count the number of authors registered
+     * @return a String message confirming the registration of the authors
+     */
+    public static String authorsRegistered(int count) {
+        return count + " authors registered.";
+    }
+
     /**
      * Generates a message indicating that a user has been registered.
      *
@@ -54,6 +77,16 @@ public class Messages {
         return "User registered: " + user.getName();
     }
 
+    /**
+     * Returns a message indicating that several users have been registered at once.
+     *
+     * @param count the number of users registered
+     * @return a String message confirming the registration of the users
+     */
+    public static String usersRegistered(int count) {
+        return count + " users registered.";
+    }
+
     /**
      * Returns a message indicating that the specified book has been successfully borrowed.
      *
@@ -64,6 +97,19 @@ public class Messages {
         return "Book successfully borrowed: " + book;
     }
 
+    /**
+     * Returns a message indicating that the specified book has been successfully borrowed by the given user.
+     * Unlike {@link #bookSuccessfullyBorrowed(Book)}, the borrower is taken from the arguments rather than
+     * from the book's current state, so the message stays accurate if it is built after the book was returned.
+     *
+     * @param book the {@link Book} that was borrowed
+     * @param user the {@link User} who borrowed it
+     * @return a success message containing information about the borrowed book
+     */
+    public static String bookSuccessfullyBorrowed(Book book, User user) {
+        return "Book successfully borrowed: " + bookDescription(book, user);
+    }
+
     /**
      * Generates a success message indicating that the specified book has been returned.
      *
@@ -94,6 +140,16 @@ public class Messages {
         return "User '" + name + "' not found.";
     }
 
+    /**
+     * Returns a message indicating that a user with the specified name is already registered.
+     *
+     * @param name the name of the user
+     * @return a message stating that the name is taken
+     */
+    public static String userAlreadyRegistered(String name) {
+        return "User '" + name + "' is already registered.";
+    }
+
     /**
      * Returns a message indicating that the specified user already has a book.
      *
@@ -104,6 +160,29 @@ public class Messages {
         return "User '" + name + "' already has a book.";
     }
 
+    /**
+     * Returns a message indicating that the specified user holds as many books as they may.
+     * A user who may hold a single book is told they already have a book.
+     *
+     * @param name  the name of the user
+     * @param limit the number of books the user may hold at once
+     * @return a message stating that the user cannot borrow another book
+     */
+    public static String loanLimitReached(String name, int limit) {
+        return limit == 1 ? userAlreadyHasBook(name) : "User '" + name + "' already has " + limit + " books.";
+    }
+
+    /**
+     * Returns a message indicating that the specified user does not hold a copy of the specified book.
+     *
+     * @param name  the name of the user
+     * @param title the title of the book
+     * @return a message stating that the user has not borrowed the book
+     */
+    public static String userHasNotBorrowed(String name, String title) {
+        return "User '" + name + "' has not borrowed '" + title + "'.";
+    }
+
     /**
      * Returns a message indicating that the specified book is already borrowed and not available.
      *
@@ -132,10 +211,74 @@ public class Messages {
      * @return a formatted string describing the book's title, author, and status
      */
     public static String bookDescription(Book book) {
-        String statusText = (book.getStatus() == BookStatus.BORROWED && book.getBorrowedBy() != null)
-                ? "Borrowed by " + book.getBorrowedBy().getName()
-                : "Available";
-        return "\"" + book.getTitle() + "\" by " + book.getAuthor().getName() + " - " + statusText;
+        User borrower = book.getBorrowedBy();
+        return bookDescription(book, book.getStatus() == BookStatus.BORROWED ? borrower : null);
+    }
+
+    /**
+     * Generates a descriptive string for a given {@link Book} object as if it were borrowed by the given user,
+     * or available if the user is {@code null}, regardless of the book's current status.
+     *
+     * @param book     the {@link Book} object to describe
+     * @param borrower the user holding the book, or {@code null} to describe it as available
+     * @return a formatted string describing the book's title, author, and status
+     */
+    public static String bookDescription(Book book, User borrower) {
+        return copyDescription(book.getTitle(), book.getAuthor().getName(), borrower != null ? borrower.getName() : null);
+    }
+
+    /**
+     * Generates a descriptive string for a copy given by its title, author name and borrower name,
+     * in the same format as {@link #bookDescription(Book)}. Used for copies that are not kept as
+     * {@link Book} objects.
+     *
+     * @param title        the title of the copy
+     * @param authorName   the name of its author
+     * @param borrowerName the name of the user holding the copy, or {@code null} if it is available
+     * @return a formatted string describing the copy's title, author, and status
+     */
+    public static String copyDescription(String title, String authorName, String borrowerName) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendCopyDescription(sb, title, authorName, borrowerName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the description of a {@link Book}, in the format of {@link #bookDescription(Book)},
+     * to the given destination without building an intermediate string.
+     *
+     * @param out  the destination of the description
+     * @param book the {@link Book} object to describe
+     * @throws IOException if the destination cannot be written to
+     */
+    public static void appendBookDescription(Appendable out, Book book) throws IOException {
+        User borrower = book.getBorrowedBy();
+        appendCopyDescription(out, book.getTitle(), book.getAuthor().getName(),
+            borrower != null && book.getStatus() == BookStatus.BORROWED ? borrower.getName() : null);
+    }
+
+    /**
+     * Appends the description of a copy, in the format of {@link #copyDescription(String, String, String)},
+     * to the given destination without building an intermediate string.
+     *
+     * @param out          the destination of the description
+     * @param title        the title of the copy
+     * @param authorName   the name of its author
+     * @param borrowerName the name of the user holding the copy, or {@code null} if it is available
+     * @throws IOException if the destination cannot be written to
+     */
+    public static void appendCopyDescription(Appendable out, String title, String authorName, String borrowerName)
+            throws IOException {
+        out.append('"').append(title).append("\" by ").append(authorName).append(" - ");
+        if (borrowerName != null) {
+            out.append("Borrowed by ").append(borrowerName);
+        } else {
+            out.append("Available");
+        }
     }
 
     /**
@@ -146,7 +289,39 @@ public class Messages {
      * @return a formatted string describing the user's name and book status
      */
     public static String userDescription(User user) {
-        return user.getName() +
-            (user.hasBorrowedBook() ? " (has book: " + user.getBorrowedBook().getTitle() + ")" : " (no book)");
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendUserDescription(sb, user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the description of a {@link User}, in the format of {@link #userDescription(User)},
+     * to the given destination without building an intermediate string.
+     *
+     * @param out  the destination of the description
+     * @param user the {@link User} object to describe
+     * @throws IOException if the destination cannot be written to
+     */
+    public static void appendUserDescription(Appendable out, User user) throws IOException {
+        out.append(user.getName());
+        Book single = user.getLoanCount() == 1 ? user.getBorrowedBook() : null;
+        if (single != null) {
+            out.append(" (has book: ").append(single.getTitle()).append(')');
+            return;
+        }
+        List<Book> borrowed = user.getBorrowedBooks();
+        if (borrowed.isEmpty()) {
+            out.append(" (no book)");
+        } else {
+            out.append(borrowed.size() == 1 ? " (has book: " : " (has books: ");
+            for (int i = 0; i < borrowed.size(); i++) {
+                out.append(i == 0 ? "" : ", ").append(borrowed.get(i).getTitle());
+            }
+            out.append(')');
+        }
     }
 }
@@ -1,5 +1,6 @@
 package utils;
 import java.text.Normalizer;
+import java.util.regex.Pattern;
 
 /**
  * Utility class for common string operations.
@@ -8,12 +9,16 @@ import java.text.Normalizer;
  * </p>
  */
 public class StringUtils {
+    private static final Pattern DIACRITICAL_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
     /**
      * Normalizes the given string by removing diacritical marks (accents) and converting all characters to lowercase.
      * <p>
      * This method first applies Unicode normalization (NFD form) to decompose characters,
-     * then removes all combining diacritical marks using a regular expression,
-     * and finally converts the result to lowercase.
+     * then removes all combining diacritical marks using a precompiled regular expression,
+     * and finally converts the result to lowercase. Pure-ASCII input has nothing to decompose,
+     * so it skips straight to the lowercase conversion, which returns the input itself when
+     * it is already lowercase.
      * </p>
      *
      * @param input the string to be normalized; may be {@code null}
@@ -22,11 +27,26 @@ public class StringUtils {
      */
     public static String normalize(String input) {
         if (input == null) return null;
+        if (isAscii(input)) return input.toLowerCase();
 
         String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
-        normalized = normalized.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        normalized = DIACRITICAL_MARKS.matcher(normalized).replaceAll("");
         normalized = normalized.toLowerCase();
         return normalized;
     }
-}
 
+    /**
+     * Checks whether every character of the given string is in the ASCII range.
+     *
+     * @param input the string to be checked
+     * @return {@code true} if the string contains only ASCII characters, {@code false} otherwise
+     */
+    private static boolean isAscii(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,124 @@
+package commands;
+import commands.LibraryCommand.BorrowCommand;
+import commands.LibraryCommand.ReturnCommand;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import models.Author;
+import models.Book;
+import models.BorrowResult;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryCommandLoop} class.
+ * <p>
+ * Verifies that submitted commands are applied in order by the owner thread, that many
+ * submitting threads never break the loan rules, and that a closed loop rejects commands.
+ * </p>
+ */
+public class LibraryCommandLoopTest {
+
+    /**
+     * Tests that the commands of one thread are applied in submission order, with the library's results.
+     */
+    @Test
+    public void testAppliesCommandsInOrder() throws Exception {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Alice"));
+        library.registerUser(new User("Bob"));
+
+        try (LibraryCommandLoop loop = new LibraryCommandLoop(library, 4, 2)) {
+            CompletableFuture<BorrowResult> alice = loop.submit(new BorrowCommand("effective java", "Alice"));
+            CompletableFuture<BorrowResult> bob = loop.submit(new BorrowCommand("Effective Java", "Bob"));
+            CompletableFuture<BorrowResult> returned = loop.submit(new ReturnCommand("Alice"));
+            CompletableFuture<BorrowResult> again = loop.submit(new BorrowCommand("Effective Java", "Bob"));
+            CompletableFuture<BorrowResult> unknown = loop.submit(new ReturnCommand("Carol", "Effective Java"));
+
+            assertEquals(BorrowResult.Status.BORROWED, alice.get().getStatus());
+            assertEquals(BorrowResult.Status.BOOK_NOT_AVAILABLE, bob.get().getStatus());
+            assertEquals(BorrowResult.Status.RETURNED, returned.get().getStatus());
+            assertEquals(BorrowResult.Status.BORROWED, again.get().getStatus());
+            assertEquals(BorrowResult.Status.USER_NOT_FOUND, unknown.get().getStatus());
+            assertEquals("Effective Java", library.findUserByName("Bob").getBorrowedBook().getTitle());
+        }
+    }
+
+    /**
+     * Tests that commands submitted from many threads are all applied, and leave consistent loans behind.
+     */
+    @Test
+    public void testManySubmittersOnHotTitle() throws Exception {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        Book first = new Book("Effective Java", author);
+        library.registerBook(first);
+        library.registerBook(new Book(first));
+        int threads = 8;
+        int rounds = 500;
+        for (int t = 0; t < threads; t++) {
+            library.registerUser(new User("User " + t));
+        }
+
+        List<Future<Integer>> borrows = new ArrayList<>();
+        try (LibraryCommandLoop loop = new LibraryCommandLoop(library, 16, 8);
+             ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                String userName = "User " + t;
+                borrows.add(executor.submit(() -> {
+                    int borrowed = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        BorrowResult result = loop.submit(new BorrowCommand("Effective Java", userName)).get();
+                        if (result.isSuccess()) {
+                            borrowed++;
+                            assertTrue(loop.submit(new ReturnCommand(userName)).get().isSuccess());
+                        }
+                    }
+                    return borrowed;
+                }));
+            }
+            int borrowed = 0;
+            for (Future<Integer> future : borrows) {
+                borrowed += future.get();
+            }
+            assertTrue(borrowed > 0);
+            assertEquals((long) threads * rounds + borrowed, loop.getAppliedCommands());
+            assertTrue(loop.getBatchCount() <= loop.getAppliedCommands());
+        }
+        assertEquals(0, library.getStats().getActiveLoanCount());
+        assertEquals(0, library.getStats().getBorrowedCopyCount());
+    }
+
+    /**
+     * Tests that a full queue refuses offers, and that a closed loop rejects what is submitted to it.
+     */
+    @Test
+    public void testBackpressureAndClose() throws Exception {
+        Library library = new Library();
+        library.registerUser(new User("Alice"));
+        LibraryCommandLoop loop = new LibraryCommandLoop(library, 1, 1);
+        int offered = 0;
+        while (offered < 1_000_000 && loop.offer(new ReturnCommand("Alice")) != null) {
+            offered++;
+        }
+        assertTrue(offered < 1_000_000);
+        loop.close();
+        assertEquals(offered, loop.getAppliedCommands());
+
+        CompletableFuture<BorrowResult> late = loop.submit(new ReturnCommand("Alice"));
+        ExecutionException e = assertThrows(ExecutionException.class, late::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertNotNull(loop.offer(new ReturnCommand("Alice")));
+    }
+}
@@ -0,0 +1,96 @@
+package events;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link AsyncEventListener} class.
+ * <p>
+ * Verifies that events emitted by a {@link Library} are written by the background thread
+ * with the same messages, and in the same order, as the console output.
+ * </p>
+ */
+public class AsyncEventListenerTest {
+
+    /**
+     * Tests that every event emitted before {@code close} is written, in order, once the listener is closed.
+     */
+    @Test
+    public void testWritesAllEventsInOrderOnClose() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        AsyncEventListener listener = new AsyncEventListener(out, 4, 2, AsyncEventListener.OverflowPolicy.BLOCK);
+        Library library = new Library(listener);
+
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Alice"));
+        library.borrowBook("Effective Java", "Alice");
+        library.returnBook("Alice");
+        listener.close();
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(5, lines.length);
+        assertEquals("Author registered: Joshua Bloch", lines[0]);
+        assertEquals("Book registered: \"Effective Java\" by Joshua Bloch - Available", lines[1]);
+        assertEquals("User registered: Alice", lines[2]);
+        assertEquals("Book successfully borrowed: \"Effective Java\" by Joshua Bloch - Borrowed by Alice", lines[3]);
+        assertEquals("Book successfully returned: Effective Java", lines[4]);
+        assertEquals(0, listener.getDroppedEvents());
+    }
+
+    /**
+     * Tests that events emitted after the listener was closed are counted as dropped.
+     */
+    @Test
+    public void testDropsEventsAfterClose() {
+        AsyncEventListener listener = new AsyncEventListener(
+            new PrintStream(new ByteArrayOutputStream()), 4, 4, AsyncEventListener.OverflowPolicy.DROP);
+        listener.close();
+
+        listener.onEvent(new LibraryEvent.UserRegistered(new User("Bob")));
+        assertEquals(1, listener.getDroppedEvents());
+    }
+
+    /**
+     * Tests that every event emitted while the listener is being closed is either written or
+     * counted as dropped, with the emitting threads blocked on a full buffer.
+     */
+    @Test
+    public void testEventsEmittedDuringCloseAreNotLost() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        AsyncEventListener listener = new AsyncEventListener(out, 2, 1, AsyncEventListener.OverflowPolicy.BLOCK);
+        int threads = 4;
+        int eventsPerThread = 500;
+        List<Thread> emitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread emitter = new Thread(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    listener.onEvent(new LibraryEvent.AuthorRegistered(new Author("Author " + i)));
+                }
+            });
+            emitter.start();
+            emitters.add(emitter);
+        }
+        Thread.sleep(5);
+        listener.close();
+        for (Thread emitter : emitters) {
+            emitter.join(60_000);
+            assertFalse(emitter.isAlive());
+        }
+
+        String text = bytes.toString(StandardCharsets.UTF_8);
+        long written = text.isEmpty() ? 0 : text.split(System.lineSeparator()).length;
+        assertEquals(threads * eventsPerThread, written + listener.getDroppedEvents());
+    }
+}
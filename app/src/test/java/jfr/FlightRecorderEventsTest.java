@@ -0,0 +1,133 @@
+package jfr;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.Test;
+import persistence.LibrarySnapshot;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Flight Recorder events emitted by {@link Library} and the snapshot loader.
+ * <p>
+ * Each test records with every library event enabled and no threshold, then reads the events
+ * back from the recording file.
+ * </p>
+ */
+public class FlightRecorderEventsTest {
+
+    private static List<RecordedEvent> record(Runnable work) throws Exception {
+        Path file = Files.createTempFile("library", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"library.Borrow", "library.Return", "library.Lookup", "library.CatalogLoad"}) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    /**
+     * Tests that borrows, returns and lookups are recorded with their title, user, scanned copies and outcome.
+     */
+    @Test
+    public void testLoanAndLookupEvents() throws Exception {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        Book first = new Book("Effective Java", author);
+        library.registerBook(first);
+        library.registerBook(new Book(first));
+        library.registerUser(new User("Alice", 2));
+
+        List<RecordedEvent> events = record(() -> {
+            library.borrowBook("Effective Java", "Alice");
+            library.tryBorrowBook("Effective Java", "Carol");
+            library.returnBook("Alice", "effective java");
+            library.tryReturnBook("Alice", "Effective JAVA");
+            library.searchTitles("Efective Java", 5);
+        });
+
+        List<RecordedEvent> borrows = named(events, "library.Borrow");
+        assertEquals(2, borrows.size());
+        assertEquals("Effective Java", borrows.get(0).getString("title"));
+        assertEquals("Alice", borrows.get(0).getString("user"));
+        assertEquals(1, borrows.get(0).getInt("copiesScanned"));
+        assertEquals("BORROWED", borrows.get(0).getString("outcome"));
+        assertEquals("USER_NOT_FOUND", borrows.get(1).getString("outcome"));
+
+        List<RecordedEvent> returns = named(events, "library.Return");
+        assertEquals(2, returns.size());
+        assertEquals("Effective Java", returns.get(0).getString("title"));
+        assertEquals(1, returns.get(0).getInt("loansHeld"));
+        assertEquals("RETURNED", returns.get(0).getString("outcome"));
+        assertEquals("Effective JAVA", returns.get(1).getString("title"));
+        assertNotEquals("RETURNED", returns.get(1).getString("outcome"));
+
+        List<RecordedEvent> lookups = named(events, "library.Lookup");
+        assertTrue(lookups.stream().anyMatch(event -> event.getString("kind").equals("title")
+            && event.getInt("matches") == 2));
+        assertTrue(lookups.stream().anyMatch(event -> event.getString("kind").equals("search")
+            && event.getString("key").equals("Efective Java") && event.getInt("matches") == 1));
+    }
+
+    /**
+     * Tests that the per-call events are only created while a recording has them enabled.
+     */
+    @Test
+    public void testEventsAreNotCreatedWhenDisabled() throws Exception {
+        assertNull(BorrowEvent.start());
+        assertNull(ReturnEvent.start());
+        assertNull(LookupEvent.start());
+        record(() -> {
+            assertNotNull(BorrowEvent.start());
+            assertNotNull(ReturnEvent.start());
+            assertNotNull(LookupEvent.start());
+        });
+        assertNull(BorrowEvent.start());
+    }
+
+    /**
+     * Tests that loading a snapshot is recorded with the counts of the loaded library.
+     */
+    @Test
+    public void testCatalogLoadEvent() throws Exception {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Alice"));
+        library.borrowBook("Effective Java", "Alice");
+        Path file = Files.createTempFile("library", ".snapshot");
+        try {
+            LibrarySnapshot.write(library, file, 0);
+            List<RecordedEvent> loads = named(record(() -> LibrarySnapshot.load(file)), "library.CatalogLoad");
+            assertEquals(1, loads.size());
+            RecordedEvent load = loads.get(0);
+            assertEquals("snapshot", load.getString("source"));
+            assertEquals(file.toString(), load.getString("location"));
+            assertEquals(1, load.getLong("copies"));
+            assertEquals(1, load.getLong("users"));
+            assertEquals(1, load.getLong("loans"));
+            assertEquals("loaded", load.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
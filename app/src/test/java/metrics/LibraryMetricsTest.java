@@ -0,0 +1,125 @@
+package metrics;
+import exceptions.UserHasBookException;
+import exceptions.UserNotFoundException;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import metrics.LibraryMetrics.Operation;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryMetrics} and {@link LatencyHistogram} classes.
+ * <p>
+ * Verifies that a library with metrics enabled counts its operations and their failures by
+ * exception type, that the histogram answers percentiles within its precision, and that the
+ * metrics can be read over JMX.
+ * </p>
+ */
+public class LibraryMetricsTest {
+
+    private static Library library() {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Alice"));
+        library.registerUser(new User("Bob"));
+        return library;
+    }
+
+    /**
+     * Tests that operations are counted only while metrics are enabled, with failures by exception type.
+     */
+    @Test
+    public void testCountsOperationsAndFailures() {
+        Library library = library();
+        assertNull(library.getMetrics());
+        library.borrowBook("Effective Java", "Alice");
+
+        LibraryMetrics metrics = library.enableMetrics();
+        assertSame(metrics, library.enableMetrics());
+        library.registerBook(new Book("Effective Java", new Author("Joshua Bloch")));
+        library.borrowBook("Effective Java", "Bob");
+        assertThrows(UserHasBookException.class, () -> library.borrowBook("Effective Java", "Alice"));
+        library.tryBorrowBook("Effective Java", "Carol");
+        library.returnBook("Alice");
+        assertThrows(UserNotFoundException.class, () -> library.findUserByName("Carol"));
+        library.findUserByName("alice");
+
+        LibraryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.operation(Operation.BORROW_BOOK).count());
+        assertEquals(2, snapshot.operation(Operation.BORROW_BOOK).failures());
+        assertEquals(1, snapshot.operation(Operation.RETURN_BOOK).count());
+        assertEquals(0, snapshot.operation(Operation.RETURN_BOOK).failures());
+        assertEquals(2, snapshot.operation(Operation.FIND_USER_BY_NAME).count());
+        assertEquals(1, snapshot.operation(Operation.REGISTER_BOOK).count());
+        assertEquals(0, snapshot.operation(Operation.REGISTER_BOOKS).count());
+        assertEquals(Long.valueOf(1), snapshot.failuresByType().get("UserHasBookException"));
+        assertEquals(Long.valueOf(2), snapshot.failuresByType().get("UserNotFoundException"));
+        assertEquals(Long.valueOf(1), snapshot.indexSizes().get("titles"));
+        assertEquals(Long.valueOf(2), snapshot.indexSizes().get("users"));
+        assertEquals(Long.valueOf(2), snapshot.indexSizes().get("copies"));
+        assertTrue(snapshot.operation(Operation.BORROW_BOOK).latency().getMax() > 0);
+
+        library.disableMetrics();
+        assertNull(library.getMetrics());
+        library.returnBook("Bob");
+        assertEquals(1, metrics.snapshot().operation(Operation.RETURN_BOOK).count());
+    }
+
+    /**
+     * Tests that percentiles are within the histogram's precision, and that bucket bounds are consistent.
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000, snapshot.getMax());
+        assertEquals(50_000_500.0, snapshot.getMean(), 1e-6);
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50), 50_000_000 * 0.04);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99), 99_000_000 * 0.04);
+        assertEquals(100_000_000, snapshot.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+
+        for (long value : new long[] {0, 63, 64, 65, 1_000, 123_456_789, (1L << 36) - 1}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.highestValueIn(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueIn(index - 1) < value);
+        }
+        assertEquals(1023, LatencyHistogram.bucketIndex((1L << 36) - 1));
+    }
+
+    /**
+     * Tests that the metrics are readable as MXBeans until they are unregistered.
+     */
+    @Test
+    public void testMBeans() throws Exception {
+        Library library = library();
+        LibraryMetrics metrics = library.enableMetrics();
+        library.borrowBook("Effective Java", "Alice");
+        metrics.registerMBeans("test library");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName borrow = new ObjectName("library:type=LibraryMetrics,name=\"test library\",operation=borrowBook");
+            assertEquals(1L, server.getAttribute(borrow, "Count"));
+            assertEquals(0L, server.getAttribute(borrow, "FailureCount"));
+            ObjectName overall = new ObjectName("library:type=LibraryMetrics,name=\"test library\"");
+            TabularData sizes = (TabularData) server.getAttribute(overall, "IndexSizes");
+            assertEquals(4, sizes.size());
+            assertThrows(IllegalStateException.class, () -> metrics.registerMBeans("test library"));
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertTrue(server.queryNames(new ObjectName("library:name=\"test library\",*"), null).isEmpty());
+    }
+}
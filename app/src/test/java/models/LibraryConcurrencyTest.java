@@ -0,0 +1,358 @@
+package models;
+import events.LibraryEvent;
+import exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for the {@link Library} class under concurrent borrowing and returning.
+ * <p>
+ * These tests run many threads against {@code borrowBook} and {@code returnBook} and then
+ * verify that the library ended up in a consistent state:
+ * <ul>
+ *   <li>No copy is ever lent to two users at the same time</li>
+ *   <li>Every user's loan points to a copy that is marked as borrowed by that user</li>
+ *   <li>The per-title count of available copies matches the copies themselves</li>
+ *   <li>The library's counters of borrowed copies and active loans match the loans</li>
+ * </ul>
+ * </p>
+ *
+ */
+public class LibraryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int TITLES = 8;
+    private static final int COPIES_PER_TITLE = 3;
+    private static final int USERS = 64;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    private Library library;
+    private List<String> titles;
+    private List<User> users;
+
+    @BeforeEach
+    public void setup() {
+        library = new Library();
+        titles = new ArrayList<>();
+        users = new ArrayList<>();
+
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+
+        for (int t = 0; t < TITLES; t++) {
+            String title = "Title " + t;
+            titles.add(title);
+            for (int c = 0; c < COPIES_PER_TITLE; c++) {
+                library.registerBook(new Book(title, author));
+            }
+        }
+        for (int u = 0; u < USERS; u++) {
+            User user = new User("User " + u);
+            users.add(user);
+            library.registerUser(user);
+        }
+    }
+
+    /**
+     * Tests that when many threads race for the last copy of a title, exactly one of them gets it
+     * and every other thread is told the book is not available.
+     */
+    @Test
+    public void testRaceForLastCopyHasSingleWinner() throws Exception {
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        Book lastCopy = new Book("Effective Java", author);
+        library.registerBook(lastCopy);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger losers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            String userName = users.get(i).getName();
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    library.borrowBook("Effective Java", userName);
+                    winners.incrementAndGet();
+                } catch (BookNotAvailableException e) {
+                    losers.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, winners.get());
+        assertEquals(THREADS - 1, losers.get());
+        assertEquals(BookStatus.BORROWED, lastCopy.getStatus());
+        assertEquals(lastCopy, lastCopy.getBorrowedBy().getBorrowedBook());
+        assertEquals(0, library.getAvailableCopies("Effective Java"));
+    }
+
+    /**
+     * Tests that a long mix of concurrent borrows and returns over shared titles and users
+     * leaves every loan consistent on both the book and the user side.
+     */
+    @Test
+    public void testConcurrentBorrowAndReturnKeepLoansConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < OPERATIONS_PER_THREAD; op++) {
+                    String userName = users.get(random.nextInt(USERS)).getName();
+                    try {
+                        if (random.nextBoolean()) {
+                            library.borrowBook(titles.get(random.nextInt(TITLES)), userName);
+                        } else {
+                            library.returnBook(userName);
+                        }
+                    } catch (BookNotAvailableException | UserHasBookException | UserHasNoBookException e) {
+                        // Expected outcomes under contention.
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int usersWithBook = 0;
+        for (User user : users) {
+            if (user.hasBorrowedBook()) {
+                usersWithBook++;
+                assertEquals(user, user.getBorrowedBook().getBorrowedBy());
+            }
+        }
+
+        int borrowedCopies = 0;
+        for (Book book : library.getAllBooks()) {
+            if (!book.isAvailable()) {
+                borrowedCopies++;
+                assertEquals(book, book.getBorrowedBy().getBorrowedBook());
+            }
+        }
+        assertEquals(usersWithBook, borrowedCopies);
+
+        int availableCopies = 0;
+        for (String title : titles) {
+            availableCopies += library.getAvailableCopies(title);
+        }
+        assertEquals(TITLES * COPIES_PER_TITLE - borrowedCopies, availableCopies);
+
+        LibraryStats stats = library.getStats();
+        assertEquals(borrowedCopies, stats.getBorrowedCopyCount());
+        assertEquals(usersWithBook, stats.getActiveLoanCount());
+        assertEquals(borrowedCopies, library.getAllAuthors().get(0).getBorrowedCopyCount());
+    }
+
+    /**
+     * Tests that thousands of virtual threads hammering a single hot title never lend a copy twice
+     * and leave the title's available count matching its copies.
+     */
+    @Test
+    public void testVirtualThreadsOnHotTitle() throws Exception {
+        String hotTitle = titles.get(0);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2_000; i++) {
+                String userName = users.get(i % USERS).getName();
+                futures.add(executor.submit(() -> {
+                    try {
+                        library.borrowBook(hotTitle, userName);
+                        library.returnBook(userName);
+                    } catch (BookNotAvailableException | UserHasBookException | UserHasNoBookException e) {
+                        // Expected outcomes under contention.
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        int borrowed = 0;
+        for (Book book : library.getAllBooks()) {
+            if (book.getTitle().equals(hotTitle) && !book.isAvailable()) {
+                borrowed++;
+                assertEquals(book, book.getBorrowedBy().getBorrowedBook());
+            }
+        }
+        assertEquals(COPIES_PER_TITLE - borrowed, library.getAvailableCopies(hotTitle));
+    }
+
+    /**
+     * Tests that every user waiting on a hot title through a hold eventually gets a copy,
+     * while other users keep borrowing and returning it, and that no copy is lent twice.
+     */
+    @Test
+    public void testHoldsOnHotTitleAreAllServed() throws Exception {
+        String hotTitle = titles.get(0);
+        AtomicInteger served = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < USERS; u++) {
+                String userName = users.get(u).getName();
+                boolean holding = u % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    if (holding) {
+                        Book book = library.placeHold(hotTitle, userName).get(60, TimeUnit.SECONDS);
+                        assertSame(book, library.findUserByName(userName).getBorrowedBook());
+                        served.incrementAndGet();
+                        library.returnBook(userName);
+                        return null;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            library.borrowBook(hotTitle, userName);
+                            library.returnBook(userName);
+                        } catch (BookNotAvailableException e) {
+                            // Expected while the title is held.
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(USERS / 2, served.get());
+        assertEquals(0, library.getHoldCount(hotTitle));
+        assertEquals(COPIES_PER_TITLE, library.getAvailableCopies(hotTitle));
+        assertEquals(0, library.getStats().getActiveLoanCount());
+    }
+
+    /**
+     * Tests that concurrent borrows for the same user never take more copies than the user's loan limit.
+     */
+    @Test
+    public void testLoanLimitHoldsUnderConcurrentBorrows() throws Exception {
+        int limit = 3;
+        User member = new User("Member", limit);
+        library.registerUser(member);
+        AtomicInteger borrowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < TITLES * COPIES_PER_TITLE; i++) {
+                String title = titles.get(i % TITLES);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (library.tryBorrowBook(title, "Member").isSuccess()) {
+                        borrowed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(limit, borrowed.get());
+        assertEquals(limit, member.getLoanCount());
+        for (Book book : member.getBorrowedBooks()) {
+            assertSame(member, book.getBorrowedBy());
+        }
+        assertEquals(limit, library.getStats().getBorrowedCopyCount());
+    }
+
+    /**
+     * Tests that an author's bibliography can be read while copies by the author are being registered.
+     */
+    @Test
+    public void testBibliographyReadDuringRegistration() throws Exception {
+        Author author = library.getAllAuthors().get(0);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> registrar = executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    library.registerBook(new Book("Title " + (i % TITLES), author));
+                }
+                return null;
+            });
+            while (!registrar.isDone()) {
+                int copies = 0;
+                for (Book book : author.getBooks()) {
+                    assertSame(author, book.getAuthor());
+                    copies++;
+                }
+                assertTrue(copies <= author.getCopyCount());
+            }
+            registrar.get(60, TimeUnit.SECONDS);
+        }
+        assertEquals(TITLES * COPIES_PER_TITLE + 2_000, author.getBooks().size());
+        assertEquals(author.getCopyCount(), author.getRegisteredCopyCount());
+        assertEquals(author.getRegisteredCopyCount(), author.getAvailableCopyCount());
+    }
+
+    /**
+     * Tests that a hold placed while a borrow of the last copy waits on its listener is served
+     * as soon as the listener rejects that borrow, rather than on the next return.
+     */
+    @Test
+    public void testHoldIsServedWhenBorrowIsRejected() throws Exception {
+        AtomicReference<Library> rejecting = new AtomicReference<>();
+        AtomicReference<CompletableFuture<Book>> hold = new AtomicReference<>();
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            rejecting.set(new Library(event -> {
+                if (event instanceof LibraryEvent.BookBorrowed borrowed
+                        && borrowed.user().getName().equals("Alice")) {
+                    try {
+                        hold.set(executor.submit(() -> rejecting.get().placeHold("Refactoring", "Bob"))
+                            .get(60, TimeUnit.SECONDS));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    throw new IllegalStateException("Rejected");
+                }
+            }));
+            Library library = rejecting.get();
+            Author author = new Author("Martin Fowler");
+            library.registerAuthor(author);
+            library.registerBook(new Book("Refactoring", author));
+            library.registerUser(new User("Alice"));
+            library.registerUser(new User("Bob"));
+
+            assertThrows(IllegalStateException.class, () -> library.borrowBook("Refactoring", "Alice"));
+
+            Book book = hold.get().get(60, TimeUnit.SECONDS);
+            assertSame(library.findUserByName("Bob"), book.getBorrowedBy());
+            assertNull(library.findUserByName("Alice").getBorrowedBook());
+            assertEquals(0, library.getHoldCount("Refactoring"));
+            assertEquals(1, library.getStats().getActiveLoanCount());
+        }
+    }
+}
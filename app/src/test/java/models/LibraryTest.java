@@ -1,7 +1,17 @@
 package models;
+import events.LibraryEvent;
+import events.LibraryEventListener;
 import exceptions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -192,4 +202,405 @@ public class LibraryTest {
 
         assertTrue(e.getMessage().toLowerCase().contains("not found"));
     }
+
+    /**
+     * Tests that the title lookup used by {@code borrowBook} ignores case and accents,
+     * resolving a differently formatted title to the copies registered under it.
+     */
+    @Test
+    public void testBorrowIgnoresTitleFormatting() {
+        library.borrowBook("CLÉAN cÔde", "Alice");
+        assertTrue(alice.hasBorrowedBook());
+        assertEquals("Clean Code", alice.getBorrowedBook().getTitle());
+    }
+
+    /**
+     * Tests that the count of available copies per title follows borrows and returns,
+     * and that a rejected borrow does not take a copy out of circulation.
+     */
+    @Test
+    public void testAvailableCopiesCount() {
+        assertEquals(2, library.getAvailableCopies("Clean Code"));
+
+        library.borrowBook("Clean Code", "Alice");
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+
+        assertThrows(UserHasBookException.class, () -> library.borrowBook("Clean Code", "Alice"));
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+
+        library.borrowBook("Clean Code", "Bob");
+        assertEquals(0, library.getAvailableCopies("Clean Code"));
+
+        library.returnBook("Alice");
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+        assertEquals(0, library.getAvailableCopies("Java 101"));
+    }
+
+    /**
+     * Tests the non-blocking borrow and return operations on a single copy:
+     * only the first {@code tryBorrow} succeeds, and only the first {@code tryReturn} after it.
+     */
+    @Test
+    public void testTryBorrowAndTryReturn() {
+        assertTrue(book2.tryBorrow(alice));
+        assertFalse(book2.tryBorrow(bob));
+        assertEquals(alice, book2.getBorrowedBy());
+        assertEquals(0, library.getAvailableCopies("Effective Java"));
+
+        assertTrue(book2.tryReturn());
+        assertFalse(book2.tryReturn());
+        assertEquals(BookStatus.AVAILABLE, book2.getStatus());
+        assertEquals(1, library.getAvailableCopies("Effective Java"));
+    }
+
+    /**
+     * Tests that a library created with a listener reports borrows and returns as typed events,
+     * carrying the copy and the user involved.
+     */
+    @Test
+    public void testListenerReceivesBorrowAndReturnEvents() {
+        List<LibraryEvent> events = new ArrayList<>();
+        Library observed = new Library(events::add);
+        Author author = new Author("Joshua Bloch");
+        Book book = new Book("Effective Java", author);
+        User carol = new User("Carol");
+        observed.registerBook(book);
+        observed.registerUser(carol);
+        observed.borrowBook("Effective Java", "Carol");
+        observed.returnBook("Carol");
+
+        assertEquals(List.of(
+            new LibraryEvent.BookRegistered(book),
+            new LibraryEvent.UserRegistered(carol),
+            new LibraryEvent.BookBorrowed(book, carol),
+            new LibraryEvent.BookReturned(book, carol)), events);
+    }
+
+    /**
+     * Tests that bulk registration indexes books, authors and users like the single-item methods
+     * and reports each batch as a single event.
+     */
+    @Test
+    public void testBulkRegistration() {
+        List<LibraryEvent> events = new ArrayList<>();
+        Library bulk = new Library(events::add);
+        Author author = new Author("Martin Fowler");
+        Book first = new Book("Refactoring", author);
+        Book second = new Book("Refactoring", author);
+        bulk.registerAuthors(List.of(author));
+        bulk.registerBooks(List.of(first, second));
+        bulk.registerUsers(List.of(new User("Dana"), new User("Eve")));
+
+        assertEquals(2, bulk.getAllBooks().size());
+        assertEquals(List.of(first, second), new ArrayList<>(author.getBooks()));
+        assertEquals(2, bulk.getAvailableCopies("refactoring"));
+        bulk.borrowBook("Refactoring", "Eve");
+        assertEquals(1, bulk.getAvailableCopies("Refactoring"));
+        assertEquals(4, events.size());
+        assertTrue(events.get(1) instanceof LibraryEvent.BooksRegistered);
+    }
+
+    /**
+     * Tests the author's bibliography: copies are counted per title, registering the same copy twice
+     * does not duplicate it, and the returned view cannot be modified.
+     */
+    @Test
+    public void testAuthorBibliography() {
+        author1.addBook(book1);
+
+        assertEquals(2, author1.getCopyCount());
+        assertEquals(1, author1.getTitleCount());
+        assertEquals(2, author1.getCopyCount("clean code"));
+        assertEquals(0, author1.getCopyCount("Effective Java"));
+        assertThrows(UnsupportedOperationException.class, () -> author1.getBooks().clear());
+
+        Book unregistered = new Book("Clean Architecture", author1);
+        author1.addBook(unregistered);
+        assertEquals(3, author1.getCopyCount());
+        assertEquals(2, author1.getRegisteredCopyCount());
+        assertEquals(2, author1.getAvailableCopyCount());
+        assertTrue(author1.getBooks().contains(unregistered));
+    }
+
+    /**
+     * Tests that the streaming summaries write the same lines as the string summaries and can be paged.
+     */
+    @Test
+    public void testStreamingSummaries() {
+        library.borrowBook("Effective Java", "Bob");
+        StringBuilder all = new StringBuilder();
+        library.writeBooksSummary(all);
+        assertEquals(library.getBooksSummary(), all.toString());
+
+        StringBuilder page = new StringBuilder();
+        assertEquals(1, library.writeBooksSummary(page, 1, 1));
+        assertEquals("\"Effective Java\" by Joshua Bloch - Borrowed by Bob\n", page.toString());
+        assertEquals(0, library.writeBooksSummary(new StringBuilder(), 3, 10));
+
+        StringBuilder users = new StringBuilder();
+        assertEquals(1, library.writeUsersSummary(users, 1, 5));
+        assertEquals("Bob (has book: Effective Java)\n", users.toString());
+        assertThrows(IllegalArgumentException.class, () -> library.writeUsersSummary(users, -1, 1));
+    }
+
+    /**
+     * Tests that the library's counters follow registrations, borrows and returns,
+     * in total, per title and per author.
+     */
+    @Test
+    public void testStats() {
+        LibraryStats stats = library.getStats();
+        assertEquals(3, stats.getCopyCount());
+        assertEquals(2, stats.getAuthorCount());
+        assertEquals(2, stats.getUserCount());
+        assertEquals(2, library.getTitleCount());
+
+        library.borrowBook("Clean Code", "Alice");
+        assertEquals(1, stats.getBorrowedCopyCount());
+        assertEquals(2, stats.getAvailableCopyCount());
+        assertEquals(1, stats.getActiveLoanCount());
+        assertEquals(2, library.getCopyCount("clean code"));
+        assertEquals(1, library.getBorrowedCopies("Clean Code"));
+        assertEquals(1, author1.getBorrowedCopyCount());
+        assertEquals(1, author1.getAvailableCopyCount());
+        assertEquals(0, author2.getBorrowedCopyCount());
+
+        library.returnBook("Alice");
+        assertEquals(0, stats.getBorrowedCopyCount());
+        assertEquals(0, stats.getActiveLoanCount());
+        assertEquals(0, library.getBorrowedCopies("Clean Code"));
+        assertEquals(0, author1.getBorrowedCopyCount());
+    }
+
+    /**
+     * Tests that titles can be completed and searched with typos, by title or by author,
+     * and that titles registered later are found too.
+     */
+    @Test
+    public void testSearchTitles() {
+        assertEquals(List.of(List.of(book1, bookCopy)), library.completeTitles("clean", 5));
+        assertEquals(List.of(List.of(book2)), library.completeTitles("Bloch", 5));
+        assertEquals(List.of(List.of(book1, bookCopy)), library.searchTitles("Clen Code", 5));
+        assertEquals(List.of(List.of(book2)), library.searchTitles("Efective Jva", 5));
+        assertTrue(library.searchTitles("Dom Casmurro", 5).isEmpty());
+
+        Book domCasmurro = new Book("Dom Casmurro", new Author("Machado de Assis"));
+        library.registerBook(domCasmurro);
+        assertEquals(List.of(List.of(domCasmurro)), library.searchTitles("dom casmuro", 5));
+    }
+
+    /**
+     * Tests that a user whose name matches a registered name after normalization is rejected,
+     * alone or in a batch, and that a rejected batch registers nobody.
+     */
+    @Test
+    public void testDuplicateUserRejected() {
+        DuplicateUserException e = assertThrows(DuplicateUserException.class,
+            () -> library.registerUser(new User("ALICE")));
+        assertTrue(e.getMessage().contains("already registered"));
+        assertThrows(DuplicateUserException.class,
+            () -> library.registerUsers(List.of(new User("Carol"), new User("Bób"))));
+        assertThrows(DuplicateUserException.class,
+            () -> library.registerUsers(List.of(new User("Carol"), new User("carol"))));
+        assertEquals(2, library.getAllUsers().size());
+        assertThrows(UserNotFoundException.class, () -> library.findUserByName("Carol"));
+        assertSame(alice, library.findUserByName("alice"));
+    }
+
+    /**
+     * Tests that the result-returning API reports each outcome, and that failures are shared constants.
+     */
+    @Test
+    public void testBorrowResults() {
+        BorrowResult borrowed = library.tryBorrowBook("Effective Java", "Alice");
+        assertEquals(BorrowResult.Status.BORROWED, borrowed.getStatus());
+        assertTrue(borrowed.isSuccess());
+        assertSame(book2, borrowed.getBook());
+
+        assertEquals(BorrowResult.Status.USER_HAS_BOOK, library.tryBorrowBook("Clean Code", "Alice").getStatus());
+        assertEquals(BorrowResult.Status.BOOK_NOT_AVAILABLE, library.tryBorrowBook("Effective Java", "Bob").getStatus());
+        assertEquals(BorrowResult.Status.BOOK_NOT_FOUND, library.tryBorrowBook("Unknown", "Bob").getStatus());
+        assertEquals(BorrowResult.Status.USER_NOT_FOUND, library.tryBorrowBook("Clean Code", "Carol").getStatus());
+        assertEquals(BorrowResult.Status.USER_HAS_NO_BOOK, library.tryReturnBook("Bob").getStatus());
+        assertSame(library.tryBorrowBook("Effective Java", "Bob"), library.tryBorrowBook("Effective Java", "Bob"));
+        assertFalse(library.tryReturnBook("Bob").isSuccess());
+        assertNull(library.tryReturnBook("Carol").getBook());
+
+        BorrowResult returned = library.tryReturnBook("Alice");
+        assertEquals(BorrowResult.Status.RETURNED, returned.getStatus());
+        assertSame(book2, returned.getBook());
+        assertTrue(book2.isAvailable());
+        assertEquals(0, library.getStats().getActiveLoanCount());
+    }
+
+    /**
+     * Tests that the domain exceptions capture no stack trace and still describe the failure.
+     */
+    @Test
+    public void testStacklessExceptions() {
+        library.borrowBook("Effective Java", "Alice");
+        BookNotAvailableException e = assertThrows(BookNotAvailableException.class,
+            () -> library.borrowBook("Effective Java", "Bob"));
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals("Effective Java", e.getSubject());
+        assertTrue(e.getMessage().contains("Effective Java"));
+        assertSame(e.getMessage(), e.getMessage());
+
+        UserHasBookException hasBook = assertThrows(UserHasBookException.class,
+            () -> library.borrowBook("Clean Code", "alice"));
+        assertEquals("Alice", hasBook.getSubject());
+        assertTrue(hasBook instanceof LibraryException);
+    }
+
+    /**
+     * Tests that the single-loan methods of {@link User} still set and clear the user's book.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedSingleLoanMethods() {
+        User carol = new User("Carol", 2);
+        carol.setBorrowedBook(book1);
+        assertSame(book1, carol.getBorrowedBook());
+        carol.setBorrowedBook(book2);
+        assertEquals(List.of(book2), carol.getBorrowedBooks());
+        carol.returnBook();
+        assertFalse(carol.hasBorrowedBook());
+        carol.returnBook();
+        assertNull(carol.getBorrowedBook());
+    }
+
+    /**
+     * Tests that a registration rejected by the listener leaves the library unchanged.
+     */
+    @Test
+    public void testListenerCanRejectRegistrations() {
+        library.setEventListener(event -> {
+            throw new IllegalStateException("Rejected");
+        });
+        User carol = new User("Carol");
+        Book book3 = new Book("Refactoring", author1);
+        assertThrows(IllegalStateException.class, () -> library.registerUser(carol));
+        assertThrows(IllegalStateException.class, () -> library.registerBooks(List.of(book3)));
+        assertThrows(IllegalStateException.class, () -> library.registerAuthor(new Author("Martin Fowler")));
+
+        assertEquals(-1, carol.getId());
+        assertEquals(-1, book3.getId());
+        assertThrows(UserNotFoundException.class, () -> library.findUserByName("Carol"));
+        assertEquals(0, library.getCopyCount("Refactoring"));
+        assertEquals(3, library.getAllBooks().size());
+        assertEquals(2, library.getAllAuthors().size());
+        assertFalse(author1.getBooks().contains(book3));
+
+        library.setEventListener(LibraryEventListener.noOp());
+        library.registerUser(carol);
+        assertEquals(2, carol.getId());
+        assertSame(carol, library.findUserByName("Carol"));
+    }
+
+    /**
+     * Tests that a domain exception whose message is formatted lazily can be serialized, and
+     * keeps its subject and message.
+     */
+    @Test
+    public void testExceptionsAreSerializable() throws Exception {
+        library.borrowBook("Effective Java", "Alice");
+        BookNotAvailableException e = assertThrows(BookNotAvailableException.class,
+            () -> library.borrowBook("Effective Java", "Bob"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(e);
+        }
+        BookNotAvailableException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (BookNotAvailableException) in.readObject();
+        }
+        assertEquals(e.getSubject(), copy.getSubject());
+        assertEquals(e.getMessage(), copy.getMessage());
+    }
+
+    /**
+     * Tests that holds are served in the order they were placed as copies are returned,
+     * and that direct borrows leave held copies to the waiting users.
+     */
+    @Test
+    public void testHoldsServedInOrder() throws Exception {
+        User carol = new User("Carol");
+        library.registerUser(carol);
+        library.borrowBook("Effective Java", "Alice");
+
+        CompletableFuture<Book> bobHold = library.placeHold("Effective Java", "Bob");
+        CompletableFuture<Book> carolHold = library.placeHold("effective java", "Carol");
+        assertFalse(bobHold.isDone());
+        assertEquals(2, library.getHoldCount("Effective Java"));
+
+        library.returnBook("Alice");
+        assertSame(book2, bobHold.get(1, TimeUnit.SECONDS));
+        assertSame(book2, bob.getBorrowedBook());
+        assertFalse(carolHold.isDone());
+
+        Book copy = new Book("Effective Java", author2);
+        library.registerBook(copy);
+        assertSame(copy, carolHold.get(1, TimeUnit.SECONDS));
+        assertEquals(0, library.getHoldCount("Effective Java"));
+        assertEquals(0, library.getAvailableCopies("Effective Java"));
+        assertEquals(2, library.getStats().getActiveLoanCount());
+    }
+
+    /**
+     * Tests that a hold is served at once when a copy is free, that a cancelled hold leaves the queue,
+     * and that the returned copy goes to the next waiting user.
+     */
+    @Test
+    public void testHoldCancelAndImmediateHandoff() throws Exception {
+        User carol = new User("Carol");
+        library.registerUser(carol);
+        CompletableFuture<Book> aliceHold = library.placeHold("Effective Java", "Alice");
+        assertSame(book2, aliceHold.getNow(null));
+        assertThrows(UserHasBookException.class, () -> library.placeHold("Clean Code", "Alice"));
+
+        CompletableFuture<Book> bobHold = library.placeHold("Effective Java", "Bob");
+        CompletableFuture<Book> carolHold = library.placeHold("Effective Java", "Carol");
+        assertTrue(bobHold.cancel(false));
+        assertEquals(1, library.getHoldCount("Effective Java"));
+
+        library.returnBook("Alice");
+        assertSame(book2, carolHold.get(1, TimeUnit.SECONDS));
+        assertNull(bob.getBorrowedBook());
+        assertEquals(BorrowResult.Status.BOOK_NOT_AVAILABLE, library.tryBorrowBook("Effective Java", "Alice").getStatus());
+        assertThrows(BookNotFoundException.class, () -> library.placeHold("Unknown", "Bob"));
+    }
+
+    /**
+     * Tests that a user with a loan limit can hold several books up to it, and return them by title or by copy.
+     */
+    @Test
+    public void testMultipleLoans() {
+        User carol = new User("Carol", 2);
+        library.registerUser(carol);
+        library.borrowBook("Clean Code", "Carol");
+        library.borrowBook("Effective Java", "Carol");
+        assertEquals(2, carol.getLoanCount());
+        assertTrue(carol.hasBorrowed(book2));
+        assertEquals("Carol (has books: Clean Code, Effective Java)", carol.toString());
+
+        UserHasBookException e = assertThrows(UserHasBookException.class,
+            () -> library.borrowBook("Clean Code", "Carol"));
+        assertEquals("User 'Carol' already has 2 books.", e.getMessage());
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+
+        library.returnBook("Carol", "effective java");
+        assertFalse(carol.hasBorrowed(book2));
+        assertTrue(book2.isAvailable());
+        UserHasNoBookException notBorrowed = assertThrows(UserHasNoBookException.class,
+            () -> library.returnBook("Carol", "Effective Java"));
+        assertEquals("User 'Carol' has not borrowed 'Effective Java'.", notBorrowed.getMessage());
+        assertEquals(BorrowResult.Status.USER_HAS_NO_BOOK, library.tryReturnBook("Carol", book2).getStatus());
+
+        Book held = carol.getBorrowedBook();
+        assertEquals(BorrowResult.Status.RETURNED, library.tryReturnBook("Carol", held).getStatus());
+        assertFalse(carol.hasBorrowedBook());
+        assertEquals(0, library.getStats().getActiveLoanCount());
+        assertThrows(IllegalArgumentException.class, () -> new User("Dana", 0));
+    }
 }
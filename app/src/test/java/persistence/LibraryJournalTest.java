@@ -0,0 +1,304 @@
+package persistence;
+import events.LibraryEvent;
+import events.LibraryEventListener;
+import exceptions.PersistenceException;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibraryJournal} class, run against a temporary file.
+ * <p>
+ * Verifies that a library rebuilt by replaying its journal matches the original, that a
+ * partially written record is dropped, and that records covered by a snapshot are skipped.
+ * </p>
+ */
+public class LibraryJournalTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        file = Files.createTempFile("library", ".journal");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Builds a small library whose changes are written to the given journal.
+     */
+    private static Library journaledLibrary(LibraryJournal journal) {
+        Library library = new Library(journal);
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+        library.registerBooks(List.of(new Book("Clean Code", author), new Book("Clean Code", author)));
+        library.registerBook(new Book("Effective Java", new Author("Joshua Bloch")));
+        library.registerUsers(List.of(new User("Alice"), new User("Bob")));
+        library.borrowBook("Clean Code", "Alice");
+        library.borrowBook("Effective Java", "Bob");
+        library.returnBook("Bob");
+        return library;
+    }
+
+    /**
+     * Tests that replaying the journal into an empty library reproduces every registration and loan.
+     */
+    @Test
+    public void testReplayRebuildsLibrary() {
+        Library library;
+        long lastSequence;
+        try (LibraryJournal journal = LibraryJournal.open(file, 16)) {
+            library = journaledLibrary(journal);
+            lastSequence = journal.getLastSequence();
+        }
+
+        Library replayed = new Library();
+        assertEquals(lastSequence, LibraryJournal.replay(file, replayed, 0));
+
+        assertEquals(library.getBooksSummary(), replayed.getBooksSummary());
+        assertEquals(library.getUsersSummary(), replayed.getUsersSummary());
+        assertEquals(1, replayed.getAvailableCopies("Clean Code"));
+        assertEquals(1, replayed.getAvailableCopies("Effective Java"));
+        User alice = replayed.findUserByName("Alice");
+        assertEquals(alice, alice.getBorrowedBook().getBorrowedBy());
+    }
+
+    /**
+     * Tests that a record cut short by a crash is ignored on replay and removed when the journal is reopened.
+     */
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        long lastSequence;
+        try (LibraryJournal journal = LibraryJournal.open(file, 1)) {
+            journaledLibrary(journal);
+            lastSequence = journal.getLastSequence();
+        }
+        long intactSize = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 0, 0, 0}));
+        }
+
+        Library replayed = new Library();
+        assertEquals(lastSequence, LibraryJournal.replay(file, replayed, 0));
+        assertNotNull(replayed.findUserByName("Alice").getBorrowedBook());
+
+        try (LibraryJournal journal = LibraryJournal.open(file, 1)) {
+            assertEquals(lastSequence, journal.getLastSequence());
+        }
+        assertEquals(intactSize, Files.size(file));
+    }
+
+    /**
+     * Tests that records up to the sequence covered by a snapshot are skipped, and that a
+     * checkpoint empties the journal without resetting the sequence.
+     */
+    @Test
+    public void testReplayAfterSnapshotAndCheckpoint() {
+        try (LibraryJournal journal = LibraryJournal.open(file, 16)) {
+            Library library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            library.registerBook(new Book("Clean Code", author));
+            library.registerUser(new User("Alice"));
+            long snapshotSequence = journal.getLastSequence();
+
+            library.borrowBook("Clean Code", "Alice");
+
+            Library snapshot = new Library();
+            snapshot.registerAuthor(new Author("Robert C. Martin"));
+            snapshot.registerBook(new Book("Clean Code", snapshot.findAuthorById(0)));
+            snapshot.registerUser(new User("Alice"));
+            LibraryJournal.replay(file, snapshot, snapshotSequence);
+            assertEquals(0, snapshot.getAvailableCopies("Clean Code"));
+
+            journal.checkpoint(journal.getLastSequence());
+            long checkpointSequence = journal.getLastSequence();
+            assertTrue(checkpointSequence > snapshotSequence);
+            library.returnBook("Alice");
+
+            LibraryJournal.replay(file, snapshot, checkpointSequence);
+            assertEquals(1, snapshot.getAvailableCopies("Clean Code"));
+        }
+    }
+
+    /**
+     * Tests that a checkpoint keeps the records appended after the sequence its snapshot covers.
+     */
+    @Test
+    public void testCheckpointKeepsRecordsAfterSnapshot() {
+        long snapshotSequence;
+        long lastSequence;
+        try (LibraryJournal journal = LibraryJournal.open(file, 16)) {
+            Library library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            library.registerBook(new Book("Clean Code", author));
+            library.registerUser(new User("Alice"));
+            snapshotSequence = journal.getLastSequence();
+
+            library.borrowBook("Clean Code", "Alice");
+            journal.checkpoint(snapshotSequence);
+            lastSequence = journal.getLastSequence();
+            assertThrows(IllegalArgumentException.class, () -> journal.checkpoint(lastSequence + 1));
+        }
+
+        try (LibraryJournal journal = LibraryJournal.open(file, 16)) {
+            assertEquals(lastSequence, journal.getLastSequence());
+        }
+        Library snapshot = new Library();
+        snapshot.registerAuthor(new Author("Robert C. Martin"));
+        snapshot.registerBook(new Book("Clean Code", snapshot.findAuthorById(0)));
+        snapshot.registerUser(new User("Alice"));
+        assertEquals(lastSequence, LibraryJournal.replay(file, snapshot, snapshotSequence));
+        assertEquals(0, snapshot.getAvailableCopies("Clean Code"));
+        assertEquals("Clean Code", snapshot.findUserByName("Alice").getBorrowedBook().getTitle());
+    }
+
+    /**
+     * Tests that many threads borrowing and returning at once are all journaled, in an order
+     * that replays to the same loans.
+     */
+    @Test
+    public void testConcurrentOperationsAreGroupCommitted() throws Exception {
+        Library library;
+        try (LibraryJournal journal = LibraryJournal.open(file, 64)) {
+            library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            List<Book> books = new ArrayList<>();
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                books.add(new Book("Clean Code", author));
+                users.add(new User("User " + i));
+            }
+            library.registerBooks(books);
+            library.registerUsers(users);
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (User user : users) {
+                futures.add(executor.submit(() -> {
+                    for (int op = 0; op < 20; op++) {
+                        library.borrowBook("Clean Code", user.getName());
+                        library.returnBook(user.getName());
+                    }
+                    library.borrowBook("Clean Code", user.getName());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        Library replayed = new Library();
+        LibraryJournal.replay(file, replayed, 0);
+        assertEquals(library.getUsersSummary(), replayed.getUsersSummary());
+        assertEquals(0, replayed.getAvailableCopies("Clean Code"));
+    }
+
+    /**
+     * Tests that copies and users borrowed from as soon as they are registered are journaled
+     * after their registration, so that the journal replays. A listener ahead of the journal
+     * pauses on every registration to give the borrowing thread time to see it early.
+     */
+    @Test
+    public void testBorrowRacingRegistrationReplays() throws Exception {
+        int count = 100;
+        LibraryEventListener pause = event -> {
+            if (event instanceof LibraryEvent.BookRegistered || event instanceof LibraryEvent.UserRegistered) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Library library;
+        try (LibraryJournal journal = LibraryJournal.open(file, 16)) {
+            library = new Library(pause.andThen(journal));
+            Author author = new Author("Kent Beck");
+            library.registerAuthor(author);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            Future<?> borrower = executor.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    while (!library.tryBorrowBook("Title " + i, "User " + i).isSuccess()) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            });
+            Future<?> registrar = executor.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    library.registerUser(new User("User " + i));
+                    library.registerBook(new Book("Title " + i, author));
+                }
+                return null;
+            });
+            registrar.get(60, TimeUnit.SECONDS);
+            borrower.get(60, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+
+        Library replayed = new Library();
+        LibraryJournal.replay(file, replayed, 0);
+        assertEquals(library.getUsersSummary(), replayed.getUsersSummary());
+        assertEquals(count, replayed.getStats().getActiveLoanCount());
+    }
+
+    /**
+     * Tests that closing the journal while other threads keep appending releases every one of
+     * them: each append either returns or fails with a {@link PersistenceException}.
+     */
+    @Test
+    public void testCloseWhileAppending() throws Exception {
+        LibraryJournal journal = LibraryJournal.open(file, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                started.countDown();
+                int appended = 0;
+                try {
+                    while (true) {
+                        journal.onEvent(new LibraryEvent.AuthorRegistered(new Author("Author " + appended)));
+                        appended++;
+                    }
+                } catch (PersistenceException e) {
+                    return appended;
+                }
+            }));
+        }
+        started.await();
+        journal.close();
+        for (Future<Integer> future : futures) {
+            assertTrue(future.get(30, TimeUnit.SECONDS) >= 0);
+        }
+        executor.shutdown();
+        assertThrows(PersistenceException.class,
+            () -> journal.onEvent(new LibraryEvent.AuthorRegistered(new Author("Late"))));
+    }
+}
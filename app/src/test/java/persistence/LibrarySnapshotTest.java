@@ -0,0 +1,205 @@
+package persistence;
+import exceptions.PersistenceException;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LibrarySnapshot} class, run against a temporary file.
+ * <p>
+ * Verifies that a library loaded from a snapshot has the same authors, books, users and loans,
+ * that repeated titles share one string, and that a snapshot combines with the journal.
+ * </p>
+ */
+public class LibrarySnapshotTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        file = Files.createTempFile("library", ".snapshot");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Tests that saving and loading a library keeps its entities, their ids, the users' loan limits
+     * and its active loans.
+     */
+    @Test
+    public void testWriteAndLoad() {
+        Library library = new Library();
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+        library.registerBooks(List.of(new Book("Clean Code", author), new Book("Clean Code", author)));
+        library.registerBook(new Book("Dom Casmurro", new Author("Machado de Assis")));
+        library.registerUsers(List.of(new User("Alice", 3), new User("José")));
+        library.borrowBook("Clean Code", "Alice");
+        library.borrowBook("Clean Code", "Alice");
+        library.borrowBook("Dom Casmurro", "Jose");
+
+        LibrarySnapshot.write(library, file, 42);
+        Library loaded = LibrarySnapshot.load(file);
+
+        assertEquals(42, LibrarySnapshot.journalSequence(file));
+        assertEquals(library.getBooksSummary(), loaded.getBooksSummary());
+        assertEquals(library.getUsersSummary(), loaded.getUsersSummary());
+        assertEquals(1, loaded.getAllAuthors().size());
+        assertEquals(0, loaded.getAvailableCopies("Clean Code"));
+        assertEquals(0, loaded.getAvailableCopies("Dom Casmurro"));
+        User alice = loaded.findUserByName("Alice");
+        assertEquals(3, alice.getLoanLimit());
+        assertEquals(2, alice.getLoanCount());
+        User jose = loaded.findUserByName("José");
+        assertEquals(2, jose.getBorrowedBook().getId());
+        assertEquals(jose, jose.getBorrowedBook().getBorrowedBy());
+    }
+
+    /**
+     * Tests that the copies of a title loaded from a snapshot share a single title string.
+     */
+    @Test
+    public void testRepeatedTitlesShareOneString() {
+        Library library = new Library();
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+        library.registerBooks(List.of(new Book("Clean Code", author), new Book(new String("Clean Code"), author)));
+
+        LibrarySnapshot.write(library, file, 0);
+        List<Book> books = LibrarySnapshot.load(file).getAllBooks();
+
+        assertSame(books.get(0).getTitle(), books.get(1).getTitle());
+    }
+
+    /**
+     * Tests that replaying the journal after the sequence stored in a snapshot brings the loaded
+     * library up to date.
+     */
+    @Test
+    public void testSnapshotPlusJournal() throws IOException {
+        Path journalFile = Files.createTempFile("library", ".journal");
+        try (LibraryJournal journal = LibraryJournal.open(journalFile, 16)) {
+            Library library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            library.registerBook(new Book("Clean Code", author));
+            library.registerUser(new User("Alice"));
+            LibrarySnapshot.write(library, file, journal);
+
+            library.registerUser(new User("Bob", 2));
+            library.borrowBook("Clean Code", "Bob");
+
+            Library recovered = new Library();
+            long sequence = LibrarySnapshot.read(file, recovered);
+            LibraryJournal.replay(journalFile, recovered, sequence);
+            assertEquals(library.getUsersSummary(), recovered.getUsersSummary());
+            assertEquals(0, recovered.getAvailableCopies("Clean Code"));
+            assertEquals(2, recovered.findUserByName("Bob").getLoanLimit());
+        } finally {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    /**
+     * Tests that a file which is not a snapshot is rejected.
+     */
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Files.writeString(file, "not a snapshot, just some text");
+        assertThrows(PersistenceException.class, () -> LibrarySnapshot.load(file));
+    }
+
+    /**
+     * Tests that journal records already reflected in a snapshot, as when loans change while it is
+     * taken, replay on top of it to the same loans.
+     */
+    @Test
+    public void testReplayOfLoansAlreadyInSnapshot() throws IOException {
+        Path journalFile = Files.createTempFile("library", ".journal");
+        try (LibraryJournal journal = LibraryJournal.open(journalFile, 16)) {
+            Library library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            library.registerBook(new Book("Clean Code", author));
+            library.registerUsers(List.of(new User("Alice"), new User("Bob")));
+            long sequence = journal.getLastSequence();
+            library.borrowBook("Clean Code", "Alice");
+            library.returnBook("Alice");
+            library.borrowBook("Clean Code", "Bob");
+            LibrarySnapshot.write(library, file, sequence);
+
+            Library recovered = new Library();
+            LibraryJournal.replay(journalFile, recovered, LibrarySnapshot.read(file, recovered));
+            assertEquals(library.getUsersSummary(), recovered.getUsersSummary());
+            assertNull(recovered.findUserByName("Alice").getBorrowedBook());
+            assertEquals("Clean Code", recovered.findUserByName("Bob").getBorrowedBook().getTitle());
+            assertEquals(1, recovered.getStats().getActiveLoanCount());
+        } finally {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    /**
+     * Tests that a snapshot taken while users register, borrow and return, plus the journal
+     * after it, recovers the final state of the library.
+     */
+    @Test
+    public void testSnapshotWhileLibraryChanges() throws Exception {
+        Path journalFile = Files.createTempFile("library", ".journal");
+        try (LibraryJournal journal = LibraryJournal.open(journalFile, 16)) {
+            Library library = new Library(journal);
+            Author author = new Author("Robert C. Martin");
+            library.registerAuthor(author);
+            for (int i = 0; i < 8; i++) {
+                library.registerBook(new Book("Clean Code", author));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        String name = "User " + thread + "-" + i;
+                        library.registerUser(new User(name));
+                        library.tryBorrowBook("Clean Code", name);
+                        if (i % 2 == 0) {
+                            library.tryReturnBook(name);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                LibrarySnapshot.write(library, file, journal);
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            Library recovered = new Library();
+            LibraryJournal.replay(journalFile, recovered, LibrarySnapshot.read(file, recovered));
+            assertEquals(library.getUsersSummary(), recovered.getUsersSummary());
+            assertEquals(library.getStats().getActiveLoanCount(), recovered.getStats().getActiveLoanCount());
+        } finally {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package persistence;
+import models.Author;
+import models.Book;
+import models.BookStatus;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SqliteLibraryRepository} class, run against an in-memory database.
+ * <p>
+ * Verifies that a library written through a {@link RepositoryEventListener}, or saved all at once,
+ * is loaded back with the same authors, books, users and active loans.
+ * </p>
+ */
+public class SqliteLibraryRepositoryTest {
+
+    private SqliteLibraryRepository repository;
+
+    @BeforeEach
+    public void setup() {
+        repository = SqliteLibraryRepository.inMemory();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.close();
+    }
+
+    /**
+     * Tests that registrations, borrows and returns written through as they happen are all
+     * reflected in the library loaded from the database.
+     */
+    @Test
+    public void testWriteThroughAndLoad() {
+        Library library = new Library(new RepositoryEventListener(repository));
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+        library.registerBooks(List.of(new Book("Clean Code", author), new Book("Clean Code", author)));
+        library.registerBook(new Book("Clean Architecture", author));
+        library.registerUsers(List.of(new User("Alice"), new User("Bob")));
+        library.borrowBook("Clean Code", "Alice");
+        library.borrowBook("Clean Architecture", "Bob");
+        library.returnBook("Bob");
+
+        Library loaded = repository.load();
+
+        assertEquals(library.getBooksSummary(), loaded.getBooksSummary());
+        assertEquals(library.getUsersSummary(), loaded.getUsersSummary());
+        assertEquals(1, loaded.getAllAuthors().size());
+        assertEquals(1, loaded.getAvailableCopies("Clean Code"));
+        User alice = loaded.findUserByName("Alice");
+        assertEquals(alice, alice.getBorrowedBook().getBorrowedBy());
+        assertEquals(BookStatus.BORROWED, alice.getBorrowedBook().getStatus());
+    }
+
+    /**
+     * Tests that saving a whole library replaces the stored state and loads back identically.
+     */
+    @Test
+    public void testSaveAllAndLoad() {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Carlos"));
+        library.borrowBook("Effective Java", "Carlos");
+
+        repository.saveAll(library);
+        repository.saveAll(library);
+        Library loaded = repository.load();
+
+        assertEquals(library.getBooksSummary(), loaded.getBooksSummary());
+        assertEquals(library.getUsersSummary(), loaded.getUsersSummary());
+    }
+
+    /**
+     * Tests that loans borrowed and returned by many threads at once, and committed in shared
+     * transactions, are loaded back as the library holds them.
+     */
+    @Test
+    public void testConcurrentLoansAreCommitted() throws Exception {
+        Library library = new Library(new RepositoryEventListener(repository));
+        Author author = new Author("Robert C. Martin");
+        library.registerAuthor(author);
+        List<Book> books = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            books.add(new Book("Clean Code", author));
+            users.add(new User("User " + i));
+        }
+        library.registerBooks(books);
+        library.registerUsers(users);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                for (int op = 0; op < 20; op++) {
+                    library.borrowBook("Clean Code", user.getName());
+                    library.returnBook(user.getName());
+                }
+                library.borrowBook("Clean Code", user.getName());
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Library loaded = repository.load();
+        assertEquals(library.getUsersSummary(), loaded.getUsersSummary());
+        assertEquals(0, loaded.getAvailableCopies("Clean Code"));
+    }
+
+    /**
+     * Tests that copies and users borrowed from as soon as they are registered are saved before
+     * their loans, whose rows reference them, so no grouped loan transaction is rejected.
+     */
+    @Test
+    public void testBorrowRacingRegistrationIsSaved() throws Exception {
+        int count = 100;
+        Library library = new Library(new RepositoryEventListener(repository));
+        Author author = new Author("Kent Beck");
+        library.registerAuthor(author);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> borrower = executor.submit(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!library.tryBorrowBook("Title " + i, "User " + i).isSuccess()) {
+                    Thread.onSpinWait();
+                }
+            }
+            return null;
+        });
+        Future<?> registrar = executor.submit(() -> {
+            for (int i = 0; i < count; i++) {
+                library.registerUser(new User("User " + i));
+                library.registerBook(new Book("Title " + i, author));
+            }
+            return null;
+        });
+        registrar.get(60, TimeUnit.SECONDS);
+        borrower.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        Library loaded = repository.load();
+        assertEquals(library.getUsersSummary(), loaded.getUsersSummary());
+        assertEquals(count, loaded.getStats().getActiveLoanCount());
+    }
+}
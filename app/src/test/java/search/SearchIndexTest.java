@@ -0,0 +1,66 @@
+package search;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SearchIndex} class.
+ * <p>
+ * Verifies prefix completion over whole texts and words, typo-tolerant search within a bounded
+ * number of edits, and that accents and case are ignored.
+ * </p>
+ */
+public class SearchIndexTest {
+
+    private SearchIndex<String> index;
+
+    @BeforeEach
+    public void setup() {
+        index = new SearchIndex<>();
+        index.add("Clean Code", "clean-code");
+        index.add("Clean Architecture", "clean-architecture");
+        index.add("Robert C. Martin", "clean-code");
+        index.add("Dom Casmurro", "dom-casmurro");
+        index.add("Memórias Póstumas de Brás Cubas", "memorias");
+    }
+
+    /**
+     * Tests that texts starting with the prefix come before texts with a word starting with it,
+     * and that a value is reported once.
+     */
+    @Test
+    public void testComplete() {
+        assertEquals(List.of("clean-architecture", "clean-code"), index.complete("CLEAN", 10));
+        assertEquals(List.of("clean-code"), index.complete("clean c", 10));
+        assertEquals(List.of("clean-architecture", "clean-code", "dom-casmurro", "memorias"), index.complete("c", 10));
+        assertEquals(List.of("clean-code"), index.complete("mart", 10));
+        assertEquals(List.of("memorias"), index.complete("postumas", 10));
+        assertEquals(1, index.complete("c", 1).size());
+        assertTrue(index.complete("xyz", 10).isEmpty());
+    }
+
+    /**
+     * Tests that the search finds texts with typos, closest first, and rejects texts beyond the allowed edits.
+     */
+    @Test
+    public void testSearch() {
+        assertEquals(List.of("clean-code"), index.search("clen code", 10, 1));
+        assertEquals(List.of("dom-casmurro"), index.search("Dom Casmuro", 10, 2));
+        assertEquals(List.of("clean-code"), index.search("robert martin", 10, 3));
+        assertTrue(index.search("robert martin", 10, 1).isEmpty());
+        assertTrue(index.search("clan cde", 10, 1).isEmpty());
+        assertEquals(List.of("memorias"), index.search("memorias postumas de bras cuba", 10, 2));
+    }
+
+    /**
+     * Tests the bounded edit distance.
+     */
+    @Test
+    public void testDistance() {
+        assertEquals(0, SearchIndex.distance("code", "code", 2));
+        assertEquals(1, SearchIndex.distance("code", "cod", 2));
+        assertEquals(2, SearchIndex.distance("kitten", "sitting", 1));
+        assertEquals(3, SearchIndex.distance("kitten", "sitting", 3));
+    }
+}
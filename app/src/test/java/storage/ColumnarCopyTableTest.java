@@ -0,0 +1,12 @@
+package storage;
+
+/**
+ * Runs the {@link CopyTableTest} contract tests against {@link ColumnarCopyTable}.
+ */
+public class ColumnarCopyTableTest extends CopyTableTest {
+
+    @Override
+    protected CopyTable createTable() {
+        return new ColumnarCopyTable();
+    }
+}
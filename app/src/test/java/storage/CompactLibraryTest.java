@@ -0,0 +1,139 @@
+package storage;
+import exceptions.*;
+import models.BookStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CompactLibrary} class and its {@link ColumnarCopyTable}.
+ * <p>
+ * Verifies that titles and authors are interned, that borrowing and returning behave like
+ * in {@link models.Library}, and that free copies are found across runs and bitset words.
+ * </p>
+ */
+public class CompactLibraryTest {
+
+    private CompactLibrary library;
+
+    @BeforeEach
+    public void setup() {
+        library = new CompactLibrary();
+        library.registerCopies("Clean Code", "Robert C. Martin", 2);
+        library.registerCopies("Effective Java", "Joshua Bloch", 1);
+        library.registerUser("Alice");
+        library.registerUser("Bob");
+    }
+
+    /**
+     * Tests that copies of the same title share its row and get consecutive ids.
+     */
+    @Test
+    public void testRegisteringCopies() {
+        assertEquals(3, library.getCopyCount());
+        assertEquals(3, library.registerCopies("clean code", "robert c. martin", 1));
+        assertEquals(3, library.getAvailableCopies("Clean Code"));
+        assertEquals("Clean Code", library.getBook(3).getTitle());
+        assertEquals("Robert C. Martin", library.getBook(3).getAuthorName());
+    }
+
+    /**
+     * Tests that borrowing lends a copy to the user and that the view reflects the loan.
+     */
+    @Test
+    public void testSuccessfulBorrow() {
+        BookView copy = library.borrowBook("Clean Code", "Alice");
+        assertEquals(BookStatus.BORROWED, copy.getStatus());
+        assertEquals("Alice", copy.getBorrowerName());
+        assertEquals(copy, library.getBorrowedBook("alice"));
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+        assertEquals("\"Clean Code\" by Robert C. Martin - Borrowed by Alice", copy.toString());
+    }
+
+    /**
+     * Tests that a user cannot hold two books and that the rejected borrow leaves the copies free.
+     */
+    @Test
+    public void testUserAlreadyHasBook() {
+        library.borrowBook("Clean Code", "Alice");
+        assertThrows(UserHasBookException.class, () -> library.borrowBook("Effective Java", "Alice"));
+        assertEquals(1, library.getAvailableCopies("Effective Java"));
+    }
+
+    /**
+     * Tests that a name already registered, after normalization, is rejected as {@link models.Library} rejects it.
+     */
+    @Test
+    public void testDuplicateUserIsRejected() {
+        DuplicateUserException e = assertThrows(DuplicateUserException.class, () -> library.registerUser("ALICE"));
+        assertEquals("ALICE", e.getSubject());
+        assertEquals(2, library.registerUser("Carol"));
+    }
+
+    /**
+     * Tests that borrowing fails once every copy of the title is lent, and that the user can borrow again afterwards.
+     */
+    @Test
+    public void testBookNotAvailable() {
+        library.borrowBook("Effective Java", "Alice");
+        BookNotAvailableException e = assertThrows(BookNotAvailableException.class,
+            () -> library.borrowBook("Effective Java", "Bob"));
+        assertTrue(e.getMessage().contains("already borrowed"));
+        assertNull(library.getBorrowedBook("Bob"));
+        assertNotNull(library.borrowBook("Clean Code", "Bob"));
+    }
+
+    /**
+     * Tests that returning a book frees the copy and the user.
+     */
+    @Test
+    public void testReturnBook() {
+        BookView copy = library.borrowBook("Clean Code", "Alice");
+        library.returnBook("Alice");
+        assertTrue(copy.isAvailable());
+        assertNull(copy.getBorrowerName());
+        assertNull(library.getBorrowedBook("Alice"));
+        assertEquals(2, library.getAvailableCopies("Clean Code"));
+        assertThrows(UserHasNoBookException.class, () -> library.returnBook("Alice"));
+    }
+
+    /**
+     * Tests the exceptions thrown for unknown titles and users.
+     */
+    @Test
+    public void testNotFound() {
+        assertThrows(BookNotFoundException.class, () -> library.borrowBook("Unknown", "Alice"));
+        assertThrows(UserNotFoundException.class, () -> library.borrowBook("Clean Code", "Carlos"));
+        assertThrows(BookNotFoundException.class, () -> library.getBook(3));
+    }
+
+    /**
+     * Tests that every copy of a title spread over several runs and bitset words can be borrowed, and no more.
+     */
+    @Test
+    public void testBorrowEveryCopyAcrossRuns() {
+        library.registerCopies("Dom Casmurro", "Machado de Assis", 100);
+        library.registerCopies("Effective Java", "Joshua Bloch", 1);
+        library.registerCopies("Dom Casmurro", "Machado de Assis", 30);
+        for (int i = 0; i < 130; i++) {
+            library.registerUser("Reader " + i);
+            assertEquals("Dom Casmurro", library.borrowBook("Dom Casmurro", "Reader " + i).getTitle());
+        }
+        library.registerUser("Reader 130");
+        assertThrows(BookNotAvailableException.class, () -> library.borrowBook("Dom Casmurro", "Reader 130"));
+        library.returnBook("Reader 70");
+        assertEquals(1, library.getAvailableCopies("Dom Casmurro"));
+        assertEquals(73, library.borrowBook("Dom Casmurro", "Reader 130").getId());
+    }
+
+    /**
+     * Tests that the summary lists every copy in the format of {@link models.Library#getBooksSummary()}.
+     */
+    @Test
+    public void testBooksSummary() {
+        library.borrowBook("Effective Java", "Bob");
+        assertEquals("\"Clean Code\" by Robert C. Martin - Available\n"
+            + "\"Clean Code\" by Robert C. Martin - Available\n"
+            + "\"Effective Java\" by Joshua Bloch - Borrowed by Bob\n", library.getBooksSummary());
+    }
+}
@@ -0,0 +1,77 @@
+package storage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link CopyTable} contract, run against each implementation by its subclasses.
+ * <p>
+ * Verifies that rows keep their columns, that a copy is lent to one user at a time and only
+ * given back by that user, and that free copies are found across bitset words and chunks.
+ * </p>
+ */
+public abstract class CopyTableTest {
+
+    private CopyTable table;
+
+    /**
+     * Creates the empty table under test.
+     *
+     * @return a new, empty table
+     */
+    protected abstract CopyTable createTable();
+
+    @BeforeEach
+    public void setup() {
+        table = createTable();
+    }
+
+    /**
+     * Tests that added copies get consecutive ids, keep their title and author and start available.
+     */
+    @Test
+    public void testAdd() {
+        assertEquals(0, table.add(7, 3));
+        assertEquals(1, table.add(8, 4));
+        assertEquals(2, table.size());
+        assertEquals(8, table.getTitleId(1));
+        assertEquals(4, table.getAuthorId(1));
+        assertEquals(CopyTable.NO_USER, table.getBorrower(1));
+        assertTrue(table.isAvailable(1));
+    }
+
+    /**
+     * Tests that a copy cannot be lent twice and can only be returned by its borrower.
+     */
+    @Test
+    public void testBorrowAndReturn() {
+        table.add(0, 0);
+        assertTrue(table.tryBorrow(0, 5));
+        assertFalse(table.tryBorrow(0, 6));
+        assertEquals(5, table.getBorrower(0));
+        assertFalse(table.isAvailable(0));
+        assertFalse(table.tryReturn(0, 6));
+        assertTrue(table.tryReturn(0, 5));
+        assertTrue(table.isAvailable(0));
+        assertFalse(table.tryReturn(0, 5));
+    }
+
+    /**
+     * Tests that the search for a free copy crosses bitset words and chunks and stays within its range.
+     */
+    @Test
+    public void testNextAvailable() {
+        int size = IntColumn.CHUNK_SIZE + 100;
+        for (int i = 0; i < size; i++) {
+            table.add(0, 0);
+        }
+        for (int i = 10; i < IntColumn.CHUNK_SIZE + 10; i++) {
+            assertTrue(table.tryBorrow(i, 1));
+        }
+        assertEquals(3, table.nextAvailable(3, size));
+        assertEquals(IntColumn.CHUNK_SIZE + 10, table.nextAvailable(10, size));
+        assertEquals(-1, table.nextAvailable(10, IntColumn.CHUNK_SIZE + 10));
+        assertEquals(-1, table.nextAvailable(5, 5));
+        assertTrue(table.footprintBytes() >= (long) size * 3 * Integer.BYTES);
+    }
+}
@@ -0,0 +1,30 @@
+package storage;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the {@link CopyTableTest} contract tests against {@link OffHeapCopyTable}, and checks that
+ * a {@link CompactLibrary} works on top of it.
+ */
+public class OffHeapCopyTableTest extends CopyTableTest {
+
+    @Override
+    protected CopyTable createTable() {
+        return new OffHeapCopyTable();
+    }
+
+    /**
+     * Tests borrowing and returning through a library whose copies are stored off the heap.
+     */
+    @Test
+    public void testCompactLibraryOffHeap() {
+        CompactLibrary library = new CompactLibrary(new OffHeapCopyTable());
+        library.registerCopies("Clean Code", "Robert C. Martin", 2);
+        library.registerUser("Alice");
+        BookView copy = library.borrowBook("Clean Code", "Alice");
+        assertEquals("\"Clean Code\" by Robert C. Martin - Borrowed by Alice", copy.toString());
+        assertEquals(1, library.getAvailableCopies("Clean Code"));
+        library.returnBook("Alice");
+        assertTrue(copy.isAvailable());
+    }
+}
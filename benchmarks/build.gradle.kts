@@ -0,0 +1,42 @@
+/*
+ * JMH benchmarks for the hot paths of the library in the 'app' project.
+ *
+ * Run all benchmarks with:
+ *     ./gradlew :benchmarks:jmh
+ * Narrow them down with -PjmhIncludes=<regex> and change the thread count with -PjmhThreads=<n>.
+ * Results are written to benchmarks/build/results/jmh/results.json.
+ */
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    includes = listOf(providers.gradleProperty("jmhIncludes").getOrElse(".*"))
+    threads = providers.gradleProperty("jmhThreads").map(String::toInt).getOrElse(1)
+    benchmarkMode = listOf("thrpt", "avgt")
+    timeUnit = "us"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    // Report the allocation rate next to throughput and latency.
+    profilers = listOf("gc")
+    jvmArgs = listOf("-Xmx8g", "-Dfile.encoding=UTF-8")
+    resultFormat = "JSON"
+}
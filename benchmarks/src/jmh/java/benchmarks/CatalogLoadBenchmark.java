@@ -0,0 +1,53 @@
+package benchmarks;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import models.Author;
+import models.Book;
+import models.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures how long it takes to load a whole catalog into an empty {@link Library},
+ * registering copies one by one versus with {@link Library#registerBooks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogLoadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    List<Author> authors;
+    List<Book> copies;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        authors = Catalogs.authors(false);
+        copies = Catalogs.books(books, authors, false);
+    }
+
+    @Benchmark
+    public Library registerOneByOne() {
+        Library library = new Library();
+        authors.forEach(library::registerAuthor);
+        copies.forEach(library::registerBook);
+        return library;
+    }
+
+    @Benchmark
+    public Library registerInBulk() {
+        Library library = new Library();
+        library.registerAuthors(authors);
+        library.registerBooks(copies);
+        return library;
+    }
+}
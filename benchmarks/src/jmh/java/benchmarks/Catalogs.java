@@ -0,0 +1,110 @@
+package benchmarks;
+import java.util.ArrayList;
+import java.util.List;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+
+/**
+ * Builds the synthetic catalogs shared by the benchmarks.
+ * <p>
+ * Catalogs are loaded through the bulk registration methods of {@link Library}.
+ * Every title is registered with {@link #COPIES_PER_TITLE} copies, titles are spread over
+ * a fixed number of authors, and names can be generated either as plain ASCII or with
+ * accents, which take the slow path of {@code StringUtils.normalize}.
+ * </p>
+ */
+final class Catalogs {
+    static final int COPIES_PER_TITLE = 4;
+    static final int AUTHORS = 1_000;
+    static final int SAMPLES = 1 << 16;
+
+    private Catalogs() {
+    }
+
+    /**
+     * Returns the title at the given index.
+     *
+     * @param index    the index of the title
+     * @param accented whether the title contains accented characters
+     * @return the title
+     */
+    static String title(int index, boolean accented) {
+        return (accented ? "Introdução à Programação, Volume " : "Introduction to Programming, Volume ") + index;
+    }
+
+    /**
+     * Returns the user name at the given index.
+     *
+     * @param index    the index of the user
+     * @param accented whether the name contains accented characters
+     * @return the user name
+     */
+    static String userName(int index, boolean accented) {
+        return (accented ? "José Conceição Araújo " : "Joseph Conception Araujo ") + index;
+    }
+
+    /**
+     * Returns how many distinct titles a catalog of the given size has.
+     *
+     * @param books the number of copies in the catalog
+     * @return the number of distinct titles
+     */
+    static int titleCount(int books) {
+        return Math.max(1, books / COPIES_PER_TITLE);
+    }
+
+    /**
+     * Builds a library with the given number of copies and users.
+     *
+     * @param books    the number of copies to register
+     * @param users    the number of users to register
+     * @param accented whether titles and names contain accented characters
+     * @return the populated library
+     */
+    static Library build(int books, int users, boolean accented) {
+        Library library = new Library();
+        List<Author> authors = authors(accented);
+        library.registerAuthors(authors);
+        library.registerBooks(books(books, authors, accented));
+        List<User> registered = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            registered.add(new User(userName(i, accented)));
+        }
+        library.registerUsers(registered);
+        return library;
+    }
+
+    /**
+     * Creates the authors the titles are spread over.
+     *
+     * @param accented whether the names contain accented characters
+     * @return the authors, not yet registered
+     */
+    static List<Author> authors(boolean accented) {
+        List<Author> authors = new ArrayList<>(AUTHORS);
+        for (int i = 0; i < AUTHORS; i++) {
+            authors.add(new Author((accented ? "Autor Anônimo " : "Anonymous Author ") + i));
+        }
+        return authors;
+    }
+
+    /**
+     * Creates the copies of a catalog with the given size.
+     *
+     * @param books    the number of copies to create
+     * @param authors  the authors the titles are spread over
+     * @param accented whether the titles contain accented characters
+     * @return the copies, not yet registered
+     */
+    static List<Book> books(int books, List<Author> authors, boolean accented) {
+        int titles = titleCount(books);
+        List<Book> copies = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            int title = i % titles;
+            copies.add(new Book(title(title, accented), authors.get(title % authors.size())));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+import commands.LibraryCommand.BorrowCommand;
+import commands.LibraryCommand.ReturnCommand;
+import commands.LibraryCommandLoop;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.BorrowResult;
+import models.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares borrowing and returning through the library's locks, from every benchmark thread,
+ * with handing the same requests to a single-writer {@link LibraryCommandLoop}.
+ * <p>
+ * Titles are requested following a Zipfian distribution, so a few titles are hot and the
+ * lock-based path contends on their copies. Each operation borrows a title and gives it back:
+ * {@code lockBased} calls the library directly, {@code commandLoop} waits for the borrow
+ * before submitting the return, and {@code commandLoopPipelined} submits both at once and
+ * waits for the return only, which lets the owner thread fill its batches. Run with several
+ * threads, e.g. {@code ./gradlew :benchmarks:jmh -PjmhIncludes=CommandLoopBenchmark -PjmhThreads=8}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class CommandLoopBenchmark {
+
+    @Param({"100000"})
+    public int books;
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"0.99", "1.2"})
+    public double skew;
+
+    @Param({"1", "64"})
+    public int batchSize;
+
+    Library library;
+    LibraryCommandLoop loop;
+    String[] titles;
+    String[] userNames;
+    int[] titleSamples;
+    final AtomicInteger nextBorrower = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = Catalogs.build(books, users, false);
+        loop = new LibraryCommandLoop(library, 4096, batchSize);
+
+        titles = new String[Catalogs.titleCount(books)];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = Catalogs.title(i, false);
+        }
+        userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = Catalogs.userName(i, false);
+        }
+        titleSamples = new ZipfSampler(titles.length, skew, 42).samples(Catalogs.SAMPLES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loop.close();
+    }
+
+    /**
+     * Per-thread borrower: each benchmark thread borrows and returns as a different user.
+     */
+    @State(Scope.Thread)
+    public static class Borrower {
+        String userName;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(CommandLoopBenchmark benchmark) {
+            int index = benchmark.nextBorrower.getAndIncrement() % benchmark.userNames.length;
+            userName = benchmark.userNames[index];
+            cursor = index;
+        }
+
+        int next() {
+            return cursor++ & (Catalogs.SAMPLES - 1);
+        }
+    }
+
+    @Benchmark
+    public BorrowResult lockBased(Borrower borrower) {
+        BorrowResult result = library.tryBorrowBook(titles[titleSamples[borrower.next()]], borrower.userName);
+        return result.isSuccess() ? library.tryReturnBook(borrower.userName) : result;
+    }
+
+    @Benchmark
+    public BorrowResult commandLoop(Borrower borrower) throws Exception {
+        String title = titles[titleSamples[borrower.next()]];
+        BorrowResult result = loop.submit(new BorrowCommand(title, borrower.userName)).get();
+        return result.isSuccess() ? loop.submit(new ReturnCommand(borrower.userName)).get() : result;
+    }
+
+    @Benchmark
+    public BorrowResult commandLoopPipelined(Borrower borrower) throws Exception {
+        String title = titles[titleSamples[borrower.next()]];
+        loop.submit(new BorrowCommand(title, borrower.userName));
+        CompletableFuture<BorrowResult> returned = loop.submit(new ReturnCommand(borrower.userName));
+        return returned.get();
+    }
+}
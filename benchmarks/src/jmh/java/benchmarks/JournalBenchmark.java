@@ -0,0 +1,77 @@
+package benchmarks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import events.LibraryEventListener;
+import models.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import persistence.LibraryJournal;
+
+/**
+ * Measures durable borrow and return throughput with a {@link LibraryJournal}, comparing one
+ * {@code fsync} per operation ({@code maxBatchSize = 1}) with group commit.
+ * Each thread borrows and returns as its own user, so the threads only compete for the journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class JournalBenchmark {
+
+    @Param({"1", "256"})
+    public int maxBatchSize;
+
+    Path file;
+    LibraryJournal journal;
+    Library library;
+    final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("library", ".journal");
+        library = Catalogs.build(10_000, 1_000, false);
+        journal = LibraryJournal.open(file, maxBatchSize);
+        library.setEventListener(journal);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        library.setEventListener(LibraryEventListener.noOp());
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * The user a benchmark thread borrows as, distinct for every thread.
+     */
+    @State(Scope.Thread)
+    public static class Borrower {
+        String userName;
+        String title;
+
+        @Setup(Level.Trial)
+        public void setup(JournalBenchmark benchmark) {
+            int index = benchmark.nextUser.getAndIncrement();
+            userName = Catalogs.userName(index, false);
+            title = Catalogs.title(index, false);
+        }
+    }
+
+    @Benchmark
+    public void borrowAndReturn(Borrower borrower) {
+        library.borrowBook(borrower.title, borrower.userName);
+        library.returnBook(borrower.userName);
+    }
+}
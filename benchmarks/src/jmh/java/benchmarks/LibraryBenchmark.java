@@ -0,0 +1,108 @@
+package benchmarks;
+import exceptions.BookNotAvailableException;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.BorrowResult;
+import models.Library;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the per-request paths of {@link Library}: borrowing and returning a copy,
+ * through exceptions or through {@link BorrowResult}s, and looking a user up by name.
+ * <p>
+ * The catalog size, the number of users, the popularity skew of the requested titles and
+ * whether names are accented are parameters. The number of threads is set through JMH,
+ * e.g. {@code ./gradlew :benchmarks:jmh -PjmhThreads=8}; each thread borrows as its own user.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class LibraryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"0.0", "0.99"})
+    public double skew;
+
+    @Param({"ascii", "accented"})
+    public String names;
+
+    Library library;
+    String[] titles;
+    String[] userNames;
+    int[] titleSamples;
+    int[] userSamples;
+    final AtomicInteger nextBorrower = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boolean accented = names.equals("accented");
+        library = Catalogs.build(books, users, accented);
+
+        titles = new String[Catalogs.titleCount(books)];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = Catalogs.title(i, accented);
+        }
+        userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = Catalogs.userName(i, accented);
+        }
+        titleSamples = new ZipfSampler(titles.length, skew, 42).samples(Catalogs.SAMPLES);
+        userSamples = new ZipfSampler(users, 0.0, 43).samples(Catalogs.SAMPLES);
+    }
+
+    /**
+     * Per-thread borrower: each benchmark thread borrows and returns as a different user.
+     */
+    @State(Scope.Thread)
+    public static class Borrower {
+        String userName;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(LibraryBenchmark benchmark) {
+            int index = benchmark.nextBorrower.getAndIncrement() % benchmark.userNames.length;
+            userName = benchmark.userNames[index];
+            cursor = index;
+        }
+
+        int next() {
+            return cursor++ & (Catalogs.SAMPLES - 1);
+        }
+    }
+
+    @Benchmark
+    public void borrowAndReturn(Borrower borrower, Blackhole blackhole) {
+        String title = titles[titleSamples[borrower.next()]];
+        try {
+            library.borrowBook(title, borrower.userName);
+            library.returnBook(borrower.userName);
+        } catch (BookNotAvailableException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void tryBorrowAndReturn(Borrower borrower, Blackhole blackhole) {
+        String title = titles[titleSamples[borrower.next()]];
+        BorrowResult result = library.tryBorrowBook(title, borrower.userName);
+        if (result.isSuccess()) {
+            library.tryReturnBook(borrower.userName);
+        }
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public User findUserByName(Borrower borrower) {
+        return library.findUserByName(userNames[userSamples[borrower.next()]]);
+    }
+}
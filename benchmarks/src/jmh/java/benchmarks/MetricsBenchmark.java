@@ -0,0 +1,87 @@
+package benchmarks;
+import java.util.concurrent.atomic.AtomicInteger;
+import metrics.LibraryMetrics;
+import models.BorrowResult;
+import models.Library;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures what {@link LibraryMetrics} costs on the per-request paths of {@link Library}, by running
+ * the same borrows, returns and lookups with metrics disabled and enabled.
+ * <p>
+ * Run it with several threads to see how the striped histograms behave under contention,
+ * e.g. {@code ./gradlew :benchmarks:jmh -PjmhIncludes=MetricsBenchmark -PjmhThreads=8}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"100000"})
+    public int books;
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    Library library;
+    String[] titles;
+    String[] userNames;
+    int[] titleSamples;
+    final AtomicInteger nextBorrower = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = Catalogs.build(books, users, false);
+        if (metrics) {
+            library.enableMetrics();
+        }
+        titles = new String[Catalogs.titleCount(books)];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = Catalogs.title(i, false);
+        }
+        userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = Catalogs.userName(i, false);
+        }
+        titleSamples = new ZipfSampler(titles.length, 0.99, 42).samples(Catalogs.SAMPLES);
+    }
+
+    /**
+     * Per-thread borrower: each benchmark thread borrows and returns as a different user.
+     */
+    @State(Scope.Thread)
+    public static class Borrower {
+        String userName;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(MetricsBenchmark benchmark) {
+            int index = benchmark.nextBorrower.getAndIncrement() % benchmark.userNames.length;
+            userName = benchmark.userNames[index];
+            cursor = index;
+        }
+
+        int next() {
+            return cursor++ & (Catalogs.SAMPLES - 1);
+        }
+    }
+
+    @Benchmark
+    public BorrowResult tryBorrowAndReturn(Borrower borrower) {
+        BorrowResult result = library.tryBorrowBook(titles[titleSamples[borrower.next()]], borrower.userName);
+        return result.isSuccess() ? library.tryReturnBook(borrower.userName) : result;
+    }
+
+    @Benchmark
+    public User findUserByName(Borrower borrower) {
+        return library.findUserByName(userNames[borrower.next() % userNames.length]);
+    }
+}
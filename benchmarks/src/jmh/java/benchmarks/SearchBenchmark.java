@@ -0,0 +1,44 @@
+package benchmarks;
+import java.util.List;
+import models.Book;
+import models.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks title completion and typo-tolerant title search over catalogs with many titles.
+ * The synthetic titles differ only by their volume number, which is the hardest case for the
+ * trigram filter.
+ */
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"100000", "4000000"})
+    public int books;
+
+    Library library;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = Catalogs.build(books, 1, false);
+    }
+
+    @Benchmark
+    public List<List<Book>> completeTitles() {
+        return library.completeTitles("introduction to prog", 10);
+    }
+
+    @Benchmark
+    public List<List<Book>> searchTitlesWithTypo() {
+        return library.searchTitles("Introductoin to Programming, Volume 5", 10);
+    }
+
+    @Benchmark
+    public List<List<Book>> searchAuthorWithTypo() {
+        return library.searchTitles("Anonymus Author 12", 10);
+    }
+}
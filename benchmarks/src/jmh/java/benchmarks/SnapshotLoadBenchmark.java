@@ -0,0 +1,58 @@
+package benchmarks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import models.Book;
+import models.Library;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import persistence.LibrarySnapshot;
+
+/**
+ * Measures how long it takes to start a {@link Library} from a binary snapshot, with every
+ * fourth user holding a loan. Compare with {@link CatalogLoadBenchmark}, which rebuilds the
+ * catalog from objects already in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotLoadBenchmark {
+
+    @Param({"100000", "1000000", "4000000"})
+    public int books;
+
+    Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Library library = Catalogs.build(books, books / 4, false);
+        List<Book> copies = library.getAllBooks();
+        List<User> users = library.getAllUsers();
+        for (int user = 0; user < users.size(); user += 4) {
+            library.restoreLoan(copies.get(user), users.get(user));
+        }
+        file = Files.createTempFile("library", ".snapshot");
+        LibrarySnapshot.write(library, file, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Library loadSnapshot() {
+        return LibrarySnapshot.load(file);
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import utils.StringUtils;
+
+/**
+ * Benchmarks {@link StringUtils#normalize(String)} on ASCII and accented input.
+ */
+@State(Scope.Thread)
+public class StringUtilsBenchmark {
+
+    @Param({"ascii", "ascii-uppercase", "accented"})
+    public String names;
+
+    private final String[] inputs = new String[Catalogs.SAMPLES];
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < inputs.length; i++) {
+            String name = Catalogs.userName(i, names.equals("accented"));
+            inputs[i] = names.equals("ascii") ? name.toLowerCase() : name;
+        }
+    }
+
+    @Benchmark
+    public String normalize() {
+        return StringUtils.normalize(inputs[cursor++ & (Catalogs.SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+import java.io.Writer;
+import models.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the catalog-wide summaries of {@link Library}, whose cost and allocation
+ * grow with the number of copies and users.
+ */
+@State(Scope.Benchmark)
+public class SummaryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    Library library;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = Catalogs.build(books, users, false);
+    }
+
+    @Benchmark
+    public String getBooksSummary() {
+        return library.getBooksSummary();
+    }
+
+    @Benchmark
+    public String getUsersSummary() {
+        return library.getUsersSummary();
+    }
+
+    @Benchmark
+    public void writeBooksSummary(Blackhole blackhole) {
+        library.writeBooksSummary(new BlackholeWriter(blackhole));
+    }
+
+    @Benchmark
+    public int writeBooksSummaryPage() {
+        return library.writeBooksSummary(Writer.nullWriter(), books / 2, 100);
+    }
+
+    /**
+     * Writer that hands every character to the blackhole, so streaming is measured without a destination.
+     */
+    static final class BlackholeWriter extends Writer {
+        private final Blackhole blackhole;
+
+        BlackholeWriter(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            blackhole.consume(length);
+        }
+
+        @Override
+        public Writer append(CharSequence sequence) {
+            blackhole.consume(sequence);
+            return this;
+        }
+
+        @Override
+        public Writer append(char c) {
+            blackhole.consume(c);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
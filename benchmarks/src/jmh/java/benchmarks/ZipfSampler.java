@@ -0,0 +1,61 @@
+package benchmarks;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws ranks in {@code [0, n)} following a Zipfian distribution, where rank {@code k}
+ * is picked with probability proportional to {@code 1 / (k + 1)^skew}.
+ * <p>
+ * A skew of {@code 0} gives a uniform distribution; values around {@code 1} model a few
+ * very popular titles and a long tail of rarely requested ones.
+ * </p>
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a sampler over {@code n} ranks.
+     *
+     * @param n    the number of ranks
+     * @param skew the exponent of the distribution, {@code 0} for uniform
+     * @param seed the seed of the random generator, so runs are reproducible
+     */
+    ZipfSampler(int n, double skew, long seed) {
+        this.cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Draws the next rank.
+     *
+     * @return a rank in {@code [0, n)}
+     */
+    int next() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    /**
+     * Draws {@code count} ranks up front, so benchmarks do not pay for sampling while measuring.
+     *
+     * @param count the number of ranks to draw, must be a power of two
+     * @return the drawn ranks
+     */
+    int[] samples(int count) {
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = next();
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Embedded HTTP front-end for the library in the 'app' project, and its load generator.
+ *
+ * Start a server on a synthetic catalog with:
+ *     ./gradlew :server:run --args="--port 8080 --titles 10000 --users 10000"
+ * Then measure it with:
+ *     ./gradlew :server:loadTest -PloadArgs="--connections 10000 --duration 30"
+ */
+
+plugins {
+    application
+    java
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":app"))
+
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+application {
+    mainClass.set("server.LibraryServer")
+    applicationDefaultJvmArgs = listOf("-Dfile.encoding=UTF-8")
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the load generator against a running library server."
+    group = "application"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("server.LoadGenerator")
+    args = providers.gradleProperty("loadArgs").map { it.trim().split(Regex("\\s+")) }.getOrElse(emptyList())
+    jvmArgs = listOf("-Dfile.encoding=UTF-8")
+}
+
+tasks.named<Test>("test") {
+    useJUnitPlatform()
+}
@@ -0,0 +1,70 @@
+package server;
+import java.util.ArrayList;
+import java.util.List;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+
+/**
+ * Names and builds the synthetic catalog served by {@link LibraryServer#main} and requested by
+ * {@link LoadGenerator}, so that both sides agree on the titles and users without exchanging them.
+ */
+final class DemoCatalog {
+    static final int AUTHORS = 1_000;
+
+    private DemoCatalog() {
+    }
+
+    /**
+     * Returns the title at the given index.
+     *
+     * @param index the index of the title
+     * @return the title
+     */
+    static String title(int index) {
+        return "Title " + index;
+    }
+
+    /**
+     * Returns the user name at the given index.
+     *
+     * @param index the index of the user
+     * @return the user name
+     */
+    static String userName(int index) {
+        return "User " + index;
+    }
+
+    /**
+     * Registers the catalog in a library through its bulk registration methods.
+     *
+     * @param library the library to be populated
+     * @param titles  the number of distinct titles
+     * @param copies  the number of copies of each title
+     * @param users   the number of users
+     */
+    static void register(Library library, int titles, int copies, int users) {
+        List<Author> authors = new ArrayList<>(AUTHORS);
+        for (int i = 0; i < Math.min(AUTHORS, titles); i++) {
+            authors.add(new Author("Author " + i));
+        }
+        library.registerAuthors(authors);
+
+        List<Book> books = new ArrayList<>(titles * copies);
+        for (int i = 0; i < titles; i++) {
+            Book first = new Book(title(i), authors.get(i % authors.size()));
+            books.add(first);
+            for (int c = 1; c < copies; c++) {
+                books.add(new Book(first));
+            }
+        }
+        library.registerBooks(books);
+
+        List<User> registered = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            registered.add(new User(userName(i)));
+        }
+        library.registerUsers(registered);
+    }
+}
@@ -0,0 +1,290 @@
+package server;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import exceptions.UserNotFoundException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import models.BorrowResult;
+import models.Library;
+import models.User;
+import utils.Messages;
+
+/**
+ * Embedded HTTP front-end for a {@link Library}, built on the JDK's {@code com.sun.net.httpserver}.
+ * <p>
+ * Each request is handled on its own virtual thread, so a request waiting on a user's loan lock or on
+ * a slow client takes no platform thread, and tens of thousands of connections can be open at once.
+ * The endpoints take their arguments as query parameters and answer in plain UTF-8 text:
+ * <ul>
+ *   <li>{@code POST /borrow?title=&user=} lends a copy, through {@link Library#tryBorrowBook}</li>
+ *   <li>{@code POST /return?user=[&title=]} gives a book back, through {@link Library#tryReturnBook}</li>
+ *   <li>{@code GET /user?name=} describes a user, through {@link Library#findUserByName}</li>
+ *   <li>{@code GET /books[?offset=&limit=]} and {@code GET /users[?offset=&limit=]} stream the summaries
+ *   of the catalog and of the users, through {@link Library#writeBooksSummary(Appendable, int, int)} and
+ *   {@link Library#writeUsersSummary(Appendable, int, int)}</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Borrows and returns use the result-returning API, so a refused request costs no exception. They
+ * answer {@code 200} on success, {@code 404} for an unknown user or title and {@code 409} when the
+ * request conflicts with the loans, with the library's message as body. A missing parameter is a
+ * {@code 400} and a wrong method a {@code 405}.
+ * </p>
+ *
+ * <p>
+ * The JDK server reads its tuning from system properties once, when the first server is created. Out
+ * of the box it closes every idle keep-alive connection beyond the first {@code 200} and leaves Nagle's
+ * algorithm on, which delays small responses by tens of milliseconds; {@link #main} lifts both unless
+ * they were set on the command line, and an application embedding the server should do the same.
+ * </p>
+ */
+public class LibraryServer implements AutoCloseable {
+    private static final int DEFAULT_BACKLOG = 16_384;
+    private static final String MAX_IDLE_CONNECTIONS = "sun.net.httpserver.maxIdleConnections";
+    private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    private final Library library;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private LibraryServer(Library library, HttpServer server) {
+        this.library = library;
+        this.server = server;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/borrow", exchange -> handle(exchange, "POST", this::borrow));
+        server.createContext("/return", exchange -> handle(exchange, "POST", this::giveBack));
+        server.createContext("/user", exchange -> handle(exchange, "GET", this::lookup));
+        server.createContext("/books", exchange -> handle(exchange, "GET", this::booksSummary));
+        server.createContext("/users", exchange -> handle(exchange, "GET", this::usersSummary));
+    }
+
+    /**
+     * Starts serving a library on the given address.
+     *
+     * @param library the library to serve
+     * @param address the address to listen on; port {@code 0} picks a free port
+     * @param backlog the number of connections the system may queue before they are accepted
+     * @return the running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static LibraryServer start(Library library, InetSocketAddress address, int backlog) throws IOException {
+        LibraryServer server = new LibraryServer(library, HttpServer.create(address, backlog));
+        server.server.start();
+        return server;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting connections and waits for the requests in progress to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * Handles one request of an endpoint, after checking its method.
+     */
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                respond(exchange, 405, "Use " + method + ".");
+                return;
+            }
+            exchange.getRequestBody().readAllBytes();
+            try {
+                endpoint.handle(exchange, query(exchange));
+            } catch (MissingParameterException | NumberFormatException e) {
+                respond(exchange, 400, e.getMessage());
+            }
+        }
+    }
+
+    private void borrow(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String title = required(query, "title");
+        String userName = required(query, "user");
+        BorrowResult result = library.tryBorrowBook(title, userName);
+        if (result.isSuccess()) {
+            respond(exchange, 200, Messages.bookSuccessfullyBorrowed(result.getBook()));
+        } else {
+            fail(exchange, result, title, userName);
+        }
+    }
+
+    private void giveBack(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String userName = required(query, "user");
+        String title = query.get("title");
+        BorrowResult result = title == null
+            ? library.tryReturnBook(userName)
+            : library.tryReturnBook(userName, title);
+        if (result.isSuccess()) {
+            respond(exchange, 200, Messages.bookSuccessfullyReturned(result.getBook()));
+        } else {
+            fail(exchange, result, title, userName);
+        }
+    }
+
+    private void lookup(HttpExchange exchange, Map<String, String> query) throws IOException {
+        try {
+            respond(exchange, 200, library.findUserByName(required(query, "name")).toString());
+        } catch (UserNotFoundException e) {
+            respond(exchange, 404, e.getMessage());
+        }
+    }
+
+    private void booksSummary(HttpExchange exchange, Map<String, String> query) throws IOException {
+        int offset = intParameter(query, "offset", 0);
+        int limit = intParameter(query, "limit", Integer.MAX_VALUE);
+        try (Writer out = streamText(exchange)) {
+            library.writeBooksSummary(out, offset, limit);
+        }
+    }
+
+    private void usersSummary(HttpExchange exchange, Map<String, String> query) throws IOException {
+        int offset = intParameter(query, "offset", 0);
+        int limit = intParameter(query, "limit", Integer.MAX_VALUE);
+        try (Writer out = streamText(exchange)) {
+            library.writeUsersSummary(out, offset, limit);
+        }
+    }
+
+    /**
+     * Answers a refused borrow or return with its status code and the library's message.
+     */
+    private void fail(HttpExchange exchange, BorrowResult result, String title, String userName) throws IOException {
+        switch (result.getStatus()) {
+            case USER_NOT_FOUND -> respond(exchange, 404, Messages.userNotFound(userName));
+            case BOOK_NOT_FOUND -> respond(exchange, 404, Messages.bookNotFound(title));
+            case BOOK_NOT_AVAILABLE -> respond(exchange, 409, Messages.bookNotAvailable(title));
+            case USER_HAS_BOOK -> {
+                User user = library.findUserByName(userName);
+                respond(exchange, 409, Messages.loanLimitReached(user.getName(), user.getLoanLimit()));
+            }
+            case USER_HAS_NO_BOOK -> respond(exchange, 409, title == null
+                ? Messages.userHasNoBorrowedBook(userName)
+                : Messages.userHasNotBorrowed(userName, title));
+            default -> respond(exchange, 500, result.toString());
+        }
+    }
+
+    /**
+     * Sends a complete plain-text response of known length.
+     */
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts a chunked plain-text response and returns a buffered writer on its body.
+     */
+    private static Writer streamText(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Decodes the query parameters of a request. A repeated parameter keeps its last value.
+     */
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new MissingParameterException(name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * The handling of one endpoint, given its decoded query parameters.
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        void handle(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    /**
+     * Thrown when a request lacks a required query parameter, and answered with a {@code 400}.
+     */
+    private static final class MissingParameterException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MissingParameterException(String name) {
+            super("Missing parameter '" + name + "'.", null, false, false);
+        }
+    }
+
+    /**
+     * Serves a synthetic catalog, named as {@link LoadGenerator} expects, until the process is stopped.
+     * <p>
+     * Options: {@code --port} (default {@code 8080}), {@code --titles} (default {@code 10000}),
+     * {@code --copies} per title (default {@code 4}), {@code --users} (default {@code 10000}) and
+     * {@code --backlog} (default {@code 16384}).
+     * </p>
+     *
+     * @param args the options
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadGenerator.options(args);
+        int port = Integer.parseInt(options.getOrDefault("port", "8080"));
+        int titles = Integer.parseInt(options.getOrDefault("titles", "10000"));
+        int copies = Integer.parseInt(options.getOrDefault("copies", "4"));
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int backlog = Integer.parseInt(options.getOrDefault("backlog", String.valueOf(DEFAULT_BACKLOG)));
+        System.getProperties().putIfAbsent(MAX_IDLE_CONNECTIONS, String.valueOf(Integer.MAX_VALUE));
+        System.getProperties().putIfAbsent(NO_DELAY, "true");
+
+        Library library = new Library();
+        DemoCatalog.register(library, titles, copies, users);
+        LibraryServer server = start(library, new InetSocketAddress(port), backlog);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Serving " + titles * copies + " copies and " + users + " users on port " + server.getPort());
+    }
+}
@@ -0,0 +1,321 @@
+package server;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load generator for {@link LibraryServer}, measuring latency percentiles and throughput.
+ * <p>
+ * Each simulated client is a virtual thread with its own keep-alive connection, acting as one user
+ * of the server's synthetic catalog: it borrows a random title and, when the borrow succeeds, returns
+ * it, over and over. Every request is timed from the moment it is written until its response has been
+ * read. Requests started during the warm-up are not recorded.
+ * </p>
+ *
+ * <p>
+ * The generator is closed-loop: a client sends its next request only once the previous one has been
+ * answered, so a server that stalls also slows the load down, and the percentiles understate the
+ * latency that clients arriving at a fixed rate would see.
+ * </p>
+ *
+ * <p>
+ * Options: {@code --host} (default {@code localhost}), {@code --port} (default {@code 8080}),
+ * {@code --connections} (default {@code 1000}), {@code --warmup} and {@code --duration} in seconds
+ * (defaults {@code 5} and {@code 30}), and {@code --titles} and {@code --users} of the server's
+ * catalog (default {@code 10000} each). Ten thousand connections on one box need as many file
+ * descriptors on each side, e.g. {@code ulimit -n 65536}.
+ * </p>
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Runs the load generator from the command line and prints its report.
+     *
+     * @param args the options
+     * @throws Exception if the generator is interrupted or a client fails unexpectedly
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        Report report = run(
+            options.getOrDefault("host", "localhost"),
+            Integer.parseInt(options.getOrDefault("port", "8080")),
+            Integer.parseInt(options.getOrDefault("connections", "1000")),
+            (long) (Double.parseDouble(options.getOrDefault("warmup", "5")) * 1e9),
+            (long) (Double.parseDouble(options.getOrDefault("duration", "30")) * 1e9),
+            Integer.parseInt(options.getOrDefault("titles", "10000")),
+            Integer.parseInt(options.getOrDefault("users", "10000")));
+        System.out.println(report);
+    }
+
+    /**
+     * Parses {@code --name value} pairs.
+     *
+     * @param args the command-line arguments
+     * @return the options by name
+     * @throws IllegalArgumentException if an argument is not an option name followed by its value
+     */
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Opens the connections, runs the load for the warm-up and the measured duration, and collects the results.
+     *
+     * @param host          the server's host
+     * @param port          the server's port
+     * @param connections   the number of concurrent clients, each with its own connection
+     * @param warmupNanos   how long to run before recording
+     * @param durationNanos how long to record
+     * @param titles        the number of titles in the server's catalog
+     * @param users         the number of users in the server's catalog
+     * @return the measured latencies, throughput and response codes
+     * @throws Exception if the generator is interrupted or a client fails unexpectedly
+     */
+    static Report run(String host, int port, int connections, long warmupNanos, long durationNanos,
+                      int titles, int users) throws Exception {
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] schedule = new long[2];
+        List<Client> clients = new ArrayList<>(connections);
+        List<Future<?>> futures = new ArrayList<>(connections);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                Client client = new Client(host, port, DemoCatalog.userName(i % users), titles);
+                clients.add(client);
+                futures.add(executor.submit(() -> {
+                    try {
+                        client.connect();
+                    } finally {
+                        connected.countDown();
+                    }
+                    start.await();
+                    client.run(schedule[0], schedule[1]);
+                    return null;
+                }));
+            }
+            connected.await();
+            long now = System.nanoTime();
+            schedule[0] = now + warmupNanos;
+            schedule[1] = now + warmupNanos + durationNanos;
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return Report.of(clients, connections, durationNanos);
+    }
+
+    /**
+     * One simulated user with its own keep-alive connection.
+     */
+    private static final class Client {
+        private final String host;
+        private final int port;
+        private final String encodedUser;
+        private final int titles;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private long[] latencies = new long[1024];
+        private int recorded;
+        private final Map<Integer, Long> statuses = new TreeMap<>();
+        private long errors;
+
+        Client(String host, int port, String userName, int titles) {
+            this.host = host;
+            this.port = port;
+            this.encodedUser = URLEncoder.encode(userName, StandardCharsets.UTF_8);
+            this.titles = titles;
+        }
+
+        void connect() {
+            try {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port));
+                in = new BufferedInputStream(socket.getInputStream());
+                out = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                errors++;
+                socket = null;
+            }
+        }
+
+        /**
+         * Borrows and returns books until the end of the run, recording the requests started after the warm-up.
+         */
+        void run(long recordFrom, long end) throws IOException {
+            if (socket == null) {
+                return;
+            }
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    String title = URLEncoder.encode(DemoCatalog.title(random.nextInt(titles)), StandardCharsets.UTF_8);
+                    int status = request("/borrow?title=" + title + "&user=" + encodedUser, recordFrom);
+                    if (status == 200) {
+                        status = request("/return?user=" + encodedUser, recordFrom);
+                    }
+                    if (status < 0) {
+                        return;
+                    }
+                }
+            } finally {
+                socket.close();
+            }
+        }
+
+        /**
+         * Sends one POST request and reads its response.
+         *
+         * @return the status code, or {@code -1} if the connection failed
+         */
+        private int request(String target, long recordFrom) {
+            long started = System.nanoTime();
+            int status;
+            try {
+                out.write(("POST " + target + " HTTP/1.1\r\nHost: " + host + ":" + port
+                    + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                status = readResponse();
+            } catch (IOException e) {
+                errors++;
+                return -1;
+            }
+            if (started >= recordFrom) {
+                if (recorded == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, recorded * 2);
+                }
+                latencies[recorded++] = System.nanoTime() - started;
+                statuses.merge(status, 1L, Long::sum);
+            }
+            return status;
+        }
+
+        /**
+         * Reads a response with a known length, and skips its body.
+         *
+         * @return the status code
+         */
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long length = 0;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                int colon = header.indexOf(':');
+                if (colon > 0 && header.substring(0, colon).equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(header.substring(colon + 1).strip());
+                }
+            }
+            in.skipNBytes(length);
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * The outcome of a run: every recorded latency, sorted, and the count of each response code.
+     *
+     * @param connections the number of clients
+     * @param seconds     the measured duration
+     * @param latencies   the recorded latencies in nanoseconds, in increasing order
+     * @param statuses    the number of responses by status code
+     * @param errors      the number of connections that failed to open or were closed mid-run
+     */
+    record Report(int connections, double seconds, long[] latencies, Map<Integer, Long> statuses, long errors) {
+
+        static Report of(List<Client> clients, int connections, long durationNanos) {
+            int total = 0;
+            for (Client client : clients) {
+                total += client.recorded;
+            }
+            long[] latencies = new long[total];
+            Map<Integer, Long> statuses = new TreeMap<>();
+            long errors = 0;
+            int position = 0;
+            for (Client client : clients) {
+                System.arraycopy(client.latencies, 0, latencies, position, client.recorded);
+                position += client.recorded;
+                client.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+                errors += client.errors;
+            }
+            Arrays.sort(latencies);
+            return new Report(connections, durationNanos / 1e9, latencies, statuses, errors);
+        }
+
+        /**
+         * Returns the recorded latency below which the given fraction of the requests completed.
+         *
+         * @param fraction the fraction of requests, between {@code 0} and {@code 1}
+         * @return the latency in nanoseconds, or {@code 0} if nothing was recorded
+         */
+        long percentile(double fraction) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+        }
+
+        /**
+         * Returns the number of requests completed per second over the measured duration.
+         *
+         * @return the throughput
+         */
+        double throughput() {
+            return latencies.length / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "connections: %d, measured for %.1f s%n"
+                    + "requests: %d (%.0f req/s), dropped connections: %d%n"
+                    + "responses: %s%n"
+                    + "latency (us): p50=%d p90=%d p99=%d p99.9=%d max=%d",
+                connections, seconds, latencies.length, throughput(), errors, statuses,
+                percentile(0.5) / 1000, percentile(0.9) / 1000, percentile(0.99) / 1000,
+                percentile(0.999) / 1000, percentile(1.0) / 1000);
+        }
+    }
+}
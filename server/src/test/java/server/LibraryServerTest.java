@@ -0,0 +1,105 @@
+package server;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import models.Author;
+import models.Book;
+import models.Library;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link LibraryServer} endpoints and the {@link LoadGenerator} run against them.
+ * <p>
+ * Each test starts a server on a free port in front of a small library and talks to it over HTTP.
+ * </p>
+ */
+public class LibraryServerTest {
+
+    private LibraryServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Library library = new Library();
+        Author author = new Author("Joshua Bloch");
+        library.registerAuthor(author);
+        library.registerBook(new Book("Effective Java", author));
+        library.registerUser(new User("Alice"));
+        library.registerUser(new User("José"));
+        server = LibraryServer.start(library, new InetSocketAddress("localhost", 0), 64);
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Tests that borrowing and returning answer with the library's messages and the matching status codes.
+     */
+    @Test
+    public void testBorrowAndReturn() throws Exception {
+        HttpResponse<String> borrowed = send("POST", "/borrow?title=effective+java&user=Alice");
+        assertEquals(200, borrowed.statusCode());
+        assertTrue(borrowed.body().contains("Borrowed by Alice"));
+
+        HttpResponse<String> conflict = send("POST", "/borrow?title=Effective%20Java&user=Jos%C3%A9");
+        assertEquals(409, conflict.statusCode());
+        assertEquals("Book 'Effective Java' is already borrowed.\n", conflict.body());
+        assertEquals(404, send("POST", "/borrow?title=Unknown&user=Alice").statusCode());
+
+        assertEquals(200, send("POST", "/return?user=Alice&title=Effective+Java").statusCode());
+        assertEquals(409, send("POST", "/return?user=Alice").statusCode());
+    }
+
+    /**
+     * Tests the user lookup, the streamed summaries and the rejection of malformed requests.
+     */
+    @Test
+    public void testLookupSummariesAndErrors() throws Exception {
+        send("POST", "/borrow?title=Effective+Java&user=Jose");
+        HttpResponse<String> user = send("GET", "/user?name=jose");
+        assertEquals(200, user.statusCode());
+        assertEquals("José (has book: Effective Java)\n", user.body());
+        assertEquals(404, send("GET", "/user?name=Carol").statusCode());
+
+        assertEquals("\"Effective Java\" by Joshua Bloch - Borrowed by José\n", send("GET", "/books").body());
+        assertEquals("José (has book: Effective Java)\n", send("GET", "/users?offset=1&limit=1").body());
+
+        assertEquals(400, send("POST", "/borrow?title=Effective+Java").statusCode());
+        assertEquals(400, send("GET", "/books?limit=many").statusCode());
+        assertEquals(405, send("GET", "/borrow?title=Effective+Java&user=Alice").statusCode());
+    }
+
+    /**
+     * Tests that the load generator drives the server and reports what it recorded.
+     */
+    @Test
+    public void testLoadGeneratorReport() throws Exception {
+        Library library = new Library();
+        DemoCatalog.register(library, 10, 2, 8);
+        try (LibraryServer loaded = LibraryServer.start(library, new InetSocketAddress("localhost", 0), 64)) {
+            LoadGenerator.Report report = LoadGenerator.run("localhost", loaded.getPort(), 8, 0, 300_000_000L, 10, 8);
+            assertEquals(0, report.errors());
+            assertTrue(report.latencies().length > 0);
+            assertTrue(report.statuses().containsKey(200));
+            assertTrue(report.percentile(0.5) <= report.percentile(0.99));
+        }
+        assertEquals(0, library.getStats().getActiveLoanCount() - library.getStats().getBorrowedCopyCount());
+    }
+
+    private HttpResponse<String> send(String method, String target) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + target))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -12,3 +12,5 @@ plugins {
 
 rootProject.name = "library"
 include("app")
+include("benchmarks")
+include("server")